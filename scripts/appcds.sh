@@ -0,0 +1,11 @@
+#!/bin/sh
+# Dumps an application class data sharing archive of the headless simulator
+# (build/headless.jsa) from a short training run. Use it with
+#   java -XX:SharedArchiveFile=build/headless.jsa -jar build/headless.jar ...
+# Needs JDK 13 or later.
+set -e
+cd "$(dirname "$0")/.."
+
+[ -f build/headless.jar ] || scripts/build-headless.sh
+java -XX:ArchiveClassesAtExit=build/headless.jsa -jar build/headless.jar 1000 10
+echo "build/headless.jsa"
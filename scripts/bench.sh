@@ -0,0 +1,29 @@
+#!/bin/sh
+# Runs the macro-benchmark suite on the headless build and compares it with
+# bench/baseline.csv, failing if a run regressed by more than the threshold.
+#
+#   scripts/bench.sh [suite options]    run and compare
+#   scripts/bench.sh --update [options] run and store the results as baseline
+#
+# The baseline only makes sense on the machine it was recorded on.
+set -e
+cd "$(dirname "$0")/.."
+
+update=
+if [ "$1" = "--update" ]; then
+    update=1
+    shift
+fi
+
+sh scripts/build-headless.sh > /dev/null
+mkdir -p bench build
+
+JAVA_OPTS=${JAVA_OPTS:--Xms2g -Xmx8g}
+if [ -n "$update" ] || [ ! -f bench/baseline.csv ]; then
+    java $JAVA_OPTS -cp build/headless.jar simulator.bench.BenchmarkSuite \
+        --out bench/baseline.csv "$@"
+    echo "baseline stored in bench/baseline.csv"
+else
+    java $JAVA_OPTS -cp build/headless.jar simulator.bench.BenchmarkSuite \
+        --out build/bench-results.csv --baseline bench/baseline.csv "$@"
+fi
@@ -0,0 +1,19 @@
+#!/bin/sh
+# Builds build/headless.jar: the simulation without the Swing user interface
+# (creatures.visual), runnable with "java -jar build/headless.jar". It is
+# compiled without the java.desktop module, so that any use of AWT outside of
+# the user interface fails the build; the benchmarks need java.management and
+# the live view jdk.httpserver, which do not depend on it.
+set -e
+cd "$(dirname "$0")/.."
+
+rm -rf build/headless-classes
+mkdir -p build/headless-classes
+javac -encoding UTF-8 --limit-modules java.base,java.management,jdk.httpserver \
+    -d build/headless-classes \
+    $(find src -name '*.java' -not -path 'src/creatures/visual/*')
+cp -r src/META-INF build/headless-classes/
+cp src/simulator/remote/viewer.html build/headless-classes/simulator/remote/
+jar --create --file build/headless.jar --main-class simulator.HeadlessLauncher \
+    -C build/headless-classes .
+echo "build/headless.jar"
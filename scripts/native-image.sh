@@ -0,0 +1,9 @@
+#!/bin/sh
+# Compiles the headless simulator into a native executable (build/headless-native)
+# with GraalVM native-image. The options come from
+# src/META-INF/native-image/tp3/headless, packaged in the jar.
+set -e
+cd "$(dirname "$0")/.."
+
+[ -f build/headless.jar ] || scripts/build-headless.sh
+native-image -jar build/headless.jar -o build/headless-native
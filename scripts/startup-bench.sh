@@ -0,0 +1,34 @@
+#!/bin/sh
+# Compares the time to run a short simulation with a plain JVM, with the
+# class data sharing archive and with the native image, whichever exist.
+#
+# Usage: scripts/startup-bench.sh [runs [creatures ticks]]
+set -e
+cd "$(dirname "$0")/.."
+
+RUNS=${1:-20}
+CREATURES=${2:-100}
+TICKS=${3:-1}
+
+[ -f build/headless.jar ] || scripts/build-headless.sh
+
+# average wall clock time of a command in milliseconds
+bench() {
+    start=$(date +%s%N)
+    i=0
+    while [ $i -lt "$RUNS" ]; do
+        "$@" > /dev/null
+        i=$((i + 1))
+    done
+    end=$(date +%s%N)
+    echo $(( (end - start) / RUNS / 1000000 ))
+}
+
+echo "mode,avg_ms"
+echo "jvm,$(bench java -Xshare:auto -jar build/headless.jar "$CREATURES" "$TICKS")"
+if [ -f build/headless.jsa ]; then
+    echo "appcds,$(bench java -XX:SharedArchiveFile=build/headless.jsa -jar build/headless.jar "$CREATURES" "$TICKS")"
+fi
+if [ -x build/headless-native ]; then
+    echo "native,$(bench build/headless-native "$CREATURES" "$TICKS")"
+fi
@@ -4,10 +4,7 @@ import commons.Utils;
 
 import static java.lang.Math.PI;
 import static java.lang.Math.atan;
-import static java.lang.Math.toDegrees;
 
-import java.awt.*;
-import java.awt.geom.Point2D;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -15,7 +12,7 @@ import java.util.Collection;
 import java.util.List;
 
 
-public abstract class AbstractCreature {
+public abstract class AbstractCreature implements ICreature {
 
     public static final int DEFAULT_SIZE = 40;
     public static final int DEFAULT_VISION_DISTANCE = 50;
@@ -32,29 +29,46 @@ public abstract class AbstractCreature {
      */
     protected double visionDistance = DEFAULT_VISION_DISTANCE;
 
-    /** Position */
+    /**
+     * Position, never modified once assigned so that a creature acting in
+     * another thread is always seen at a consistent position.
+     */
     //protected double x, y;
-    protected Point2D position;
+    protected volatile Position position;
 
-    /** Speed in pixels */
-    protected double speed;
+    /** Speed in pixels, volatile so that it is never read half written */
+    protected volatile double speed;
 
-    /** Direction in radians (0,2*pi) */
-    protected double direction;
+    /** Direction in radians (0,2*pi), volatile for the same reason */
+    protected volatile double direction;
 
-    /** Color of the creature */
-    protected Color color;
+    /** Color of the creature as 0xAARRGGBB */
+    protected int color;
 
     /** Reference to the environment */
     protected final IEnvironment environment;
 
+    /** Shape of the world, cached from the environment */
+    protected final Topology topology;
+
     /** Size of the creature in pixels */
     protected final int size = DEFAULT_SIZE;
 
-    public AbstractCreature(IEnvironment environment, Point2D position) {
+    /** Visibility test, kept in sync with the direction */
+    protected final Vision vision = new Vision();
+
+    /**
+     * Position of the creature in the list the spatial index of its
+     * environment was last rebuilt from, -1 before the first rebuild
+     */
+    private int index = -1;
+
+    public AbstractCreature(IEnvironment environment, Position position) {
         this.environment = environment;
+        this.topology = environment.getTopology();
 
         setPosition(position);
+        vision.update(direction, fieldOfView, visionDistance);
     }
 
     /**
@@ -68,6 +82,10 @@ public abstract class AbstractCreature {
     // Getters and Setters
     // ----------------------------------------------------------------------------
 
+    public IEnvironment getEnvironment() {
+        return environment;
+    }
+
     public double getFieldOfView() {
         return fieldOfView;
     }
@@ -104,21 +122,46 @@ public abstract class AbstractCreature {
         this.y = newY;
     }*/
 
+    /**
+     * @return the position of the creature in the list the spatial index was
+     *         last rebuilt from, a dense id for the arrays of a tick; the
+     *         caller must check that the creature is still at that position
+     *         in its own list
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
     public double getSpeed() {
         return speed;
     }
 
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
     public double getDirection() {
         return direction;
     }
 
     public void setDirection(double direction) {
-        this.direction = direction % (PI * 2);
-        if (this.direction < 0) // % is keeping the number below 0
-            this.direction += PI * 2;
+        // a single write, other threads never see the angle out of range
+        double d = direction % (PI * 2);
+        if (d < 0) // % is keeping the number below 0
+            d += PI * 2;
+        this.direction = d;
+        vision.update(d, fieldOfView, visionDistance);
+    }
+
+    public Vision getVision() {
+        return vision;
     }
 
-    public Color getColor() {
+    public int getColor() {
         return color;
     }
 
@@ -129,32 +172,40 @@ public abstract class AbstractCreature {
     /**
      * Position of the creature.
      *
-     * @return position of the creature as a {@link Point}
+     * @return position of the creature as a {@link Position}
      */
-    public Point2D getPosition() {
-        return new Point2D.Double(position.getX(), position.getY());
+    public Position getPosition() {
+        // read once, the creature may be moved by another thread meanwhile
+        Position p = position;
+        return new Position(p.getX(), p.getY());
     }
 
-    public void setPosition(Point2D newPosition) {
-        setPosition(position.getX(), position.getY());
+    public void setPosition(Position newPosition) {
+        setPosition(newPosition.getX(), newPosition.getY());
     }
 
+    /**
+     * Moves the creature, the position being brought back into the world
+     * according to its {@link Topology}. In a reflective world the direction
+     * is mirrored along the axes where an edge was crossed.
+     */
     public void setPosition(double x, double y) {
-        Dimension dim = environment.getSize();
-
-        if (x > dim.getWidth() / 2) {
-            x = -dim.getWidth() / 2;
-        } else if (x < -dim.getWidth() / 2) {
-            x = dim.getWidth() / 2;
-        }
+        Position p = new Position(x, y);
+        int crossed = topology.constrain(p);
+        this.position = p;
 
-        if (y > dim.getHeight() / 2) {
-            y = -dim.getHeight() / 2;
-        } else if (y < -dim.getHeight() / 2) {
-            y = dim.getHeight() / 2;
+        if (crossed != 0 && topology.reflects()) {
+            if ((crossed & Topology.CROSSED_X) != 0) {
+                setDirection(PI - direction);
+            }
+            if ((crossed & Topology.CROSSED_Y) != 0) {
+                setDirection(- direction);
+            }
         }
+    }
 
-        this.position = new Point2D.Double(x, y);
+    public Topology getTopology() {
+        return topology;
     }
 
     // ----------------------------------------------------------------------------
@@ -168,7 +219,7 @@ public abstract class AbstractCreature {
     }
 
     protected void rotate(double angle) {
-        this.direction += angle;
+        setDirection(direction + angle);
     }
 
     // ----------------------------------------------------------------------------
@@ -182,15 +233,18 @@ public abstract class AbstractCreature {
      * @return direction in radians between given point and current position in
      *         respect to a given {@code axis}.
      */
-    public double directionFromAPoint(Point2D p, double axis) {
+    public double directionFromAPoint(Position p, double axis) {
         double b = 0d;
+        // shortest offset from the point to the current position
+        double dx = - topology.deltaX(position.getX(), p.getX());
+        double dy = - topology.deltaY(position.getY(), p.getY());
 
         // use a inverse trigonometry to get the angle in an orthogonal triangle
         // formed by the points (x,y) and (x1,y1)
-        if (position.getX() != p.getX()) {
+        if (dx != 0) {
             // if we are not in the same horizontal axis
-            b = atan((position.getY() - p.getY()) / (position.getX() - p.getX()));
-        } else if (position.getY() < p.getY()) {
+            b = atan(dy / dx);
+        } else if (dy < 0) {
             // below -pi/2
             b = -PI / 2;
         } else {
@@ -200,7 +254,7 @@ public abstract class AbstractCreature {
 
         // make a distinction between the case when the (x1, y1)
         // is right from the (x,y) or left
-        if (position.getX() < p.getX()) {
+        if (dx < 0) {
             b += PI;
         }
 
@@ -218,39 +272,23 @@ public abstract class AbstractCreature {
     }
 
     /**
-     * Distance between the current position and a given point {@code(x1, y1)}.
+     * Distance between the current position and a given point {@code(x1, y1)},
+     * across the edges of the world if it wraps and it is shorter.
      *
      * @return distance between the current position and a given point.
      */
-    public double distanceFromAPoint(Point2D p) {
-        return getPosition().distance(p);
+    public double distanceFromAPoint(Position p) {
+        return topology.distance(position, p);
     }
 
-    // ----------------------------------------------------------------------------
-    // Painting
-    // ----------------------------------------------------------------------------
-
     /**
-     * Draws creature to a given canvas.
-     *
-     * @param g2
-     *            canvas where to draw the creature.
+     * Whether the given creature is within the vision distance and the field
+     * of view of this one.
      */
-    public void paint(Graphics2D g2) {
-        // center the point
-        g2.translate(position.getX(), position.getY());
-        // center the surrounding rectangle
-        g2.translate(-size / 2, -size / 2);
-        // center the arc
-        // rotate towards the direction of our vector
-        g2.rotate(-direction, size / 2, size / 2);
-
-        // set the color
-        g2.setColor(color);
-        // we need to do PI - FOV since we want to mirror the arc
-        g2.fillArc(0, 0, size, size, (int) toDegrees(-fieldOfView / 2),
-                (int) toDegrees(fieldOfView));
-
+    public boolean sees(AbstractCreature other) {
+        Position p = position;
+        Position o = other.position;
+        return vision.sees(topology.deltaX(p.getX(), o.getX()), topology.deltaY(p.getY(), o.getY()));
     }
 
     public String toString() {
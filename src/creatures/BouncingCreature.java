@@ -5,30 +5,36 @@ import static java.lang.Math.cos;
 import static java.lang.Math.random;
 import static java.lang.Math.sin;
 
-import java.awt.Color;
-import java.awt.geom.Point2D;
-
 public class BouncingCreature extends AbstractCreature {
 
-    private static final double MIN_SPEED = 3;
-    private static final double MAX_SPEED = 10;
+    public static final double MIN_SPEED = 3;
+    public static final double MAX_SPEED = 10;
 
     /**
      * Number of cycles after which we apply some random noise.
      */
-    private static final int NUMBER_OF_CYCLES_PER_CHANGE = 3000;
+    public static final int NUMBER_OF_CYCLES_PER_CHANGE = 3000;
+
+    /**
+     * Tolerance in pixels used to decide whether the creature touches a wall.
+     */
+    private static final double WALL_EPSILON = 1e-6;
 
     /**
      * Current step number from the last noise application.
      */
     protected int currCycle;
 
-    public BouncingCreature(IEnvironment environment, Point2D position,
-                            double direction,  double speed, Color color) {
+    /** The edges of the world seen as walls. */
+    private final Topology walls;
+
+    public BouncingCreature(IEnvironment environment, Position position,
+                            double direction,  double speed, int color) {
         super(environment, position);
 
+        this.walls = topology.reflects() ? topology : Topology.reflective(topology.getWidth(), topology.getHeight());
         this.speed = speed;
-        this.direction = direction;
+        setDirection(direction);
         this.color = color;
 
         currCycle = 0;
@@ -50,58 +56,154 @@ public class BouncingCreature extends AbstractCreature {
 
         // every NUMBER_OF_CYCLES_PER_CHANGE we do the change
         if (currCycle == 0) {
-            this.speed += ((random() * 2) - 1);
-
-            // maintain the speed within some boundaries
-            if (this.speed < MIN_SPEED) {
-                this.speed = MIN_SPEED;
-            } else if (this.speed > MAX_SPEED) {
-                this.speed = MAX_SPEED;
-            }
+            perturb();
+        }
+    }
 
-            setDirection(this.direction
-                    + ((random() * PI / 2) - (PI / 4)));
+    /**
+     * The random change of speed and direction applied by
+     * {@link #applyNoise()} once every NUMBER_OF_CYCLES_PER_CHANGE cycles.
+     */
+    public void perturb() {
+        this.speed += ((random() * 2) - 1);
+
+        // maintain the speed within some boundaries
+        if (this.speed < MIN_SPEED) {
+            this.speed = MIN_SPEED;
+        } else if (this.speed > MAX_SPEED) {
+            this.speed = MAX_SPEED;
         }
+
+        setDirection(this.direction
+                + ((random() * PI / 2) - (PI / 4)));
     }
 
     /**
-     * The actual move
+     * Current step number from the last noise application.
      */
-    public void move() {
-        double newX = x + speed * cos(direction);
-        // the reason there is a minus instead of a plus is that in our plane
-        // Y coordinates rises downwards
-        double newY = y - speed * sin(direction);
+    public int getCurrCycle() {
+        return currCycle;
+    }
 
-        double hw = environment.getWidth() / 2;
-        double hh = environment.getHeight() / 2;
+    /**
+     * Number of cycles this creature still has to do before the next noise
+     * application: the noise is applied at the start of the cycle after them.
+     */
+    public int cyclesBeforeNoise() {
+        return NUMBER_OF_CYCLES_PER_CHANGE - currCycle - 1;
+    }
 
-        // newX and newY were just put on the border of the envt. It's not a bug
-        // as long as the tests passed. Now, the mirroring position is computed.
+    /**
+     * Counts cycles done without {@link #act()}, the noise being applied by
+     * the caller, so that {@code act()} carries on where they left off.
+     */
+    public void countCycles(long cycles) {
+        currCycle = (int) ((currCycle + cycles) % NUMBER_OF_CYCLES_PER_CHANGE);
+    }
 
-        if (newX < -hw) {
-            newX = - 2*hw - newX;
-            // ERROR #2 direction is badly managed
-            setDirectionBounceX();
-        } else if (newX > hw) {
-            newX = 2*hw - newX;
-            // ERROR #2 direction is badly managed
-            setDirectionBounceX();
-        } // else // ERROR #1 (NO ELSE, we need to check X and Y independently)
+    /**
+     * Period of the noise application in cycles.
+     */
+    public static int getCyclesPerChange() {
+        return NUMBER_OF_CYCLES_PER_CHANGE;
+    }
 
-        if (newY < -hh) {
-            newY = - 2*hh - newY;
-            // ERROR #2 direction is badly managed
+    /**
+     * The actual move: the creature bounces on the edges of the world
+     * whatever its topology.
+     */
+    public void move() {
+        Position p = new Position(
+                position.getX() + speed * cos(direction),
+                // the reason there is a minus instead of a plus is that in our
+                // plane Y coordinates rises downwards
+                position.getY() - speed * sin(direction));
+
+        // the mirroring position is computed, X and Y independently
+        int crossed = walls.constrain(p);
+        if ((crossed & Topology.CROSSED_X) != 0) {
+            setDirectionBounceX();
+        }
+        if ((crossed & Topology.CROSSED_Y) != 0) {
             setDirectionBounceY();
-        } else if (newY > hh) {
-            // ERROR #3 (cut and paste led to "hw" instead of "hh")
-            newY = 2*hh - newY;
-            // ERROR #2 direction is badly managed
+        }
+
+        setPosition(p);
+    }
+
+    // ----------------------------------------------------------------------------
+    // Event-driven motion
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Time (in cycles, possibly fractional) before this creature hits one of
+     * the walls if it keeps its current speed and direction.
+     *
+     * @return the time before the next bounce or
+     *         {@link Double#POSITIVE_INFINITY} if the creature does not move.
+     */
+    public double timeBeforeBounce() {
+        double vx = speed * cos(direction);
+        double vy = - speed * sin(direction);
+
+        double hw = topology.getHalfWidth();
+        double hh = topology.getHalfHeight();
+
+        return Math.min(timeBeforeWall(position.getX(), vx, hw),
+                timeBeforeWall(position.getY(), vy, hh));
+    }
+
+    private static double timeBeforeWall(double p, double v, double half) {
+        if (v > 0) {
+            return Math.max(0, (half - p) / v);
+        } else if (v < 0) {
+            return Math.max(0, (-half - p) / v);
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Moves the creature in a straight line during {@code cycles} cycles,
+     * without checking the walls. The caller is responsible of never going
+     * past {@link #timeBeforeBounce()}; the position is only clamped to the
+     * walls to absorb rounding errors.
+     */
+    public void advance(double cycles) {
+        double hw = topology.getHalfWidth();
+        double hh = topology.getHalfHeight();
+
+        double newX = position.getX() + speed * cos(direction) * cycles;
+        double newY = position.getY() - speed * sin(direction) * cycles;
+
+        setPosition(Math.max(-hw, Math.min(hw, newX)),
+                Math.max(-hh, Math.min(hh, newY)));
+    }
+
+    /**
+     * Changes the direction of the creature if it stands on a wall and is
+     * heading towards it. Both walls are handled in a corner.
+     *
+     * @return true if the direction changed
+     */
+    public boolean bounce() {
+        double hw = topology.getHalfWidth();
+        double hh = topology.getHalfHeight();
+        double vx = cos(direction);
+        double vy = - sin(direction);
+        boolean bounced = false;
+
+        if ((position.getX() <= -hw + WALL_EPSILON && vx < 0)
+                || (position.getX() >= hw - WALL_EPSILON && vx > 0)) {
+            setDirectionBounceX();
+            bounced = true;
+        }
+        if ((position.getY() <= -hh + WALL_EPSILON && vy < 0)
+                || (position.getY() >= hh - WALL_EPSILON && vy > 0)) {
             setDirectionBounceY();
+            bounced = true;
         }
 
-        setX(newX);
-        setY(newY);
+        return bounced;
     }
 
     private void setDirectionBounceX() {
@@ -1,6 +1,5 @@
 package creatures;
 
-import java.awt.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -13,7 +12,7 @@ public class CreatureBuilder {
 
     public List<AbstractCreature> createCreatures(IEnvironment environment, int number) {
 
-        Dimension dim = environment.getSize();
+        Topology topology = environment.getTopology();
 
         List<AbstractCreature> list = new ArrayList<AbstractCreature>();
         Random rand = new Random();
@@ -28,10 +27,10 @@ public class CreatureBuilder {
 
         for (int i = 0; i < number; i++) {
             // X coordinate
-            double x = (rand.nextDouble() * dim.getWidth()) - dim.getWidth() / 2;
+            double x = (rand.nextDouble() * topology.getWidth()) - topology.getHalfWidth();
 
             // Y coordinate
-            double y = (rand.nextDouble() * dim.getHeight()) - dim.getHeight() / 2;
+            double y = (rand.nextDouble() * topology.getHeight()) - topology.getHalfHeight();
 
             // direction
             double direction = (rand.nextDouble() * 2 * PI);
@@ -48,11 +47,21 @@ public class CreatureBuilder {
                         b -= 1.0f;
                 }
             }
-            list.add(new BouncingCreature(environment, po, direction, speed, new Color(
-                    r, g, b)));
+            list.add(new BouncingCreature(environment, new Position(x, y), direction, speed,
+                    rgb(r, g, b)));
         }
-        creaturesCount = number;
         return list;
     }
 
+    /**
+     * Opaque color as 0xAARRGGBB from components in the range (0.0 - 1.0),
+     * rounded like {@code java.awt.Color} does.
+     */
+    public static int rgb(float r, float g, float b) {
+        return 0xFF000000
+                | ((int) (r * 255 + 0.5) & 0xFF) << 16
+                | ((int) (g * 255 + 0.5) & 0xFF) << 8
+                | ((int) (b * 255 + 0.5) & 0xFF);
+    }
+
 }
@@ -1,7 +1,32 @@
 package creatures;
 
-public class CreaturesAroundCreature {
-    public boolean apply(ICreature iCreature) {
-        return true;
+import commons.Utils.Predicate;
+
+/**
+ * Accepts the creatures seen by an observer: closer than its vision distance
+ * and within its field of view, centered on its direction (see
+ * {@link Vision}).
+ */
+public class CreaturesAroundCreature implements Predicate<ICreature> {
+
+    private final AbstractCreature observer;
+
+    public CreaturesAroundCreature(AbstractCreature observer) {
+        this.observer = observer;
+    }
+
+    public boolean apply(ICreature input) {
+        if (input == observer) {
+            return false;
+        }
+
+        if (input instanceof AbstractCreature) {
+            return observer.sees((AbstractCreature) input);
+        }
+
+        Topology topology = observer.getTopology();
+        return observer.getVision().sees(
+                topology.deltaX(observer.getPosition().getX(), input.getPosition().getX()),
+                topology.deltaY(observer.getPosition().getY(), input.getPosition().getY()));
     }
 }
@@ -1,15 +1,15 @@
 package creatures;
 
-import java.awt.*;
-
+/**
+ * What is needed to draw a creature; the drawing itself is done by
+ * {@link creatures.visual.CreaturePainter} so that the simulation does not
+ * depend on AWT.
+ */
 public interface IDrawable {
-    public Color getColor();
-
-    public int getSize();
-
     /**
-     * dessine une creature dans le canvas
-     * @param graphics2D
+     * @return the color as 0xAARRGGBB
      */
-    public void paint(Graphics2D graphics2D);
+    public int getColor();
+
+    public int getSize();
 }
@@ -1,9 +1,25 @@
 package creatures;
 
-import java.awt.*;
+import java.util.Collection;
 
 public interface IEnvironment {
     public Iterable<ICreature> getCreatures();
 
-    public Dimension getSize();
+    public double getWidth();
+
+    public double getHeight();
+
+    /**
+     * Shape of the world: what happens at the edges and how distances are
+     * measured.
+     * @return
+     */
+    public Topology getTopology();
+
+    /**
+     * Creatures seen by a given creature (see {@link CreaturesAroundCreature}).
+     * @param creature
+     * @return
+     */
+    public Collection<AbstractCreature> creaturesAround(AbstractCreature creature);
 }
@@ -0,0 +1,66 @@
+package creatures;
+
+/**
+ * A point of the world, in pixels, the origin at its center. The simulation
+ * uses it instead of {@code java.awt.geom.Point2D} so that it does not depend
+ * on AWT; the user interface converts where it needs to.
+ *
+ * The coordinates are public like the ones of {@code Point2D.Double} so that
+ * a position can be used as a scratch point, for instance by
+ * {@link Topology#constrain(Position)}. A position handed over to a creature
+ * must not be modified afterwards.
+ */
+public final class Position {
+
+    public double x;
+    public double y;
+
+    public Position() {
+    }
+
+    public Position(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Straight distance, without regard to the edges of the world, see
+     * {@link Topology#distance(Position, Position)} for that.
+     */
+    public double distance(Position p) {
+        return distance(p.x, p.y);
+    }
+
+    public double distance(double px, double py) {
+        double dx = px - x;
+        double dy = py - y;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Position)) {
+            return false;
+        }
+        Position p = (Position) o;
+        return Double.compare(x, p.x) == 0 && Double.compare(y, p.y) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(x) + Double.hashCode(y);
+    }
+
+    @Override
+    public String toString() {
+        return "Position[" + x + ", " + y + "]";
+    }
+}
@@ -1,7 +1,5 @@
 package creatures;
 
-import java.awt.Color;
-import java.awt.geom.Point2D;
 import java.util.Collection;
 
 /**
@@ -22,15 +20,15 @@ import java.util.Collection;
 public class SmartCreature extends AbstractCreature {
 
     /** Minimal distance between this creature and the ones around. */
-    private final static double MIN_DIST = 10d;
+    public final static double MIN_DIST = 10d;
 
     /** Minimal speed in pixels per loop. */
-    private final static double MIN_SPEED = 3d;
+    public final static double MIN_SPEED = 3d;
 
-    public SmartCreature(IEnvironment environment, Point2D position, double direction, double speed,
-                         Color color) {
+    public SmartCreature(IEnvironment environment, Position position, double direction, double speed,
+                         int color) {
         super(environment, position);
-        this.direction = direction;
+        setDirection(direction);
         this.speed = speed;
         this.color = color;
     }
@@ -63,7 +61,7 @@ public class SmartCreature extends AbstractCreature {
         avgDir = avgDir / (creatures.size() + 1);
 
         // apply - change this creature state
-        this.direction = avgDir;
+        setDirection(avgDir);
         this.speed = avgSpeed;
 
         // if we are not too close move closer
@@ -3,19 +3,16 @@ package creatures;
 import static java.lang.Math.cos;
 import static java.lang.Math.sin;
 
-import java.awt.Color;
-import java.awt.geom.Point2D;
-
 /**
  * Sample creature
  */
 public class StupidCreature extends AbstractCreature {
 
-    public StupidCreature(IEnvironment environment, Point2D position,
-                          double direction, double speed, Color color) {
+    public StupidCreature(IEnvironment environment, Position position,
+                          double direction, double speed, int color) {
         super(environment, position);
 
-        this.direction = direction;
+        setDirection(direction);
         this.speed = speed;
         this.color = color;
     }
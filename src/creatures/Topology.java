@@ -0,0 +1,217 @@
+package creatures;
+
+/**
+ * Shape of the world: what happens when a creature goes past an edge, and
+ * how far apart two points are. The world is centered on the origin, its
+ * extents are cached so that constraining a position does not need to ask
+ * the environment for its size.
+ */
+public abstract class Topology {
+
+    /** The X coordinate was brought back from beyond a vertical edge. */
+    public static final int CROSSED_X = 1;
+
+    /** The Y coordinate was brought back from beyond a horizontal edge. */
+    public static final int CROSSED_Y = 2;
+
+    protected final double width;
+    protected final double height;
+    protected final double halfWidth;
+    protected final double halfHeight;
+
+    protected Topology(double width, double height) {
+        this.width = width;
+        this.height = height;
+        this.halfWidth = width / 2;
+        this.halfHeight = height / 2;
+    }
+
+    /**
+     * Going past an edge makes the creature reappear on the opposite one.
+     */
+    public static Topology toroidal(double width, double height) {
+        return new Toroidal(width, height);
+    }
+
+    /**
+     * Going past an edge mirrors the position, the edges act like walls.
+     */
+    public static Topology reflective(double width, double height) {
+        return new Reflective(width, height);
+    }
+
+    /**
+     * The creature is stopped at the edge.
+     */
+    public static Topology bounded(double width, double height) {
+        return new Bounded(width, height);
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    public double getHalfWidth() {
+        return halfWidth;
+    }
+
+    public double getHalfHeight() {
+        return halfHeight;
+    }
+
+    /**
+     * Brings the point back into the world.
+     *
+     * @return a combination of {@link #CROSSED_X} and {@link #CROSSED_Y}
+     *         telling along which axis the point was outside
+     */
+    public abstract int constrain(Position p);
+
+    /**
+     * Whether the opposite edges are neighbours, in which case distances are
+     * measured across the edges when it is shorter.
+     */
+    public boolean wraps() {
+        return false;
+    }
+
+    /**
+     * Whether the edges act like walls, in which case a creature crossing
+     * one must mirror its direction.
+     */
+    public boolean reflects() {
+        return false;
+    }
+
+    /**
+     * Signed distance from {@code from} to {@code to} along the X axis.
+     */
+    public double deltaX(double from, double to) {
+        return to - from;
+    }
+
+    /**
+     * Signed distance from {@code from} to {@code to} along the Y axis.
+     */
+    public double deltaY(double from, double to) {
+        return to - from;
+    }
+
+    public double distanceSq(double x1, double y1, double x2, double y2) {
+        double dx = deltaX(x1, x2);
+        double dy = deltaY(y1, y2);
+        return dx * dx + dy * dy;
+    }
+
+    public double distance(Position p1, Position p2) {
+        return Math.sqrt(distanceSq(p1.getX(), p1.getY(), p2.getX(), p2.getY()));
+    }
+
+    // ----------------------------------------------------------------------------
+    // Implementations
+    // ----------------------------------------------------------------------------
+
+    private static class Toroidal extends Topology {
+
+        Toroidal(double width, double height) {
+            super(width, height);
+        }
+
+        /**
+         * The edges themselves belong to the world, a point beyond them is
+         * moved by as many world sizes as needed.
+         */
+        @Override
+        public int constrain(Position p) {
+            int crossed = 0;
+            if (p.x < -halfWidth || p.x > halfWidth) {
+                p.x -= width * Math.floor((p.x + halfWidth) / width);
+                crossed |= CROSSED_X;
+            }
+            if (p.y < -halfHeight || p.y > halfHeight) {
+                p.y -= height * Math.floor((p.y + halfHeight) / height);
+                crossed |= CROSSED_Y;
+            }
+            return crossed;
+        }
+
+        @Override
+        public boolean wraps() {
+            return true;
+        }
+
+        @Override
+        public double deltaX(double from, double to) {
+            double d = to - from;
+            return d - width * Math.rint(d / width);
+        }
+
+        @Override
+        public double deltaY(double from, double to) {
+            double d = to - from;
+            return d - height * Math.rint(d / height);
+        }
+    }
+
+    private static class Reflective extends Topology {
+
+        Reflective(double width, double height) {
+            super(width, height);
+        }
+
+        /**
+         * Folds the coordinate back into the world as many times as needed;
+         * the axis is reported as crossed when the number of reflections is
+         * odd, i.e. when the direction must be mirrored.
+         */
+        @Override
+        public int constrain(Position p) {
+            int crossed = 0;
+            if (p.x < -halfWidth || p.x > halfWidth) {
+                double u = p.x + halfWidth;
+                double m = u - 2 * width * Math.floor(u / (2 * width));
+                if (m > width) {
+                    m = 2 * width - m;
+                }
+                p.x = m - halfWidth;
+                crossed |= ((long) Math.floor(u / width) & 1) != 0 ? CROSSED_X : 0;
+            }
+            if (p.y < -halfHeight || p.y > halfHeight) {
+                double u = p.y + halfHeight;
+                double m = u - 2 * height * Math.floor(u / (2 * height));
+                if (m > height) {
+                    m = 2 * height - m;
+                }
+                p.y = m - halfHeight;
+                crossed |= ((long) Math.floor(u / height) & 1) != 0 ? CROSSED_Y : 0;
+            }
+            return crossed;
+        }
+
+        @Override
+        public boolean reflects() {
+            return true;
+        }
+    }
+
+    private static class Bounded extends Topology {
+
+        Bounded(double width, double height) {
+            super(width, height);
+        }
+
+        @Override
+        public int constrain(Position p) {
+            double x = Math.max(-halfWidth, Math.min(halfWidth, p.x));
+            double y = Math.max(-halfHeight, Math.min(halfHeight, p.y));
+            int crossed = (x != p.x ? CROSSED_X : 0) | (y != p.y ? CROSSED_Y : 0);
+            p.x = x;
+            p.y = y;
+            return crossed;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package creatures;
+
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+
+/**
+ * Visibility test of a creature: is a point closer than the vision distance
+ * and within the field of view centered on the direction?
+ *
+ * The heading unit vector and the cosine of half of the field of view are
+ * computed once per change of direction, so that a test is a squared distance
+ * comparison followed by a dot product, without square root nor inverse
+ * trigonometry.
+ */
+public class Vision {
+
+    /** Heading unit vector, Y rising downwards as in {@link AbstractCreature#move}. */
+    private double headingX = 1;
+    private double headingY = 0;
+
+    private double cosHalfFov;
+    private double cosHalfFovSq;
+    private double rangeSq;
+
+    /**
+     * @param direction
+     *            in radians
+     * @param fieldOfView
+     *            in radians
+     * @param visionDistance
+     *            in pixels
+     */
+    public void update(double direction, double fieldOfView, double visionDistance) {
+        headingX = cos(direction);
+        headingY = - sin(direction);
+        cosHalfFov = cos(fieldOfView / 2);
+        cosHalfFovSq = cosHalfFov * cosHalfFov;
+        rangeSq = visionDistance * visionDistance;
+    }
+
+    /**
+     * @param dx
+     *            X offset from the viewer to the point
+     * @param dy
+     *            Y offset from the viewer to the point
+     * @return true if the point is seen
+     */
+    public boolean sees(double dx, double dy) {
+        double d2 = dx * dx + dy * dy;
+        if (d2 > rangeSq) {
+            return false;
+        }
+
+        // dot >= |d| cos(fov / 2), squared to avoid the root
+        double dot = dx * headingX + dy * headingY;
+        if (cosHalfFov >= 0) {
+            return dot >= 0 && dot * dot >= cosHalfFovSq * d2;
+        } else {
+            return dot >= 0 || dot * dot <= cosHalfFovSq * d2;
+        }
+    }
+
+    /**
+     * Batch form of {@link #sees(double, double)} for a viewer standing at
+     * {@code (x, y)} and the candidates {@code from} to {@code to} (excluded)
+     * of the coordinate arrays.
+     *
+     * @param hits
+     *            receives the indexes of the candidates seen, must have room
+     *            for {@code to - from} of them
+     * @return the number of candidates seen
+     */
+    public int filter(double x, double y, double[] xs, double[] ys, int from, int to, int[] hits) {
+        double hx = headingX;
+        double hy = headingY;
+        double c = cosHalfFov;
+        double c2 = cosHalfFovSq;
+        double r2 = rangeSq;
+        int n = 0;
+
+        for (int i = from; i < to; i++) {
+            double dx = xs[i] - x;
+            double dy = ys[i] - y;
+            double d2 = dx * dx + dy * dy;
+            double dot = dx * hx + dy * hy;
+            boolean inCone = c >= 0
+                    ? dot >= 0 && dot * dot >= c2 * d2
+                    : dot >= 0 || dot * dot <= c2 * d2;
+            if (d2 <= r2 && inCone) {
+                hits[n++] = i;
+            }
+        }
+
+        return n;
+    }
+}
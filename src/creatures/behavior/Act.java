@@ -0,0 +1,35 @@
+package creatures.behavior;
+
+import creatures.AbstractCreature;
+
+/**
+ * Falls back to {@link AbstractCreature#act()} for the creatures whose
+ * behavior is not expressed as steering steps. The speed and direction the
+ * creature ends up with are read back so that the batch does not overwrite
+ * them.
+ */
+public class Act implements ISteering {
+
+    public void steer(Batch batch) {
+        double[] speed = batch.speed;
+        double[] direction = batch.direction;
+
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            AbstractCreature c = batch.get(i);
+            c.act();
+            speed[i] = c.getSpeed();
+            direction[i] = c.getDirection();
+        }
+    }
+
+    /**
+     * The creatures query the environment themselves.
+     */
+    public boolean needsNeighbours() {
+        return false;
+    }
+
+    public String toString() {
+        return "Act";
+    }
+}
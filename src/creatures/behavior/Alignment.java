@@ -0,0 +1,37 @@
+package creatures.behavior;
+
+/**
+ * Aligns the speed and the direction of each creature with the average of
+ * the creatures it sees, itself included, while keeping a minimal speed.
+ * This is the first half of {@link creatures.SmartCreature#act()}.
+ */
+public class Alignment implements ISteering {
+
+    private final double minSpeed;
+
+    public Alignment(double minSpeed) {
+        this.minSpeed = minSpeed;
+    }
+
+    public void steer(Batch batch) {
+        double[] speed = batch.speed;
+        double[] direction = batch.direction;
+        int[] neighbours = batch.neighbours;
+        double[] neighbourSpeed = batch.neighbourSpeed;
+        double[] neighbourDirection = batch.neighbourDirection;
+
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            int count = neighbours[i] + 1;
+            speed[i] = Math.max(minSpeed, (speed[i] + neighbourSpeed[i]) / count);
+            direction[i] = (direction[i] + neighbourDirection[i]) / count;
+        }
+    }
+
+    public boolean needsNeighbours() {
+        return true;
+    }
+
+    public String toString() {
+        return "Alignment(" + minSpeed + ")";
+    }
+}
@@ -0,0 +1,232 @@
+package creatures.behavior;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import creatures.AbstractCreature;
+import creatures.BouncingCreature;
+import creatures.Topology;
+import simulator.stats.Accumulator;
+import simulator.stats.StatisticsCollector;
+
+/**
+ * The creatures sharing a {@link Behavior}, with their state laid out in
+ * arrays for the steering steps.
+ *
+ * A tick of the batch loads the speed and direction of every creature,
+ * gathers their neighbourhood if the behavior needs it, runs the steps in
+ * order and stores the speed and direction back. The neighbourhood is
+ * gathered for the whole batch before any step runs, so all the creatures of
+ * the batch react to the same state of the world.
+ */
+public class Batch {
+
+    private final Behavior behavior;
+
+    private AbstractCreature[] creatures = new AbstractCreature[16];
+
+    private int size;
+
+    // state, loaded before and stored after the steps
+    double[] speed = new double[16];
+    double[] direction = new double[16];
+
+    /** Set by a step to prevent the creature from moving during this tick. */
+    boolean[] blocked = new boolean[16];
+
+    /**
+     * Per creature cycle counter, for the periodic steps. It starts from the
+     * counter of a {@link BouncingCreature} so that its noise keeps its phase.
+     */
+    int[] cycle = new int[16];
+
+    // neighbourhood
+    int[] neighbours = new int[16];
+    double[] neighbourSpeed = new double[16];
+    double[] neighbourDirection = new double[16];
+    double[] nearest = new double[16];
+    double[] neighbourOffsetX = new double[16];
+    double[] neighbourOffsetY = new double[16];
+
+    public Batch(Behavior behavior) {
+        this.behavior = behavior;
+    }
+
+    public Behavior getBehavior() {
+        return behavior;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public AbstractCreature get(int i) {
+        return creatures[i];
+    }
+
+    public void add(AbstractCreature creature) {
+        if (size == creatures.length) {
+            grow(size * 2);
+        }
+        cycle[size] = creature instanceof BouncingCreature ? ((BouncingCreature) creature).getCurrCycle() : 0;
+        creatures[size++] = creature;
+    }
+
+    /**
+     * Removes a creature, the last one of the batch taking its place.
+     *
+     * @return false if the creature was not in the batch
+     */
+    public boolean remove(AbstractCreature creature) {
+        for (int i = 0; i < size; i++) {
+            if (creatures[i] == creature) {
+                size--;
+                creatures[i] = creatures[size];
+                cycle[i] = cycle[size];
+                creatures[size] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void grow(int capacity) {
+        creatures = Arrays.copyOf(creatures, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        direction = Arrays.copyOf(direction, capacity);
+        blocked = Arrays.copyOf(blocked, capacity);
+        cycle = Arrays.copyOf(cycle, capacity);
+        neighbours = Arrays.copyOf(neighbours, capacity);
+        neighbourSpeed = Arrays.copyOf(neighbourSpeed, capacity);
+        neighbourDirection = Arrays.copyOf(neighbourDirection, capacity);
+        nearest = Arrays.copyOf(nearest, capacity);
+        neighbourOffsetX = Arrays.copyOf(neighbourOffsetX, capacity);
+        neighbourOffsetY = Arrays.copyOf(neighbourOffsetY, capacity);
+    }
+
+    /**
+     * One tick of all the creatures of the batch.
+     */
+    public void tick() {
+        load();
+        if (behavior.needsNeighbours()) {
+            gather(0, size, null, null);
+        }
+        steer();
+        store();
+    }
+
+    void load() {
+        for (int i = 0; i < size; i++) {
+            speed[i] = creatures[i].getSpeed();
+            direction[i] = creatures[i].getDirection();
+            blocked[i] = false;
+        }
+    }
+
+    /**
+     * Sums up what the creatures from {@code from} to {@code to} (excluded)
+     * see around them. Disjoint ranges can be gathered concurrently.
+     *
+     * If the behavior does not need the neighbourhood, only the creatures
+     * sampled by the collector are queried for it.
+     *
+     * @param stats if not null, receives the speed, direction and
+     *              neighbourhood of each creature, identified by the given
+     *              collector
+     */
+    void gather(int from, int to, Accumulator stats, StatisticsCollector collector) {
+        boolean all = behavior.needsNeighbours();
+        for (int i = from; i < to; i++) {
+            if (!all && !collector.samples(i)) {
+                stats.creature(speed[i], direction[i]);
+                continue;
+            }
+            AbstractCreature c = creatures[i];
+            Topology topology = c.getTopology();
+            double x = c.getPosition().getX();
+            double y = c.getPosition().getY();
+            int id = stats != null ? collector.id(c) : -1;
+
+            Collection<AbstractCreature> around = c.getEnvironment().creaturesAround(c);
+            double sumSpeed = 0;
+            double sumDirection = 0;
+            double sumX = 0;
+            double sumY = 0;
+            double min = Double.MAX_VALUE;
+            for (AbstractCreature o : around) {
+                double dx = topology.deltaX(x, o.getPosition().getX());
+                double dy = topology.deltaY(y, o.getPosition().getY());
+                sumSpeed += o.getSpeed();
+                sumDirection += o.getDirection();
+                sumX += dx;
+                sumY += dy;
+                min = Math.min(min, dx * dx + dy * dy);
+                if (id >= 0) {
+                    int other = collector.id(o);
+                    if (other >= 0) {
+                        stats.edge(id, other);
+                    }
+                }
+            }
+
+            neighbours[i] = around.size();
+            neighbourSpeed[i] = sumSpeed;
+            neighbourDirection[i] = sumDirection;
+            neighbourOffsetX[i] = sumX;
+            neighbourOffsetY[i] = sumY;
+            nearest[i] = Math.sqrt(min);
+
+            if (stats != null) {
+                stats.creature(speed[i], direction[i]);
+                if (id >= 0) {
+                    stats.observe(id);
+                    if (!around.isEmpty()) {
+                        stats.nearest(nearest[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    void steer() {
+        for (ISteering step : behavior.getSteps()) {
+            step.steer(this);
+        }
+    }
+
+    void store() {
+        for (int i = 0; i < size; i++) {
+            creatures[i].setSpeed(speed[i]);
+            creatures[i].setDirection(direction[i]);
+        }
+    }
+
+    // ----------------------------------------------------------------------------
+    // Accessors for the steps defined outside of this package
+    // ----------------------------------------------------------------------------
+
+    public double[] getSpeeds() {
+        return speed;
+    }
+
+    public double[] getDirections() {
+        return direction;
+    }
+
+    public boolean[] getBlocked() {
+        return blocked;
+    }
+
+    public int[] getCycles() {
+        return cycle;
+    }
+
+    public int[] getNeighbourCounts() {
+        return neighbours;
+    }
+
+    public double[] getNearestDistances() {
+        return nearest;
+    }
+}
@@ -0,0 +1,58 @@
+package creatures.behavior;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ordered list of steering steps. A behavior is its own signature: the
+ * creatures sharing the same behavior instance are run together by the
+ * {@link BehaviorEngine}, so the predefined behaviors of {@link Behaviors}
+ * should be reused rather than rebuilt.
+ */
+public class Behavior {
+
+    private final String name;
+
+    private final List<ISteering> steps;
+
+    private final boolean needsNeighbours;
+
+    public Behavior(String name, ISteering... steps) {
+        this.name = name;
+        this.steps = Collections.unmodifiableList(new ArrayList<ISteering>(Arrays.asList(steps)));
+
+        boolean neighbours = false;
+        for (ISteering s : steps) {
+            neighbours |= s.needsNeighbours();
+        }
+        this.needsNeighbours = neighbours;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<ISteering> getSteps() {
+        return steps;
+    }
+
+    public boolean needsNeighbours() {
+        return needsNeighbours;
+    }
+
+    /**
+     * @return a new behavior made of the steps of this one followed by the
+     *         given ones
+     */
+    public Behavior then(String name, ISteering... more) {
+        List<ISteering> all = new ArrayList<ISteering>(steps);
+        all.addAll(Arrays.asList(more));
+        return new Behavior(name, all.toArray(new ISteering[all.size()]));
+    }
+
+    public String toString() {
+        return name + steps;
+    }
+}
@@ -0,0 +1,213 @@
+package creatures.behavior;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import creatures.AbstractCreature;
+import simulator.World;
+import simulator.stats.Accumulator;
+import simulator.stats.Statistics;
+import simulator.stats.StatisticsCollector;
+
+/**
+ * Runs the creatures of a {@link World} by behavior rather than one
+ * {@code act()} after the other: the creatures sharing a {@link Behavior}
+ * are kept in a {@link Batch} and each step of the behavior runs over the
+ * whole batch.
+ *
+ * The neighbourhood of the large batches is gathered in parallel. When a
+ * {@link StatisticsCollector} is set, the same pass feeds it, each task
+ * filling its own {@link Accumulator}. The batches that do not need the
+ * neighbourhood are then only queried for the creatures the collector
+ * samples, if any.
+ *
+ * The creatures handed to the engine must not be ticked by the world as
+ * well, {@link #tick()} replaces {@link World#tick()}.
+ */
+public class BehaviorEngine {
+
+    /** Below that many creatures a batch is gathered sequentially. */
+    private static final int PARALLEL_THRESHOLD = 1 << 10;
+
+    /** Number of tasks per worker thread of the pool. */
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final World world;
+
+    private final ForkJoinPool pool;
+
+    private final Map<Behavior, Batch> batches = new LinkedHashMap<Behavior, Batch>();
+
+    private StatisticsCollector statistics;
+
+    public BehaviorEngine(World world, ForkJoinPool pool) {
+        this.world = world;
+        this.pool = pool;
+    }
+
+    public BehaviorEngine(World world) {
+        this(world, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an engine running all the creatures already in the world with
+     * their default behavior.
+     */
+    public static BehaviorEngine of(World world, ForkJoinPool pool) {
+        BehaviorEngine engine = new BehaviorEngine(world, pool);
+        for (AbstractCreature c : world.getCreatureList()) {
+            engine.batchOf(Behaviors.of(c)).add(c);
+        }
+        return engine;
+    }
+
+    public static BehaviorEngine of(World world) {
+        return of(world, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Adds a creature to the world, with its default behavior.
+     */
+    public void add(AbstractCreature creature) {
+        add(creature, Behaviors.of(creature));
+    }
+
+    public void add(AbstractCreature creature, Behavior behavior) {
+        world.addCreature(creature);
+        batchOf(behavior).add(creature);
+    }
+
+    /**
+     * Removes a creature from the world.
+     *
+     * @return false if the creature was not run by this engine
+     */
+    public boolean remove(AbstractCreature creature) {
+        for (Batch b : batches.values()) {
+            if (b.remove(creature)) {
+                world.getCreatureList().remove(creature);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Batch batchOf(Behavior behavior) {
+        Batch batch = batches.get(behavior);
+        if (batch == null) {
+            batch = new Batch(behavior);
+            batches.put(behavior, batch);
+        }
+        return batch;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public List<Batch> getBatches() {
+        return new ArrayList<Batch>(batches.values());
+    }
+
+    public StatisticsCollector getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @param statistics the collector fed at each tick, null to stop
+     *                   collecting
+     */
+    public void setStatistics(StatisticsCollector statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * One simulation step: the spatial index of the world is rebuilt, then
+     * each batch runs in turn.
+     *
+     * @return the statistics of the tick, null if no collector is set
+     */
+    public Statistics tick() {
+        List<AbstractCreature> creatures = world.getCreatureList();
+        world.getSpatialIndex().rebuild(creatures);
+        if (statistics != null) {
+            statistics.begin(creatures);
+        }
+
+        for (Batch b : batches.values()) {
+            b.load();
+            if (statistics != null || b.getBehavior().needsNeighbours()) {
+                gather(b);
+            }
+            b.steer();
+            b.store();
+        }
+
+        return statistics != null ? statistics.end() : null;
+    }
+
+    private void gather(Batch batch) {
+        int n = batch.size();
+        int tasks = Math.min(pool.getParallelism() * TASKS_PER_THREAD, n / (PARALLEL_THRESHOLD / TASKS_PER_THREAD));
+        if (n < PARALLEL_THRESHOLD || tasks < 2) {
+            Accumulator a = statistics != null ? statistics.newAccumulator() : null;
+            batch.gather(0, n, a, statistics);
+            if (a != null) {
+                statistics.collect(a);
+            }
+            return;
+        }
+
+        // the accumulators are handed out before forking, the collector is
+        // only used from this thread
+        Gather[] parts = new Gather[tasks];
+        for (int t = 0; t < tasks; t++) {
+            Accumulator a = statistics != null ? statistics.newAccumulator() : null;
+            parts[t] = new Gather(batch, (int) ((long) n * t / tasks), (int) ((long) n * (t + 1) / tasks), a);
+        }
+        pool.invoke(new GatherAll(parts));
+        if (statistics != null) {
+            for (Gather g : parts) {
+                statistics.collect(g.stats);
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class Gather extends RecursiveAction {
+        private final Batch batch;
+        private final int from;
+        private final int to;
+        private final Accumulator stats;
+
+        Gather(Batch batch, int from, int to, Accumulator stats) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+            this.stats = stats;
+        }
+
+        @Override
+        protected void compute() {
+            batch.gather(from, to, stats, statistics);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class GatherAll extends RecursiveAction {
+        private final Gather[] parts;
+
+        GatherAll(Gather[] parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(parts);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package creatures.behavior;
+
+import static java.lang.Math.PI;
+
+import creatures.AbstractCreature;
+import creatures.BouncingCreature;
+import creatures.SmartCreature;
+import creatures.StupidCreature;
+
+/**
+ * The behaviors of the predefined creatures expressed as steering steps.
+ */
+public final class Behaviors {
+
+    private Behaviors() {
+    }
+
+    /** {@link StupidCreature}: goes straight on. */
+    public static final Behavior STUPID = new Behavior("stupid", new Wander());
+
+    /** {@link BouncingCreature}: some noise now and then, bounces on the edges. */
+    public static final Behavior BOUNCING = new Behavior("bouncing",
+            new Noise(BouncingCreature.NUMBER_OF_CYCLES_PER_CHANGE,
+                    BouncingCreature.MIN_SPEED, BouncingCreature.MAX_SPEED, PI / 4),
+            new Bounce());
+
+    /** {@link SmartCreature}: aligns with the creatures around and keeps its distance. */
+    public static final Behavior SMART = new Behavior("smart",
+            new Alignment(SmartCreature.MIN_SPEED),
+            new Separation(SmartCreature.MIN_DIST),
+            new Wander());
+
+    /** Any other creature: its own {@link AbstractCreature#act()}. */
+    public static final Behavior ACT = new Behavior("act", new Act());
+
+    /**
+     * The behavior equivalent to the {@code act()} of the given creature.
+     * Subclasses of the predefined creatures may have changed it, so only the
+     * exact classes are recognized.
+     */
+    public static Behavior of(AbstractCreature creature) {
+        Class<?> type = creature.getClass();
+        if (type == SmartCreature.class) {
+            return SMART;
+        } else if (type == BouncingCreature.class) {
+            return BOUNCING;
+        } else if (type == StupidCreature.class) {
+            return STUPID;
+        }
+        return ACT;
+    }
+}
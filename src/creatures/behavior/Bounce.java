@@ -0,0 +1,44 @@
+package creatures.behavior;
+
+import creatures.AbstractCreature;
+import creatures.Position;
+import creatures.Topology;
+
+/**
+ * Moves each creature that is not blocked in a straight line at its speed,
+ * bouncing on the edges of the world whatever its topology, like
+ * {@link creatures.BouncingCreature#move()} does.
+ */
+public class Bounce implements ISteering {
+
+    public void steer(Batch batch) {
+        double[] speed = batch.speed;
+        double[] direction = batch.direction;
+        boolean[] blocked = batch.blocked;
+
+        Topology walls = null;
+        Position p = new Position();
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            if (blocked[i]) {
+                continue;
+            }
+            AbstractCreature c = batch.get(i);
+            Topology topology = c.getTopology();
+            if (topology.reflects()) {
+                walls = topology;
+            } else if (walls == null || walls.getWidth() != topology.getWidth()
+                    || walls.getHeight() != topology.getHeight()) {
+                walls = Topology.reflective(topology.getWidth(), topology.getHeight());
+            }
+            Wander.move(c, walls, speed[i], direction, i, p);
+        }
+    }
+
+    public boolean needsNeighbours() {
+        return false;
+    }
+
+    public String toString() {
+        return "Bounce";
+    }
+}
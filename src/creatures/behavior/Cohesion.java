@@ -0,0 +1,46 @@
+package creatures.behavior;
+
+import static java.lang.Math.PI;
+
+/**
+ * Turns each creature towards the center of the creatures it sees. The
+ * weight is the part of the angle to the center covered in one tick.
+ */
+public class Cohesion implements ISteering {
+
+    private final double weight;
+
+    public Cohesion(double weight) {
+        this.weight = weight;
+    }
+
+    public void steer(Batch batch) {
+        double[] direction = batch.direction;
+        int[] neighbours = batch.neighbours;
+        double[] offsetX = batch.neighbourOffsetX;
+        double[] offsetY = batch.neighbourOffsetY;
+
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            if (neighbours[i] == 0) {
+                continue;
+            }
+            // Y coordinates rise downwards
+            double toCenter = Math.atan2(- offsetY[i], offsetX[i]);
+            double turn = (toCenter - direction[i]) % (2 * PI);
+            if (turn > PI) {
+                turn -= 2 * PI;
+            } else if (turn < -PI) {
+                turn += 2 * PI;
+            }
+            direction[i] += weight * turn;
+        }
+    }
+
+    public boolean needsNeighbours() {
+        return true;
+    }
+
+    public String toString() {
+        return "Cohesion(" + weight + ")";
+    }
+}
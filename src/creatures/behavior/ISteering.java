@@ -0,0 +1,20 @@
+package creatures.behavior;
+
+/**
+ * One step of a {@link Behavior}, applied to a whole {@link Batch} of
+ * creatures at once. Implementations loop over the batch themselves so that
+ * the loop body is monomorphic and can be inlined by the JIT.
+ */
+public interface ISteering {
+
+    /**
+     * Applies the step to the creatures {@code 0} to {@code batch.size()}
+     * (excluded) of the batch.
+     */
+    public void steer(Batch batch);
+
+    /**
+     * @return true if the step uses the neighbourhood gathered in the batch
+     */
+    public boolean needsNeighbours();
+}
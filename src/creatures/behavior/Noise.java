@@ -0,0 +1,55 @@
+package creatures.behavior;
+
+import java.util.Random;
+
+/**
+ * Every {@code period} ticks, changes the speed by at most one pixel, within
+ * some boundaries, and the direction by at most {@code maxAngle}, like
+ * {@link creatures.BouncingCreature#applyNoise()} does.
+ */
+public class Noise implements ISteering {
+
+    private final int period;
+    private final double minSpeed;
+    private final double maxSpeed;
+    private final double maxAngle;
+    private final Random random;
+
+    /**
+     * @param random source of the noise, seeded for a reproducible run
+     */
+    public Noise(int period, double minSpeed, double maxSpeed, double maxAngle, Random random) {
+        this.period = period;
+        this.minSpeed = minSpeed;
+        this.maxSpeed = maxSpeed;
+        this.maxAngle = maxAngle;
+        this.random = random;
+    }
+
+    public Noise(int period, double minSpeed, double maxSpeed, double maxAngle) {
+        this(period, minSpeed, maxSpeed, maxAngle, new Random());
+    }
+
+    public void steer(Batch batch) {
+        double[] speed = batch.speed;
+        double[] direction = batch.direction;
+        int[] cycle = batch.cycle;
+
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            cycle[i] = (cycle[i] + 1) % period;
+            if (cycle[i] != 0) {
+                continue;
+            }
+            speed[i] = Math.max(minSpeed, Math.min(maxSpeed, speed[i] + random.nextDouble() * 2 - 1));
+            direction[i] += (random.nextDouble() * 2 - 1) * maxAngle;
+        }
+    }
+
+    public boolean needsNeighbours() {
+        return false;
+    }
+
+    public String toString() {
+        return "Noise(" + period + ")";
+    }
+}
@@ -0,0 +1,31 @@
+package creatures.behavior;
+
+/**
+ * Prevents a creature from moving when another one is closer than a minimal
+ * distance, like {@link creatures.SmartCreature} does.
+ */
+public class Separation implements ISteering {
+
+    private final double minDistance;
+
+    public Separation(double minDistance) {
+        this.minDistance = minDistance;
+    }
+
+    public void steer(Batch batch) {
+        boolean[] blocked = batch.blocked;
+        double[] nearest = batch.nearest;
+
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            blocked[i] |= nearest[i] <= minDistance;
+        }
+    }
+
+    public boolean needsNeighbours() {
+        return true;
+    }
+
+    public String toString() {
+        return "Separation(" + minDistance + ")";
+    }
+}
@@ -0,0 +1,64 @@
+package creatures.behavior;
+
+import static java.lang.Math.PI;
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+
+import creatures.AbstractCreature;
+import creatures.Position;
+import creatures.Topology;
+
+/**
+ * Moves each creature that is not blocked in a straight line at its speed,
+ * the edges behaving according to the topology of the world.
+ */
+public class Wander implements ISteering {
+
+    public void steer(Batch batch) {
+        double[] speed = batch.speed;
+        double[] direction = batch.direction;
+        boolean[] blocked = batch.blocked;
+
+        Position p = new Position();
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            if (blocked[i]) {
+                continue;
+            }
+            AbstractCreature c = batch.get(i);
+            move(c, c.getTopology(), speed[i], direction, i, p);
+        }
+    }
+
+    /**
+     * Moves a creature, constraining its position with the given topology and
+     * mirroring {@code direction[i]} when it reflects. The creature itself
+     * then receives a position that is already within the world.
+     */
+    static void move(AbstractCreature c, Topology topology, double speed,
+                     double[] direction, int i, Position p) {
+        Position position = c.getPosition();
+        // the reason there is a minus instead of a plus is that in our
+        // plane Y coordinates rises downwards
+        p.x = position.getX() + speed * cos(direction[i]);
+        p.y = position.getY() - speed * sin(direction[i]);
+
+        int crossed = topology.constrain(p);
+        if (crossed != 0 && topology.reflects()) {
+            if ((crossed & Topology.CROSSED_X) != 0) {
+                direction[i] = PI - direction[i];
+            }
+            if ((crossed & Topology.CROSSED_Y) != 0) {
+                direction[i] = - direction[i];
+            }
+        }
+        c.setPosition(p.x, p.y);
+    }
+
+    public boolean needsNeighbours() {
+        return false;
+    }
+
+    public String toString() {
+        return "Wander";
+    }
+}
@@ -1,4 +1,4 @@
-package creatures;
+package creatures.visual;
 
 import java.awt.BorderLayout;
 import java.awt.Dimension;
@@ -6,6 +6,8 @@ import java.awt.Dimension;
 import javax.swing.JFrame;
 import javax.swing.JTextArea;
 
+import creatures.AbstractCreature;
+
 @SuppressWarnings("serial")
 public class CreatureInspector extends JFrame {
 
@@ -0,0 +1,72 @@
+package creatures.visual;
+
+import static java.lang.Math.toDegrees;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+
+import creatures.AbstractCreature;
+
+/**
+ * Draws the creatures. Kept apart from {@link AbstractCreature} so that the
+ * simulation itself does not depend on AWT.
+ */
+public class CreaturePainter {
+
+    private final Arc2D.Double arc = new Arc2D.Double(Arc2D.PIE);
+
+    private Color color;
+
+    /**
+     * Draws creature to a given canvas, as an arc covering its field of view
+     * oriented towards its direction.
+     *
+     * @param g2
+     *            canvas where to draw the creature, its transform is restored
+     *            afterwards.
+     */
+    public void paint(Graphics2D g2, AbstractCreature creature) {
+        AffineTransform saved = g2.getTransform();
+        int size = creature.getSize();
+
+        // center the point
+        g2.translate(creature.getPosition().getX(), creature.getPosition().getY());
+        // center the surrounding rectangle
+        g2.translate(-size / 2, -size / 2);
+        // center the arc
+        // rotate towards the direction of our vector
+        g2.rotate(-creature.getDirection(), size / 2, size / 2);
+
+        // set the color
+        g2.setColor(new Color(creature.getColor(), true));
+        // we need to do PI - FOV since we want to mirror the arc
+        g2.fillArc(0, 0, size, size, (int) toDegrees(-creature.getFieldOfView() / 2),
+                (int) toDegrees(creature.getFieldOfView()));
+
+        g2.setTransform(saved);
+    }
+
+    /**
+     * Draws the same arc as {@link #paint(Graphics2D, AbstractCreature)}
+     * without touching the transform of the canvas, which must already map
+     * the world to the screen: the arc is oriented by its angles instead of a
+     * rotation.
+     */
+    public void paintShape(Graphics2D g2, AbstractCreature creature) {
+        double size = creature.getSize();
+        double fov = toDegrees(creature.getFieldOfView());
+
+        // the angles of Arc2D go counterclockwise on screen, like the
+        // directions of the creatures
+        arc.setArc(creature.getPosition().getX() - size / 2, creature.getPosition().getY() - size / 2,
+                size, size, toDegrees(creature.getDirection()) - fov / 2, fov, Arc2D.PIE);
+
+        if (color == null || color.getRGB() != creature.getColor()) {
+            color = new Color(creature.getColor(), true);
+        }
+        g2.setColor(color);
+        g2.fill(arc);
+    }
+}
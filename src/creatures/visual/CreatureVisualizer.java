@@ -0,0 +1,175 @@
+package creatures.visual;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Point2D;
+
+import javax.swing.JPanel;
+import javax.swing.Timer;
+
+import creatures.AbstractCreature;
+import creatures.Position;
+import simulator.TickScheduler;
+import simulator.World;
+
+/**
+ * Swing view of a {@link World}: ticks the world periodically and paints the
+ * creatures seen through its {@link Viewport}, initially centered on the
+ * origin. Dragging pans, the mouse wheel zooms, the {@code M} key cycles
+ * through the {@link ViewportRenderer.Mode}s and a click shows the closest
+ * creature in the {@link CreatureInspector}.
+ */
+@SuppressWarnings("serial")
+public class CreatureVisualizer extends JPanel {
+
+    private final World world;
+
+    /** Screen zoom factor of one notch of the mouse wheel. */
+    private static final double WHEEL_ZOOM = 1.25;
+
+    private final ViewportRenderer renderer = new ViewportRenderer();
+
+    private final Viewport viewport;
+
+    private final Timer timer;
+
+    private CreatureInspector inspector;
+
+    private TickScheduler scheduler;
+
+    public CreatureVisualizer(World world, int executionDelay) {
+        this.world = world;
+        Dimension size = getPreferredSize();
+        this.viewport = new Viewport(size.width, size.height);
+        setPreferredSize(size);
+
+        timer = new Timer(executionDelay, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                tick();
+                repaint();
+            }
+        });
+
+        MouseAdapter mouse = new MouseAdapter() {
+            private int lastX;
+            private int lastY;
+
+            public void mousePressed(MouseEvent e) {
+                lastX = e.getX();
+                lastY = e.getY();
+            }
+
+            public void mouseDragged(MouseEvent e) {
+                viewport.pan(e.getX() - lastX, e.getY() - lastY);
+                lastX = e.getX();
+                lastY = e.getY();
+                repaint();
+            }
+
+            public void mouseClicked(MouseEvent e) {
+                requestFocusInWindow();
+                handleMouseClicked(e);
+            }
+
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                viewport.zoomAt(Math.pow(WHEEL_ZOOM, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+                repaint();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+
+        setFocusable(true);
+        addKeyListener(new KeyAdapter() {
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_M) {
+                    ViewportRenderer.Mode[] modes = ViewportRenderer.Mode.values();
+                    renderer.setMode(modes[(renderer.getMode().ordinal() + 1) % modes.length]);
+                    repaint();
+                }
+            }
+        });
+    }
+
+    public void start() {
+        timer.start();
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+
+    public void setInspector(CreatureInspector inspector) {
+        this.inspector = inspector;
+    }
+
+    /**
+     * @param scheduler ticks the world within a time budget, null to tick
+     *                  every creature at each tick
+     */
+    public void setScheduler(TickScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public Viewport getViewport() {
+        return viewport;
+    }
+
+    private void tick() {
+        if (scheduler == null) {
+            world.tick();
+            return;
+        }
+        viewport.setScreenSize(getWidth(), getHeight());
+        scheduler.setViewport(viewport.getMinX(), viewport.getMinY(), viewport.getMaxX(), viewport.getMaxY());
+        scheduler.tick();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        viewport.setScreenSize(getWidth(), getHeight());
+        renderer.paint(g2, viewport, world);
+
+        g2.dispose();
+    }
+
+    private void handleMouseClicked(MouseEvent e) {
+        if (inspector == null) {
+            return;
+        }
+
+        Point2D p = viewport.toWorld(e.getX(), e.getY());
+        Position clicked = new Position(p.getX(), p.getY());
+        AbstractCreature closest = null;
+        double min = Double.MAX_VALUE;
+        for (AbstractCreature c : world.getCreatureList()) {
+            double d = c.distanceFromAPoint(clicked);
+            if (d < min) {
+                min = d;
+                closest = c;
+            }
+        }
+
+        inspector.setCreature(closest);
+        inspector.setVisible(true);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension((int) world.getWidth(), (int) world.getHeight());
+    }
+}
@@ -0,0 +1,179 @@
+package creatures.visual;
+
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import creatures.AbstractCreature;
+
+/**
+ * Number of creatures, and sum of their velocities, per cell of a grid laid
+ * over the visible part of the world. The cells have a fixed size on screen,
+ * so the resolution of the grid in the world follows the zoom.
+ *
+ * Large populations are binned in parallel, each task filling its own
+ * histograms which are summed when the tasks join.
+ */
+public class DensityGrid {
+
+    /** Below that many creatures they are binned sequentially. */
+    private static final int PARALLEL_THRESHOLD = 1 << 15;
+
+    private final ForkJoinPool pool;
+
+    private int cols;
+    private int rows;
+    private double minX;
+    private double minY;
+    private double cellSize;
+
+    private Histogram histogram;
+
+    /**
+     * Per cell sums, one array each so that merging is a loop over arrays.
+     */
+    static class Histogram {
+        final int[] count;
+        final double[] vx;
+        final double[] vy;
+
+        Histogram(int cells) {
+            count = new int[cells];
+            vx = new double[cells];
+            vy = new double[cells];
+        }
+
+        void add(Histogram other) {
+            for (int i = 0; i < count.length; i++) {
+                count[i] += other.count[i];
+                vx[i] += other.vx[i];
+                vy[i] += other.vy[i];
+            }
+        }
+    }
+
+    public DensityGrid(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public DensityGrid() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Bins the creatures seen through the viewport in cells of
+     * {@code cellPixels} screen pixels.
+     */
+    public void bin(List<? extends AbstractCreature> creatures, Viewport viewport, int cellPixels) {
+        cols = Math.max(1, (viewport.getScreenWidth() + cellPixels - 1) / cellPixels);
+        rows = Math.max(1, (viewport.getScreenHeight() + cellPixels - 1) / cellPixels);
+        minX = viewport.getMinX();
+        minY = viewport.getMinY();
+        cellSize = cellPixels / viewport.getZoom();
+
+        if (creatures.size() > PARALLEL_THRESHOLD) {
+            histogram = pool.invoke(new Bin(creatures, 0, creatures.size()));
+        } else {
+            histogram = bin(creatures, 0, creatures.size());
+        }
+    }
+
+    private Histogram bin(List<? extends AbstractCreature> creatures, int from, int to) {
+        Histogram h = new Histogram(cols * rows);
+        double scale = 1 / cellSize;
+        for (int i = from; i < to; i++) {
+            AbstractCreature c = creatures.get(i);
+            double x = c.getPosition().getX();
+            double y = c.getPosition().getY();
+            int col = (int) Math.floor((x - minX) * scale);
+            int row = (int) Math.floor((y - minY) * scale);
+            if (col < 0 || col >= cols || row < 0 || row >= rows) {
+                continue;
+            }
+            int cell = row * cols + col;
+            double speed = c.getSpeed();
+            double direction = c.getDirection();
+            h.count[cell]++;
+            h.vx[cell] += speed * cos(direction);
+            // Y coordinates rise downwards
+            h.vy[cell] -= speed * sin(direction);
+        }
+        return h;
+    }
+
+    @SuppressWarnings("serial")
+    private class Bin extends RecursiveTask<Histogram> {
+        private final List<? extends AbstractCreature> creatures;
+        private final int from;
+        private final int to;
+
+        Bin(List<? extends AbstractCreature> creatures, int from, int to) {
+            this.creatures = creatures;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Histogram compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return bin(creatures, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            Bin right = new Bin(creatures, mid, to);
+            right.fork();
+            Histogram h = new Bin(creatures, from, mid).compute();
+            h.add(right.join());
+            return h;
+        }
+    }
+
+    public int getColumns() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCount(int col, int row) {
+        return histogram.count[row * cols + col];
+    }
+
+    /**
+     * @return the mean screen velocity of the creatures of the cell along X
+     */
+    public double getMeanVelocityX(int col, int row) {
+        int cell = row * cols + col;
+        return histogram.count[cell] == 0 ? 0 : histogram.vx[cell] / histogram.count[cell];
+    }
+
+    /**
+     * @return the mean screen velocity of the creatures of the cell along Y
+     */
+    public double getMeanVelocityY(int col, int row) {
+        int cell = row * cols + col;
+        return histogram.count[cell] == 0 ? 0 : histogram.vy[cell] / histogram.count[cell];
+    }
+
+    public int getMaxCount() {
+        int max = 0;
+        for (int i = 0, n = cols * rows; i < n; i++) {
+            max = Math.max(max, histogram.count[i]);
+        }
+        return max;
+    }
+
+    /**
+     * @return the total number of creatures binned
+     */
+    public int getTotal() {
+        int total = 0;
+        for (int i = 0, n = cols * rows; i < n; i++) {
+            total += histogram.count[i];
+        }
+        return total;
+    }
+}
@@ -0,0 +1,151 @@
+package creatures.visual;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.List;
+
+import creatures.AbstractCreature;
+
+/**
+ * Paints the density of the creatures seen through a {@link Viewport} as a
+ * heatmap of {@link DensityGrid} cells, with arrows along the mean velocity
+ * of the creatures. Small cells are grouped in square blocks for the arrows,
+ * so that they remain readable. Once the creatures are binned, the cost only
+ * depends on the size of the screen.
+ */
+public class HeatmapRenderer {
+
+    /** Size of the cells in screen pixels. */
+    public static final int DEFAULT_CELL_PIXELS = 8;
+
+    /** Smallest side of the blocks of cells with an arrow, in screen pixels. */
+    public static final int MIN_ARROW_CELL = 12;
+
+    /** Speed drawn as an arrow of the full cell size. */
+    private static final double FULL_SPEED = 10;
+
+    /** Colors from empty to densest: black, blue, red, yellow, white. */
+    private static final int[] STOPS = { 0x000000, 0x2020C0, 0xD02020, 0xF0E020, 0xFFFFFF };
+
+    private static final int[] PALETTE = palette(256);
+
+    private final DensityGrid grid;
+
+    private int cellPixels = DEFAULT_CELL_PIXELS;
+
+    private BufferedImage image;
+
+    private final Line2D.Double line = new Line2D.Double();
+
+    public HeatmapRenderer(DensityGrid grid) {
+        this.grid = grid;
+    }
+
+    public HeatmapRenderer() {
+        this(new DensityGrid());
+    }
+
+    public void setCellPixels(int cellPixels) {
+        this.cellPixels = Math.max(1, cellPixels);
+    }
+
+    public DensityGrid getGrid() {
+        return grid;
+    }
+
+    private static int[] palette(int size) {
+        int[] palette = new int[size];
+        for (int i = 0; i < size; i++) {
+            double t = i * (STOPS.length - 1) / (double) (size - 1);
+            int s = Math.min((int) t, STOPS.length - 2);
+            double f = t - s;
+            int rgb = 0;
+            for (int shift = 0; shift <= 16; shift += 8) {
+                int a = (STOPS[s] >> shift) & 0xFF;
+                int b = (STOPS[s + 1] >> shift) & 0xFF;
+                rgb |= ((int) Math.round(a + (b - a) * f)) << shift;
+            }
+            palette[i] = 0xFF000000 | rgb;
+        }
+        return palette;
+    }
+
+    public void paint(Graphics2D g2, Viewport viewport, List<? extends AbstractCreature> creatures) {
+        grid.bin(creatures, viewport, cellPixels);
+        int cols = grid.getColumns();
+        int rows = grid.getRows();
+
+        if (image == null || image.getWidth() != cols || image.getHeight() != rows) {
+            image = new BufferedImage(cols, rows, BufferedImage.TYPE_INT_ARGB);
+        }
+        int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+        // logarithmic scale, so that the sparse areas remain visible
+        double scale = (PALETTE.length - 1) / Math.log1p(Math.max(1, grid.getMaxCount()));
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int level = (int) (Math.log1p(grid.getCount(col, row)) * scale);
+                data[row * cols + col] = PALETTE[level];
+            }
+        }
+        g2.drawImage(image, 0, 0, cols * cellPixels, rows * cellPixels, null);
+
+        paintArrows(g2, cols, rows);
+    }
+
+    /**
+     * One arrow per block of {@code k * k} cells, {@code k} being the
+     * smallest number of cells at least {@link #MIN_ARROW_CELL} pixels wide.
+     */
+    private void paintArrows(Graphics2D g2, int cols, int rows) {
+        g2.setColor(Color.WHITE);
+        g2.setStroke(new BasicStroke(1));
+        int k = (MIN_ARROW_CELL + cellPixels - 1) / cellPixels;
+        int blockPixels = k * cellPixels;
+        double half = blockPixels / 2.0;
+        for (int row0 = 0; row0 < rows; row0 += k) {
+            for (int col0 = 0; col0 < cols; col0 += k) {
+                int count = 0;
+                double vx = 0;
+                double vy = 0;
+                for (int row = row0; row < Math.min(row0 + k, rows); row++) {
+                    for (int col = col0; col < Math.min(col0 + k, cols); col++) {
+                        int n = grid.getCount(col, row);
+                        count += n;
+                        vx += grid.getMeanVelocityX(col, row) * n;
+                        vy += grid.getMeanVelocityY(col, row) * n;
+                    }
+                }
+                if (count == 0) {
+                    continue;
+                }
+                vx /= count;
+                vy /= count;
+                double length = Math.min(1, Math.hypot(vx, vy) / FULL_SPEED) * half;
+                double norm = Math.hypot(vx, vy);
+                if (norm == 0 || length < 1) {
+                    continue;
+                }
+                double cx = col0 * cellPixels + half;
+                double cy = row0 * cellPixels + half;
+                double ux = vx / norm;
+                double uy = vy / norm;
+                double tx = cx + ux * length;
+                double ty = cy + uy * length;
+
+                line.setLine(cx - ux * length, cy - uy * length, tx, ty);
+                g2.draw(line);
+                // head
+                double head = Math.max(2, length / 2);
+                line.setLine(tx, ty, tx - head * (ux - uy * 0.5), ty - head * (uy + ux * 0.5));
+                g2.draw(line);
+                line.setLine(tx, ty, tx - head * (ux + uy * 0.5), ty - head * (uy - ux * 0.5));
+                g2.draw(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package creatures.visual;
+
+import java.awt.BorderLayout;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+import javax.swing.JFrame;
+
+import creatures.CreatureBuilder;
+import simulator.TickScheduler;
+import simulator.World;
+
+/**
+ * Just a simple test of the simulator.
+ *
+ */
+@SuppressWarnings("serial")
+public class Launcher extends JFrame {
+
+    private final CreatureVisualizer visualizer;
+
+    public Launcher() {
+        World world = new World(640, 480);
+        world.addCreatures(new CreatureBuilder().createCreatures(world, 20));
+
+        visualizer = new CreatureVisualizer(world, 10);
+        visualizer.setInspector(new CreatureInspector());
+        // leave some of the 10 ms of a tick to the painting
+        visualizer.setScheduler(new TickScheduler(world, 8000000));
+
+        setName("Creature Simulator");
+        setSize(640, 480);
+        setLayout(new BorderLayout());
+
+        add(visualizer, BorderLayout.CENTER);
+        pack();
+
+        addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent evt) {
+                exit(evt);
+            }
+        });
+    }
+
+    private void exit(WindowEvent evt) {
+        System.exit(0);
+    }
+
+    public static void main(String args[]) {
+        Launcher launcher = new Launcher();
+        launcher.setVisible(true);
+        launcher.visualizer.start();
+    }
+
+}
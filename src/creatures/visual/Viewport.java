@@ -0,0 +1,121 @@
+package creatures.visual;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+
+/**
+ * Camera of the views: the point of the world shown at the center of the
+ * screen and the zoom, in screen pixels per world pixel.
+ */
+public class Viewport {
+
+    public static final double MIN_ZOOM = 1 / 64.0;
+    public static final double MAX_ZOOM = 64;
+
+    private double centerX;
+    private double centerY;
+    private double zoom = 1;
+
+    private int screenWidth;
+    private int screenHeight;
+
+    public Viewport(int screenWidth, int screenHeight) {
+        setScreenSize(screenWidth, screenHeight);
+    }
+
+    public void setScreenSize(int width, int height) {
+        this.screenWidth = width;
+        this.screenHeight = height;
+    }
+
+    public int getScreenWidth() {
+        return screenWidth;
+    }
+
+    public int getScreenHeight() {
+        return screenHeight;
+    }
+
+    public double getCenterX() {
+        return centerX;
+    }
+
+    public double getCenterY() {
+        return centerY;
+    }
+
+    public double getZoom() {
+        return zoom;
+    }
+
+    public void setCenter(double x, double y) {
+        this.centerX = x;
+        this.centerY = y;
+    }
+
+    public void setZoom(double zoom) {
+        this.zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom));
+    }
+
+    /**
+     * Moves the camera so that the world follows a drag of the given number
+     * of screen pixels.
+     */
+    public void pan(double dx, double dy) {
+        centerX -= dx / zoom;
+        centerY -= dy / zoom;
+    }
+
+    /**
+     * Zooms by {@code factor} keeping the world point under the given screen
+     * point where it is.
+     */
+    public void zoomAt(double factor, double screenX, double screenY) {
+        Point2D before = toWorld(screenX, screenY);
+        setZoom(zoom * factor);
+        Point2D after = toWorld(screenX, screenY);
+        centerX += before.getX() - after.getX();
+        centerY += before.getY() - after.getY();
+    }
+
+    public Point2D toWorld(double screenX, double screenY) {
+        return new Point2D.Double(centerX + (screenX - screenWidth / 2.0) / zoom,
+                centerY + (screenY - screenHeight / 2.0) / zoom);
+    }
+
+    public double toScreenX(double x) {
+        return (x - centerX) * zoom + screenWidth / 2.0;
+    }
+
+    public double toScreenY(double y) {
+        return (y - centerY) * zoom + screenHeight / 2.0;
+    }
+
+    /**
+     * @return the transform from the world to the screen
+     */
+    public AffineTransform getTransform() {
+        AffineTransform t = AffineTransform.getTranslateInstance(screenWidth / 2.0, screenHeight / 2.0);
+        t.scale(zoom, zoom);
+        t.translate(-centerX, -centerY);
+        return t;
+    }
+
+    // visible part of the world
+
+    public double getMinX() {
+        return centerX - screenWidth / 2.0 / zoom;
+    }
+
+    public double getMaxX() {
+        return centerX + screenWidth / 2.0 / zoom;
+    }
+
+    public double getMinY() {
+        return centerY - screenHeight / 2.0 / zoom;
+    }
+
+    public double getMaxY() {
+        return centerY + screenHeight / 2.0 / zoom;
+    }
+}
@@ -0,0 +1,171 @@
+package creatures.visual;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import creatures.AbstractCreature;
+import creatures.Topology;
+import simulator.World;
+
+/**
+ * Paints the part of a {@link World} seen through a {@link Viewport}.
+ *
+ * Only the creatures of the visible rectangle are painted, found with the
+ * spatial index of the world. When zoomed in, they are drawn as arcs with
+ * the transform of the viewport set once for the whole frame; when a
+ * creature would be smaller than {@link #POINT_SIZE} screen pixels they are
+ * plotted as single pixels in an image drawn at once, or, for large
+ * populations, aggregated in a heatmap (see {@link Mode}).
+ */
+public class ViewportRenderer {
+
+    /** How the creatures are drawn. */
+    public enum Mode {
+        /** Depending on the zoom and the number of creatures. */
+        AUTO,
+        /** Arcs covering their field of view. */
+        SHAPES,
+        /** One pixel per creature. */
+        PIXELS,
+        /** Density and mean velocity per cell, see {@link HeatmapRenderer}. */
+        HEATMAP
+    }
+
+    /** Screen size under which the creatures are drawn as pixels. */
+    public static final double POINT_SIZE = 4;
+
+    /**
+     * Number of creatures in the world above which the {@link Mode#AUTO}
+     * mode paints a heatmap rather than pixels.
+     */
+    public static final int HEATMAP_THRESHOLD = 50000;
+
+    /**
+     * Extra world distance around the visible rectangle: the spatial index
+     * holds the positions of the beginning of the tick, the creatures may
+     * have moved since.
+     */
+    private static final double MOVE_MARGIN = 20;
+
+    private final CreaturePainter painter = new CreaturePainter();
+
+    private final List<AbstractCreature> visible = new ArrayList<AbstractCreature>();
+
+    private final HeatmapRenderer heatmap = new HeatmapRenderer();
+
+    private BufferedImage pixels;
+
+    private Mode mode = Mode.AUTO;
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * @return the number of creatures painted one by one by the last
+     *         frame, none for a heatmap
+     */
+    public int getPainted() {
+        return visible.size();
+    }
+
+    public void paint(Graphics2D g2, Viewport viewport, World world) {
+        Mode m = mode;
+        if (m == Mode.AUTO) {
+            double size = AbstractCreature.DEFAULT_SIZE * viewport.getZoom();
+            if (size >= POINT_SIZE) {
+                m = Mode.SHAPES;
+            } else if (world.getCreatureList().size() > HEATMAP_THRESHOLD) {
+                m = Mode.HEATMAP;
+            } else {
+                m = Mode.PIXELS;
+            }
+        }
+
+        if (m == Mode.HEATMAP) {
+            // the binning skips the creatures out of sight by itself
+            visible.clear();
+            heatmap.paint(g2, viewport, world.getCreatureList());
+            return;
+        }
+        collect(viewport, world);
+        if (m == Mode.PIXELS) {
+            paintPixels(g2, viewport);
+        } else {
+            paintShapes(g2, viewport);
+        }
+    }
+
+    /**
+     * Fills {@link #visible} with the creatures intersecting the viewport.
+     */
+    private void collect(Viewport viewport, World world) {
+        visible.clear();
+        double half = AbstractCreature.DEFAULT_SIZE / 2.0;
+        double minX = viewport.getMinX() - half;
+        double maxX = viewport.getMaxX() + half;
+        double minY = viewport.getMinY() - half;
+        double maxY = viewport.getMaxY() + half;
+
+        // circle around the rectangle, the index only knows about circles
+        double radius = Math.hypot(maxX - minX, maxY - minY) / 2 + MOVE_MARGIN;
+        Topology topology = world.getTopology();
+        List<AbstractCreature> candidates;
+        if (radius >= Math.min(topology.getHalfWidth(), topology.getHalfHeight())) {
+            // zoomed out on most of the world: the index has nothing to skip,
+            // and a disc wider than the world would meet its images twice
+            candidates = world.getCreatureList();
+        } else {
+            candidates = new ArrayList<AbstractCreature>();
+            world.getSpatialIndex().within(viewport.getCenterX(), viewport.getCenterY(), radius, null,
+                    candidates);
+        }
+
+        for (AbstractCreature c : candidates) {
+            double x = c.getPosition().getX();
+            double y = c.getPosition().getY();
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                visible.add(c);
+            }
+        }
+    }
+
+    private void paintShapes(Graphics2D g2, Viewport viewport) {
+        Graphics2D g = (Graphics2D) g2.create();
+        g.transform(viewport.getTransform());
+        for (AbstractCreature c : visible) {
+            painter.paintShape(g, c);
+        }
+        g.dispose();
+    }
+
+    private void paintPixels(Graphics2D g2, Viewport viewport) {
+        int w = viewport.getScreenWidth();
+        int h = viewport.getScreenHeight();
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+        if (pixels == null || pixels.getWidth() != w || pixels.getHeight() != h) {
+            pixels = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        }
+        int[] data = ((DataBufferInt) pixels.getRaster().getDataBuffer()).getData();
+        Arrays.fill(data, 0);
+
+        for (AbstractCreature c : visible) {
+            int x = (int) viewport.toScreenX(c.getPosition().getX());
+            int y = (int) viewport.toScreenY(c.getPosition().getY());
+            if (x >= 0 && x < w && y >= 0 && y < h) {
+                data[y * w + x] = c.getColor() | 0xFF000000;
+            }
+        }
+        g2.drawImage(pixels, 0, 0, null);
+    }
+}
@@ -0,0 +1,398 @@
+package simulator;
+
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+import static java.lang.Math.sqrt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import creatures.AbstractCreature;
+import creatures.BouncingCreature;
+import creatures.Topology;
+import simulator.spatial.UniformGrid;
+
+/**
+ * Event-driven simulation of {@link BouncingCreature}s.
+ *
+ * Between two events a bouncing creature goes in a straight line, so instead
+ * of checking the walls at every cycle the simulator computes when the next
+ * bounce, the next noise application and the next entry of a creature in the
+ * vision range of another one will happen, keeps them in a priority queue and
+ * jumps directly from one event to the next one. Positions are only brought up
+ * to date for the creatures concerned by an event, and for all of them at the
+ * start of each window and at the end of {@link #advanceTo(double)}.
+ *
+ * Vision events are only looked for between creatures that may meet soon:
+ * the time is cut in windows of a few cycles, and at the start of each one
+ * the pairs of creatures close enough to meet before its end are found with
+ * a {@link UniformGrid}. A trajectory change then only reschedules the vision
+ * events of the creature with these candidates. The events made stale by the
+ * trajectory changes are dropped whenever the queue has doubled since the
+ * last time.
+ *
+ * The time unit is the cycle, i.e. one call to {@link BouncingCreature#act()}:
+ * {@code advanceTo(t)} from the start leaves the creatures as {@code t} calls
+ * to {@code act()} would, and {@code act()} carries on from there.
+ */
+public class EventDrivenSimulator {
+
+    /**
+     * Gets notified when a creature enters the vision range of another one.
+     */
+    public interface VisionListener {
+        public void creatureSeen(AbstractCreature observer, AbstractCreature seen, double time);
+    }
+
+    /** Length in cycles of the windows of {@link #EventDrivenSimulator(List)}. */
+    public static final double DEFAULT_WINDOW = 10;
+
+    /** Below that many events the queue is not worth compacting. */
+    private static final int MIN_COMPACTION = 64;
+
+    private final List<BouncingCreature> creatures;
+
+    private PriorityQueue<SimulationEvent> queue = new PriorityQueue<SimulationEvent>();
+
+    /** Time up to which each creature position is up to date. */
+    private final double[] updated;
+
+    /** Incremented every time the trajectory of a creature changes. */
+    private final int[] stamps;
+
+    private final double window;
+
+    /** End of the current window, vision events are only scheduled before it. */
+    private double windowEnd;
+
+    /** Fastest speed the candidates of the current window allow for. */
+    private double maxSpeed;
+
+    /** Positions at the start of the window, within the walls of the world. */
+    private UniformGrid grid;
+
+    /** Candidates of creature i, from candidateStart[i] to candidateStart[i + 1]. */
+    private int[] candidates = new int[64];
+    private final int[] candidateStart;
+
+    /** Size of the queue after its last compaction. */
+    private int compacted;
+
+    private VisionListener visionListener;
+
+    private double time;
+
+    /** Whole cycles already counted by the creatures. */
+    private long cycles;
+
+    private long processedEvents;
+
+    /**
+     * @param window length of the windows in cycles: a longer window means
+     *               fewer searches for the candidates, but more candidates
+     */
+    public EventDrivenSimulator(List<BouncingCreature> creatures, double window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        this.creatures = new ArrayList<BouncingCreature>(creatures);
+        this.updated = new double[creatures.size()];
+        this.stamps = new int[creatures.size()];
+        this.candidateStart = new int[creatures.size() + 1];
+        this.window = window;
+
+        for (int i = 0; i < this.creatures.size(); i++) {
+            scheduleNoise(i, this.creatures.get(i).cyclesBeforeNoise());
+        }
+        reindex();
+    }
+
+    public EventDrivenSimulator(List<BouncingCreature> creatures) {
+        this(creatures, DEFAULT_WINDOW);
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public long getProcessedEvents() {
+        return processedEvents;
+    }
+
+    /**
+     * Number of events in the queue, stale ones included.
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public void setVisionListener(VisionListener visionListener) {
+        this.visionListener = visionListener;
+    }
+
+    /**
+     * Equivalent of one uniform simulation step.
+     */
+    public void tick() {
+        advanceTo(time + 1);
+    }
+
+    /**
+     * Processes all the events before the given time and then moves all the
+     * creatures to that time. The events of that very time happen at the
+     * start of the next cycle, as they would in {@link BouncingCreature#act()}.
+     */
+    public void advanceTo(double target) {
+        while (!queue.isEmpty() && queue.peek().getTime() < target) {
+            process(queue.poll());
+        }
+
+        time = Math.max(time, target);
+        long whole = (long) Math.floor(time);
+        for (int i = 0; i < creatures.size(); i++) {
+            update(i);
+            creatures.get(i).countCycles(whole - cycles);
+        }
+        cycles = whole;
+    }
+
+    /**
+     * Jumps to the next valid event and processes it.
+     *
+     * @return false if there is no more event to process
+     */
+    public boolean step() {
+        while (!queue.isEmpty()) {
+            SimulationEvent event = queue.poll();
+            if (isLive(event)) {
+                process(event);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A reindex done early leaves the event of the window it cut short
+     * behind.
+     */
+    private boolean isLive(SimulationEvent event) {
+        return event.isValid(stamps)
+                && (event.getType() != SimulationEvent.Type.REINDEX || event.getTime() == windowEnd);
+    }
+
+    private void process(SimulationEvent event) {
+        if (!isLive(event)) {
+            return;
+        }
+
+        time = Math.max(time, event.getTime());
+        processedEvents++;
+        int i = event.getCreature();
+
+        switch (event.getType()) {
+        case BOUNCE:
+            update(i);
+            creatures.get(i).bounce();
+            trajectoryChanged(i);
+            break;
+        case NOISE:
+            update(i);
+            creatures.get(i).perturb();
+            scheduleNoise(i, BouncingCreature.getCyclesPerChange());
+            trajectoryChanged(i);
+            break;
+        case VISION:
+            int j = event.getOther();
+            update(i);
+            update(j);
+            if (visionListener != null) {
+                visionListener.creatureSeen(creatures.get(i), creatures.get(j), time);
+            }
+            break;
+        case REINDEX:
+            reindex();
+            break;
+        }
+    }
+
+    /**
+     * Brings the position of the i-th creature up to the current time.
+     */
+    private void update(int i) {
+        double dt = time - updated[i];
+        if (dt > 0) {
+            creatures.get(i).advance(dt);
+        }
+        updated[i] = time;
+    }
+
+    /**
+     * Position of the i-th creature at the current time, without moving it.
+     */
+    private double x(int i) {
+        BouncingCreature c = creatures.get(i);
+        return c.getPosition().getX() + c.getSpeed() * cos(c.getDirection()) * (time - updated[i]);
+    }
+
+    private double y(int i) {
+        BouncingCreature c = creatures.get(i);
+        return c.getPosition().getY() - c.getSpeed() * sin(c.getDirection()) * (time - updated[i]);
+    }
+
+    private void trajectoryChanged(int i) {
+        stamps[i]++;
+        scheduleBounce(i);
+        if (creatures.get(i).getSpeed() > maxSpeed) {
+            // the candidates do not allow for that speed
+            reindex();
+            return;
+        }
+        for (int k = candidateStart[i]; k < candidateStart[i + 1]; k++) {
+            scheduleVision(i, candidates[k]);
+        }
+        if (queue.size() > Math.max(MIN_COMPACTION, 2 * compacted)) {
+            compact();
+        }
+    }
+
+    /**
+     * Starts a new window: every creature is brought up to date and gets a
+     * new trajectory stamp, then the pairs of creatures that may meet before
+     * the end of the window get their vision events. Two creatures moving at
+     * most at {@code maxSpeed} get closer by at most twice that per cycle.
+     */
+    private void reindex() {
+        windowEnd = time + window;
+        if (creatures.isEmpty()) {
+            return;
+        }
+
+        maxSpeed = BouncingCreature.MAX_SPEED;
+        double maxVision = 0;
+        for (int i = 0; i < creatures.size(); i++) {
+            BouncingCreature c = creatures.get(i);
+            update(i);
+            stamps[i]++;
+            scheduleBounce(i);
+            maxSpeed = Math.max(maxSpeed, c.getSpeed());
+            maxVision = Math.max(maxVision, c.getVisionDistance());
+        }
+        double reach = maxVision + 2 * maxSpeed * window;
+
+        if (grid == null) {
+            // the walls of the world, the vision events do not wrap
+            Topology topology = creatures.get(0).getTopology();
+            grid = new UniformGrid(Topology.bounded(topology.getWidth(), topology.getHeight()), reach);
+        }
+        grid.rebuild(creatures);
+
+        List<AbstractCreature> around = new ArrayList<AbstractCreature>();
+        int size = 0;
+        for (int i = 0; i < creatures.size(); i++) {
+            candidateStart[i] = size;
+            around.clear();
+            grid.within(x(i), y(i), reach, null, around);
+            for (AbstractCreature c : around) {
+                // the grid was just rebuilt from the same list
+                int j = c.getIndex();
+                if (j == i) {
+                    continue;
+                }
+                if (size == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, size * 2);
+                }
+                candidates[size++] = j;
+                if (j > i) {
+                    scheduleVision(i, j);
+                }
+            }
+        }
+        candidateStart[creatures.size()] = size;
+
+        queue.add(new SimulationEvent(SimulationEvent.Type.REINDEX, windowEnd, -1, 0, -1, 0));
+        compact();
+    }
+
+    /**
+     * Drops the stale events.
+     */
+    private void compact() {
+        List<SimulationEvent> live = new ArrayList<SimulationEvent>(queue.size());
+        for (SimulationEvent event : queue) {
+            if (isLive(event)) {
+                live.add(event);
+            }
+        }
+        queue = new PriorityQueue<SimulationEvent>(live);
+        compacted = queue.size();
+    }
+
+    private void scheduleNoise(int i, double delay) {
+        queue.add(new SimulationEvent(SimulationEvent.Type.NOISE, time + delay,
+                i, stamps[i], -1, 0));
+    }
+
+    private void scheduleBounce(int i) {
+        double delay = creatures.get(i).timeBeforeBounce();
+        if (delay != Double.POSITIVE_INFINITY) {
+            queue.add(new SimulationEvent(SimulationEvent.Type.BOUNCE, time + delay,
+                    i, stamps[i], -1, 0));
+        }
+    }
+
+    /**
+     * Schedules the entries of i in the vision range of j and of j in the
+     * vision range of i, if they happen before the end of the window.
+     */
+    private void scheduleVision(int i, int j) {
+        BouncingCreature a = creatures.get(i);
+        BouncingCreature b = creatures.get(j);
+
+        // relative position and velocity of b seen from a
+        double dx = x(j) - x(i);
+        double dy = y(j) - y(i);
+        double wx = b.getSpeed() * cos(b.getDirection()) - a.getSpeed() * cos(a.getDirection());
+        double wy = - b.getSpeed() * sin(b.getDirection()) + a.getSpeed() * sin(a.getDirection());
+
+        double delay = timeBeforeDistance(dx, dy, wx, wy, a.getVisionDistance());
+        if (time + delay < windowEnd) {
+            queue.add(new SimulationEvent(SimulationEvent.Type.VISION, time + delay,
+                    i, stamps[i], j, stamps[j]));
+        }
+        delay = timeBeforeDistance(dx, dy, wx, wy, b.getVisionDistance());
+        if (time + delay < windowEnd) {
+            queue.add(new SimulationEvent(SimulationEvent.Type.VISION, time + delay,
+                    j, stamps[j], i, stamps[i]));
+        }
+    }
+
+    /**
+     * Smallest positive t such that |d + w.t| = r, when starting outside of
+     * the circle of radius r.
+     */
+    private static double timeBeforeDistance(double dx, double dy, double wx, double wy, double r) {
+        double c = dx * dx + dy * dy - r * r;
+        if (c <= 0) {
+            // already in range
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double a = wx * wx + wy * wy;
+        double b = 2 * (dx * wx + dy * wy);
+        if (a == 0 || b >= 0) {
+            // not getting closer
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double disc = b * b - 4 * a * c;
+        if (disc < 0) {
+            // passing by
+            return Double.POSITIVE_INFINITY;
+        }
+
+        return (-b - sqrt(disc)) / (2 * a);
+    }
+}
@@ -0,0 +1,34 @@
+package simulator;
+
+import creatures.CreatureBuilder;
+
+/**
+ * Runs a simulation without any user interface, for the batch runs.
+ *
+ * Usage: {@code HeadlessLauncher [creatures [ticks [width height]]]}
+ *
+ * Only the simulation classes are loaded, which is what the class data
+ * sharing archive and the native image of the {@code scripts} directory
+ * rely on to start quickly.
+ */
+public class HeadlessLauncher {
+
+    public static void main(String[] args) {
+        int number = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int width = args.length > 3 ? Integer.parseInt(args[2]) : 640;
+        int height = args.length > 3 ? Integer.parseInt(args[3]) : 480;
+
+        World world = new World(width, height);
+        world.addCreatures(new CreatureBuilder().createCreatures(world, number));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ticks; i++) {
+            world.tick();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(number + " creatures, " + ticks + " ticks in "
+                + (elapsed / 1000000) + " ms");
+    }
+}
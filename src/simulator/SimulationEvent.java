@@ -0,0 +1,86 @@
+package simulator;
+
+/**
+ * An event scheduled by the {@link EventDrivenSimulator}. Events are ordered
+ * by their time; an event becomes stale as soon as one of the creatures it
+ * involves changes its trajectory, which is detected by comparing the stamps
+ * recorded at scheduling time.
+ */
+public class SimulationEvent implements Comparable<SimulationEvent> {
+
+    public enum Type {
+        /** The creature hits a wall. */
+        BOUNCE,
+        /** The creature applies its random noise. */
+        NOISE,
+        /** The other creature enters the vision range of the creature. */
+        VISION,
+        /** The simulator looks for the pairs of creatures that may meet next. */
+        REINDEX
+    }
+
+    private final Type type;
+
+    private final double time;
+
+    /** Index of the creature concerned by the event, -1 for {@link Type#REINDEX}. */
+    private final int creature;
+
+    /** Index of the other creature for {@link Type#VISION}, -1 otherwise. */
+    private final int other;
+
+    private final int creatureStamp;
+
+    private final int otherStamp;
+
+    public SimulationEvent(Type type, double time, int creature, int creatureStamp,
+                           int other, int otherStamp) {
+        this.type = type;
+        this.time = time;
+        this.creature = creature;
+        this.creatureStamp = creatureStamp;
+        this.other = other;
+        this.otherStamp = otherStamp;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public int getCreature() {
+        return creature;
+    }
+
+    public int getOther() {
+        return other;
+    }
+
+    /**
+     * @param stamps
+     *            current trajectory stamps of all the creatures
+     * @return true if no creature involved changed its trajectory since the
+     *         event was scheduled (always true for {@link Type#NOISE} and
+     *         {@link Type#REINDEX})
+     */
+    public boolean isValid(int[] stamps) {
+        // the noise is periodic, it does not depend on the trajectory
+        if (type == Type.NOISE || type == Type.REINDEX) {
+            return true;
+        }
+        return stamps[creature] == creatureStamp
+                && (other < 0 || stamps[other] == otherStamp);
+    }
+
+    @Override
+    public int compareTo(SimulationEvent o) {
+        return Double.compare(time, o.time);
+    }
+
+    public String toString() {
+        return type + "@" + time + " (" + creature + (other >= 0 ? ", " + other : "") + ")";
+    }
+}
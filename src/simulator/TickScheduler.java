@@ -0,0 +1,287 @@
+package simulator;
+
+import java.util.List;
+
+import creatures.AbstractCreature;
+import creatures.BouncingCreature;
+
+/**
+ * Ticks a {@link World} within a time budget, for the interactive views.
+ *
+ * The creatures are split in two classes. The high priority ones act first,
+ * the low priority ones (outside of the viewport, seeing no other creature,
+ * or bouncing, the outcome of their act() hardly depending on the others)
+ * with the time left. Each class acts in round-robin order, by chunks of
+ * {@link #CHUNK} creatures between two checks of the elapsed time, until
+ * the budget is spent; the others are deferred.
+ *
+ * The classification is part of the chunks: a creature is classified right
+ * after its first act, then again every {@link #RECLASSIFY_PERIOD} ticks,
+ * the creatures being spread over the ticks of the period. A creature
+ * coming up for classification in the pass of the other class is
+ * classified there, so that a deferred creature can still change class.
+ * The creatures new to the world have a high priority until classified.
+ *
+ * The first chunk of high priority creatures acts whatever the time, so
+ * that the world moves on even when the rebuild of the spatial index takes
+ * the whole budget. Apart from that rebuild and from a walk through the
+ * arrays of the scheduler, a tick exceeds its budget by at most the time of
+ * {@link #CHUNK} creatures acting and being classified.
+ *
+ * A deferred creature owes the ticks it missed and acts more than once in
+ * the following ticks, at most {@link #MAX_CATCH_UP} extra times per tick,
+ * so that over time every creature acts once per tick.
+ */
+public class TickScheduler {
+
+    /** Creatures acting between two checks of the elapsed time. */
+    public static final int CHUNK = 64;
+
+    /** Extra acts a deferred creature may do in one tick to catch up. */
+    public static final int MAX_CATCH_UP = 2;
+
+    /** Ticks between two classifications of a creature. */
+    public static final int RECLASSIFY_PERIOD = 16;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte HIGH = 1;
+    private static final byte LOW = 2;
+
+    private final World world;
+
+    private long budget;
+
+    private boolean viewport;
+    private double minX;
+    private double minY;
+    private double maxX;
+    private double maxY;
+
+    /**
+     * The creatures of the world, in the same order, and what the scheduler
+     * knows of each of them.
+     */
+    private AbstractCreature[] population = new AbstractCreature[0];
+    private int populationSize;
+    private byte[] priority = new byte[0];
+    private int[] debt = new int[0];
+
+    /** Tick of the next classification of each creature. */
+    private long[] due = new long[0];
+
+    /** Last tick each creature acted at. */
+    private long[] acted = new long[0];
+
+    /** First creature of each pass at the next tick. */
+    private int highCursor;
+    private int lowCursor;
+
+    private int deferred;
+
+    /** The tick being run, counted from 0. */
+    private long tick = -1;
+
+    /**
+     * @param budget time a tick should not exceed, in nanoseconds
+     */
+    public TickScheduler(World world, long budget) {
+        this.world = world;
+        this.budget = budget;
+    }
+
+    public void setBudget(long budget) {
+        this.budget = budget;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the part of the world that is on screen, the creatures outside of
+     * it having a low priority.
+     */
+    public void setViewport(double minX, double minY, double maxX, double maxY) {
+        this.viewport = true;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    public void clearViewport() {
+        viewport = false;
+    }
+
+    /**
+     * @return the number of creatures that did not act during the last tick
+     */
+    public int getDeferred() {
+        return deferred;
+    }
+
+    /**
+     * @return the number of acts owed by the deferred creatures
+     */
+    public long getDebt() {
+        long total = 0;
+        for (int i = 0; i < populationSize; i++) {
+            total += debt[i];
+        }
+        return total;
+    }
+
+    /**
+     * One tick of the world within the budget.
+     */
+    public void tick() {
+        long start = now();
+        List<AbstractCreature> creatures = world.getCreatureList();
+        world.getSpatialIndex().rebuild(creatures);
+        tick++;
+
+        if (!samePopulation(creatures)) {
+            follow(creatures);
+        }
+
+        highCursor = run(highCursor, false, start, true);
+        lowCursor = run(lowCursor, true, start, false);
+
+        deferred = 0;
+        for (int i = 0; i < populationSize; i++) {
+            if (acted[i] != tick) {
+                debt[i]++;
+                deferred++;
+            }
+        }
+    }
+
+    /**
+     * Whether the world holds the creatures of the last tick, in the same
+     * order. A creature removed and another one added since then leave the
+     * size unchanged, so every creature is compared.
+     */
+    private boolean samePopulation(List<AbstractCreature> creatures) {
+        if (creatures.size() != populationSize) {
+            return false;
+        }
+        for (int i = 0; i < populationSize; i++) {
+            if (creatures.get(i) != population[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes the new population of the world: the creatures that stay keep
+     * their class and their debt, found at the position the spatial index
+     * has just given them, the new ones are yet to be classified.
+     */
+    private void follow(List<AbstractCreature> creatures) {
+        int n = creatures.size();
+        AbstractCreature[] newPopulation = new AbstractCreature[n];
+        byte[] newPriority = new byte[n];
+        int[] newDebt = new int[n];
+        long[] newDue = new long[n];
+        long[] newActed = new long[n];
+        for (int i = 0; i < n; i++) {
+            newPopulation[i] = creatures.get(i);
+            newActed[i] = -1;
+        }
+        for (int j = 0; j < populationSize; j++) {
+            AbstractCreature c = population[j];
+            int i = c.getIndex();
+            if (i >= 0 && i < n && newPopulation[i] == c) {
+                newPriority[i] = priority[j];
+                newDebt[i] = debt[j];
+                newDue[i] = due[j];
+                newActed[i] = acted[j];
+            }
+        }
+
+        population = newPopulation;
+        priority = newPriority;
+        debt = newDebt;
+        due = newDue;
+        acted = newActed;
+        populationSize = n;
+        if (highCursor >= n) {
+            highCursor = 0;
+        }
+        if (lowCursor >= n) {
+            lowCursor = 0;
+        }
+    }
+
+    /**
+     * Acts the creatures of one class by chunks while there is time left,
+     * classifying the creatures met on the way that are due.
+     *
+     * @param first whether the first chunk acts even if there is no time left
+     * @return the first creature of the next tick: the deferred ones go first
+     */
+    private int run(int cursor, boolean lowPass, long start, boolean first) {
+        int n = populationSize;
+        int i = cursor;
+        int visited = 0;
+        boolean forced = first;
+        while (visited < n && (forced || now() - start < budget)) {
+            forced = false;
+            for (int done = 0; visited < n && done < CHUNK; visited++) {
+                if (acted[i] == tick) {
+                    // acted in the other pass, then changed class
+                } else if ((priority[i] == LOW) == lowPass) {
+                    int acts = 1 + Math.min(debt[i], MAX_CATCH_UP);
+                    debt[i] -= acts - 1;
+                    for (int k = 0; k < acts; k++) {
+                        population[i].act();
+                    }
+                    acted[i] = tick;
+                    if (due[i] <= tick) {
+                        classify(i);
+                    }
+                    done++;
+                } else if (priority[i] != UNKNOWN && due[i] <= tick) {
+                    classify(i);
+                    done++;
+                }
+                i = i + 1 == n ? 0 : i + 1;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * The first classification of a creature also gives it its place in the
+     * period, so that the creatures are not all classified at the same tick.
+     */
+    private void classify(int i) {
+        boolean unknown = priority[i] == UNKNOWN;
+        priority[i] = isLowPriority(population[i]) ? LOW : HIGH;
+        due[i] = tick + (unknown ? 1 + i % RECLASSIFY_PERIOD : RECLASSIFY_PERIOD);
+    }
+
+    /**
+     * Whether the creature may be deferred.
+     */
+    protected boolean isLowPriority(AbstractCreature c) {
+        if (c instanceof BouncingCreature) {
+            return true;
+        }
+        double x = c.getPosition().getX();
+        double y = c.getPosition().getY();
+        if (viewport && (x < minX || x > maxX || y < minY || y > maxY)) {
+            return true;
+        }
+        List<AbstractCreature> nearest = world.getSpatialIndex().nearest(c, 1);
+        return nearest.isEmpty() || c.distanceFromAPoint(nearest.get(0).getPosition()) > c.getVisionDistance();
+    }
+
+    /**
+     * The clock of the budget, in nanoseconds.
+     */
+    protected long now() {
+        return System.nanoTime();
+    }
+}
@@ -0,0 +1,91 @@
+package simulator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import creatures.AbstractCreature;
+import creatures.ICreature;
+import creatures.IEnvironment;
+import creatures.Topology;
+import simulator.spatial.AdaptiveSpatialIndex;
+import simulator.spatial.ISpatialIndex;
+
+/**
+ * Headless environment: a list of creatures acting one after the other, the
+ * neighbour queries being answered by a spatial index rebuilt at the
+ * beginning of each tick.
+ */
+public class World implements IEnvironment {
+
+    private final Topology topology;
+
+    private final List<AbstractCreature> creatures = new ArrayList<AbstractCreature>();
+
+    private ISpatialIndex index;
+
+    public World(Topology topology) {
+        this.topology = topology;
+        this.index = new AdaptiveSpatialIndex(topology);
+    }
+
+    public World(int width, int height) {
+        this(Topology.toroidal(width, height));
+    }
+
+    public void addCreature(AbstractCreature creature) {
+        creatures.add(creature);
+    }
+
+    public void addCreatures(Collection<? extends AbstractCreature> list) {
+        creatures.addAll(list);
+    }
+
+    public List<AbstractCreature> getCreatureList() {
+        return creatures;
+    }
+
+    public ISpatialIndex getSpatialIndex() {
+        return index;
+    }
+
+    public void setSpatialIndex(ISpatialIndex index) {
+        this.index = index;
+        index.rebuild(creatures);
+    }
+
+    /**
+     * One simulation step: every creature acts once.
+     */
+    public void tick() {
+        index.rebuild(creatures);
+        for (AbstractCreature c : creatures) {
+            c.act();
+        }
+    }
+
+    @Override
+    public Iterable<ICreature> getCreatures() {
+        return new ArrayList<ICreature>(creatures);
+    }
+
+    @Override
+    public double getWidth() {
+        return topology.getWidth();
+    }
+
+    @Override
+    public double getHeight() {
+        return topology.getHeight();
+    }
+
+    @Override
+    public Topology getTopology() {
+        return topology;
+    }
+
+    @Override
+    public Collection<AbstractCreature> creaturesAround(AbstractCreature creature) {
+        return index.creaturesAround(creature);
+    }
+}
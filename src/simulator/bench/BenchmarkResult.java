@@ -0,0 +1,115 @@
+package simulator.bench;
+
+import java.util.Locale;
+
+/**
+ * Measures of one run of the benchmark suite, one line of its CSV output.
+ */
+public class BenchmarkResult {
+
+    public static final String HEADER =
+            "scenario,creatures,threads,ticks,ticks_per_sec,p50_ms,p99_ms,heap_peak_mb,gc_ms";
+
+    private final String scenario;
+    private final int creatures;
+    private final int threads;
+    private final int ticks;
+    private final double ticksPerSecond;
+    private final double p50;
+    private final double p99;
+    private final double heapPeak;
+    private final long gcTime;
+
+    public BenchmarkResult(String scenario, int creatures, int threads, int ticks,
+                           double ticksPerSecond, double p50, double p99,
+                           double heapPeak, long gcTime) {
+        this.scenario = scenario;
+        this.creatures = creatures;
+        this.threads = threads;
+        this.ticks = ticks;
+        this.ticksPerSecond = ticksPerSecond;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.heapPeak = heapPeak;
+        this.gcTime = gcTime;
+    }
+
+    /**
+     * @return the result written by {@link #toCsv()}
+     * @throws IllegalArgumentException if the line is not a result
+     */
+    public static BenchmarkResult parse(String line) {
+        String[] f = line.split(",");
+        if (f.length != 9) {
+            throw new IllegalArgumentException("not a benchmark result: " + line);
+        }
+        return new BenchmarkResult(f[0], Integer.parseInt(f[1]), Integer.parseInt(f[2]),
+                Integer.parseInt(f[3]), Double.parseDouble(f[4]), Double.parseDouble(f[5]),
+                Double.parseDouble(f[6]), Double.parseDouble(f[7]), Long.parseLong(f[8]));
+    }
+
+    /**
+     * @return what identifies the run in a baseline
+     */
+    public String getKey() {
+        return scenario + "/" + creatures + "/" + threads;
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public int getCreatures() {
+        return creatures;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public double getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    /**
+     * @return the median duration of a tick in milliseconds
+     */
+    public double getP50() {
+        return p50;
+    }
+
+    /**
+     * @return the 99th percentile of the duration of a tick in milliseconds
+     */
+    public double getP99() {
+        return p99;
+    }
+
+    /**
+     * @return the highest heap usage during the run in megabytes
+     */
+    public double getHeapPeak() {
+        return heapPeak;
+    }
+
+    /**
+     * @return the time spent collecting garbage during the run in
+     *         milliseconds
+     */
+    public long getGcTime() {
+        return gcTime;
+    }
+
+    public String toCsv() {
+        return String.format(Locale.ROOT, "%s,%d,%d,%d,%.3f,%.3f,%.3f,%.1f,%d",
+                scenario, creatures, threads, ticks, ticksPerSecond, p50, p99, heapPeak, gcTime);
+    }
+
+    public String toString() {
+        return toCsv();
+    }
+}
@@ -0,0 +1,136 @@
+package simulator.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import creatures.AbstractCreature;
+import creatures.behavior.BehaviorEngine;
+import simulator.World;
+import simulator.spatial.AdaptiveSpatialIndex;
+import simulator.spatial.VerletIndex;
+
+/**
+ * Runs one scenario with a given number of creatures and threads and
+ * measures it.
+ */
+public class BenchmarkRunner {
+
+    private final int warmup;
+    private final int ticks;
+
+    /** Skin of the neighbour lists, 0 to query the index directly. */
+    private double skin;
+
+    /**
+     * @param warmup ticks run before measuring, for the JIT
+     * @param ticks  ticks measured
+     */
+    public BenchmarkRunner(int warmup, int ticks) {
+        this.warmup = warmup;
+        this.ticks = ticks;
+    }
+
+    /**
+     * @param skin if positive, the queries go through a {@link VerletIndex}
+     *             with that skin
+     */
+    public void setSkin(double skin) {
+        this.skin = skin;
+    }
+
+    public BenchmarkResult run(BenchmarkScenario scenario, int count, int threads) {
+        System.gc();
+        resetPeaks();
+        long gcBefore = gcTime();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            World world = scenario.create(count).compile().createWorld();
+            VerletIndex lists = null;
+            if (skin > 0) {
+                lists = new VerletIndex(world.getTopology(), skin);
+                world.setSpatialIndex(lists);
+            } else {
+                world.setSpatialIndex(new AdaptiveSpatialIndex(world.getTopology(),
+                        AbstractCreature.DEFAULT_VISION_DISTANCE,
+                        AdaptiveSpatialIndex.DEFAULT_CROWDING_THRESHOLD, pool));
+            }
+            BehaviorEngine engine = BehaviorEngine.of(world, pool);
+
+            for (int i = 0; i < warmup; i++) {
+                engine.tick();
+            }
+            if (lists != null) {
+                lists.resetMetrics();
+            }
+
+            long[] durations = new long[ticks];
+            long start = System.nanoTime();
+            for (int i = 0; i < ticks; i++) {
+                long t = System.nanoTime();
+                engine.tick();
+                durations[i] = System.nanoTime() - t;
+            }
+            long elapsed = System.nanoTime() - start;
+
+            Arrays.sort(durations);
+            if (lists != null) {
+                System.err.println(String.format(Locale.ROOT,
+                        "%s/%d/%d: neighbour list hit rate %.1f%%, %d rebuilds in %d ticks",
+                        scenario.getName(), count, threads, lists.getHitRate() * 100,
+                        lists.getRebuilds(), lists.getTicks()));
+            }
+            return new BenchmarkResult(scenario.getName(), count, threads, ticks,
+                    ticks * 1e9 / elapsed,
+                    percentile(durations, 0.50) / 1e6,
+                    percentile(durations, 0.99) / 1e6,
+                    heapPeak() / (1024.0 * 1024.0),
+                    gcTime() - gcBefore);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Nearest-rank percentile of sorted values.
+     */
+    static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private static void resetPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Sum of the peaks of the heap pools, which may be a little more than the
+     * peak of the heap as a whole.
+     */
+    private static long heapPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+}
@@ -0,0 +1,103 @@
+package simulator.bench;
+
+import java.util.Random;
+
+import simulator.scenario.CreatureType;
+import simulator.scenario.Population;
+import simulator.scenario.Scenario;
+
+/**
+ * The standard scenarios of the benchmark suite. The size of the world grows
+ * with the number of creatures so that the density, and thus the work per
+ * creature, stays the same whatever the count.
+ */
+public enum BenchmarkScenario {
+
+    /** Only stupid creatures, uniformly spread: the cost of moving. */
+    STUPID("stupid") {
+        void populate(Scenario s, int count, double side, Random rand) {
+            s.population(new Population(CreatureType.STUPID, count).speed(0, 10));
+        }
+    },
+
+    /** Only bouncing creatures, uniformly spread. */
+    BOUNCING("bouncing") {
+        void populate(Scenario s, int count, double side, Random rand) {
+            s.population(new Population(CreatureType.BOUNCING, count).speed(3, 10));
+        }
+    },
+
+    /**
+     * Smart creatures in tight flocks of {@link #FLOCK} creatures: the cost
+     * of the neighbour queries.
+     */
+    SMART_FLOCKS("smart-flocks") {
+        void populate(Scenario s, int count, double side, Random rand) {
+            for (int left = count; left > 0; left -= FLOCK) {
+                double direction = rand.nextDouble() * 2 * Math.PI;
+                s.population(new Population(CreatureType.SMART, Math.min(FLOCK, left))
+                        .cluster(center(side, rand), center(side, rand), FLOCK_RADIUS)
+                        .speed(3, 6)
+                        .direction(direction, direction + 0.5));
+            }
+        }
+    },
+
+    /** A third of each kind, the smart ones in flocks. */
+    MIXED("mixed") {
+        void populate(Scenario s, int count, double side, Random rand) {
+            STUPID.populate(s, count / 3, side, rand);
+            BOUNCING.populate(s, count / 3, side, rand);
+            SMART_FLOCKS.populate(s, count - 2 * (count / 3), side, rand);
+        }
+    };
+
+    /** Area of the world per creature, in square pixels. */
+    public static final double AREA_PER_CREATURE = 2500;
+
+    public static final int FLOCK = 1000;
+
+    public static final double FLOCK_RADIUS = 300;
+
+    private static final long SEED = 20240101;
+
+    private final String name;
+
+    BenchmarkScenario(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    abstract void populate(Scenario s, int count, double side, Random rand);
+
+    private static double center(double side, Random rand) {
+        return (rand.nextDouble() - 0.5) * side;
+    }
+
+    /**
+     * @return the scenario with {@code count} creatures, always the same
+     */
+    public Scenario create(int count) {
+        double side = Math.ceil(Math.sqrt(count * AREA_PER_CREATURE));
+        Scenario s = new Scenario();
+        s.world(side, side, "toroidal");
+        s.seed(SEED);
+        populate(s, count, side, new Random(SEED));
+        return s;
+    }
+
+    /**
+     * @return the scenario of the given name, null if there is none
+     */
+    public static BenchmarkScenario named(String name) {
+        for (BenchmarkScenario s : values()) {
+            if (s.name.equals(name)) {
+                return s;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,217 @@
+package simulator.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Macro-benchmark of the whole simulator: runs the {@link BenchmarkScenario}s
+ * for several creature and thread counts, writes the results as CSV (see
+ * {@link BenchmarkResult#HEADER}) and compares them with a baseline.
+ *
+ * Usage: {@code BenchmarkSuite [--scenarios a,b] [--counts 1000,10000]
+ * [--threads 1,4] [--ticks n] [--out results.csv] [--baseline baseline.csv]
+ * [--threshold 0.1] [--skin 10]}
+ *
+ * The exit status is 1 when a run is slower than its baseline by more than
+ * the threshold, in ticks per second or in 99th percentile tick latency.
+ * With {@code --skin} the neighbour queries go through Verlet lists (see
+ * {@link simulator.spatial.VerletIndex}), whose hit rate is reported.
+ */
+public class BenchmarkSuite {
+
+    public static final double DEFAULT_THRESHOLD = 0.10;
+
+    /** Creature ticks a run aims at when the number of ticks is not given. */
+    private static final long WORK_PER_RUN = 2000000;
+
+    private final List<BenchmarkScenario> scenarios = new ArrayList<BenchmarkScenario>();
+    private final List<Integer> counts = new ArrayList<Integer>();
+    private final Set<Integer> threads = new LinkedHashSet<Integer>();
+    private int ticks = -1;
+    private double skin;
+
+    public static void main(String[] args) throws IOException {
+        BenchmarkSuite suite = new BenchmarkSuite();
+        File out = null;
+        File baseline = null;
+        double threshold = DEFAULT_THRESHOLD;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String option = args[i];
+            String value = args[i + 1];
+            if ("--scenarios".equals(option)) {
+                for (String name : value.split(",")) {
+                    BenchmarkScenario s = BenchmarkScenario.named(name);
+                    if (s == null) {
+                        usage("unknown scenario " + name);
+                    }
+                    suite.scenarios.add(s);
+                }
+            } else if ("--counts".equals(option)) {
+                for (String n : value.split(",")) {
+                    suite.counts.add(Integer.parseInt(n));
+                }
+            } else if ("--threads".equals(option)) {
+                for (String n : value.split(",")) {
+                    suite.threads.add(Integer.parseInt(n));
+                }
+            } else if ("--ticks".equals(option)) {
+                suite.ticks = Integer.parseInt(value);
+            } else if ("--out".equals(option)) {
+                out = new File(value);
+            } else if ("--baseline".equals(option)) {
+                baseline = new File(value);
+            } else if ("--threshold".equals(option)) {
+                threshold = Double.parseDouble(value);
+            } else if ("--skin".equals(option)) {
+                suite.skin = Double.parseDouble(value);
+            } else {
+                usage("unknown option " + option);
+            }
+        }
+        if (args.length % 2 != 0) {
+            usage("missing value for " + args[args.length - 1]);
+        }
+        suite.defaults();
+
+        List<BenchmarkResult> results = suite.run();
+        if (out != null) {
+            write(results, out);
+        }
+        if (baseline != null) {
+            int regressions = compare(results, read(baseline), threshold);
+            if (regressions > 0) {
+                System.err.println(regressions + " regression(s) above " + (int) (threshold * 100) + "%");
+                System.exit(1);
+            }
+        }
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println("usage: BenchmarkSuite [--scenarios a,b] [--counts 1000,10000] [--threads 1,4]");
+        System.err.println("                      [--ticks n] [--out results.csv] [--baseline baseline.csv]");
+        System.err.println("                      [--threshold 0.1] [--skin 10]");
+        System.exit(2);
+    }
+
+    private void defaults() {
+        if (scenarios.isEmpty()) {
+            for (BenchmarkScenario s : BenchmarkScenario.values()) {
+                scenarios.add(s);
+            }
+        }
+        if (counts.isEmpty()) {
+            // 10M creatures need a heap of several gigabytes, ask for them
+            for (int n = 1000; n <= 1000000; n *= 10) {
+                counts.add(n);
+            }
+        }
+        if (threads.isEmpty()) {
+            threads.add(1);
+            threads.add(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * Runs every combination, printing the results as they come.
+     */
+    public List<BenchmarkResult> run() {
+        List<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+        System.out.println(BenchmarkResult.HEADER);
+        for (BenchmarkScenario s : scenarios) {
+            for (int count : counts) {
+                int n = ticks > 0 ? ticks : (int) Math.max(5, Math.min(100, WORK_PER_RUN / count));
+                BenchmarkRunner runner = new BenchmarkRunner(Math.max(2, n / 5), n);
+                runner.setSkin(skin);
+                for (int t : threads) {
+                    try {
+                        BenchmarkResult r = runner.run(s, count, t);
+                        System.out.println(r.toCsv());
+                        results.add(r);
+                    } catch (OutOfMemoryError e) {
+                        System.err.println(s.getName() + "/" + count + "/" + t + ": skipped, out of memory");
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    // ----------------------------------------------------------------------------
+    // Files and baseline
+    // ----------------------------------------------------------------------------
+
+    public static void write(List<BenchmarkResult> results, File file) throws IOException {
+        PrintWriter out = new PrintWriter(new FileWriter(file));
+        try {
+            out.println(BenchmarkResult.HEADER);
+            for (BenchmarkResult r : results) {
+                out.println(r.toCsv());
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    public static List<BenchmarkResult> read(File file) throws IOException {
+        List<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+        BufferedReader in = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty() && !line.equals(BenchmarkResult.HEADER)) {
+                    results.add(BenchmarkResult.parse(line));
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return results;
+    }
+
+    /**
+     * Prints how each result compares with the baseline run of the same
+     * scenario, creature count and thread count.
+     *
+     * @return the number of regressions
+     */
+    public static int compare(List<BenchmarkResult> results, List<BenchmarkResult> baseline,
+                              double threshold) {
+        Map<String, BenchmarkResult> previous = new LinkedHashMap<String, BenchmarkResult>();
+        for (BenchmarkResult b : baseline) {
+            previous.put(b.getKey(), b);
+        }
+
+        int regressions = 0;
+        for (BenchmarkResult r : results) {
+            BenchmarkResult b = previous.get(r.getKey());
+            if (b == null) {
+                System.err.println(r.getKey() + ": no baseline");
+                continue;
+            }
+            double throughput = r.getTicksPerSecond() / b.getTicksPerSecond() - 1;
+            double latency = r.getP99() / b.getP99() - 1;
+            boolean regression = throughput < -threshold || latency > threshold;
+            if (regression) {
+                regressions++;
+            }
+            System.err.println(String.format(Locale.ROOT,
+                    "%s: ticks/s %.1f -> %.1f (%+.1f%%), p99 %.2f -> %.2f ms (%+.1f%%)%s",
+                    r.getKey(), b.getTicksPerSecond(), r.getTicksPerSecond(), throughput * 100,
+                    b.getP99(), r.getP99(), latency * 100, regression ? "  REGRESSION" : ""));
+        }
+        return regressions;
+    }
+}
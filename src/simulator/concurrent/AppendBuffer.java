@@ -0,0 +1,140 @@
+package simulator.concurrent;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Buffer to which any number of threads append without locks, drained by a
+ * single thread once they are done.
+ *
+ * An append reserves a slot with an atomic increment and fills it, the
+ * segments holding the slots being chained with a compare and set by
+ * whichever thread needs one first. No append ever waits for another one.
+ *
+ * {@link #drainTo(Collection)} must not run concurrently with the appends:
+ * it is meant to be called at a barrier, such as the end of a tick, or once
+ * the buffer is {@link #seal() sealed} when other threads may still append.
+ */
+public class AppendBuffer<T> {
+
+    /** Slots per segment, a power of two. */
+    private static final int SEGMENT_SHIFT = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+    private static class Segment<T> {
+        final int index;
+        final AtomicReferenceArray<T> items = new AtomicReferenceArray<T>(SEGMENT_SIZE);
+        final AtomicReference<Segment<T>> next = new AtomicReference<Segment<T>>();
+
+        Segment(int index) {
+            this.index = index;
+        }
+    }
+
+    private final AtomicInteger reserved = new AtomicInteger();
+
+    private final Segment<T> head = new Segment<T>(0);
+
+    /** Last segment known to exist, a hint to avoid walking from the head. */
+    private volatile Segment<T> tail = head;
+
+    /** Appends between their check of {@link #sealed} and their slot filled. */
+    private final AtomicInteger writers = new AtomicInteger();
+
+    private volatile boolean sealed;
+
+    /**
+     * @return false if the buffer is sealed, in which case the item was not
+     *         appended
+     */
+    public boolean append(T item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+        writers.incrementAndGet();
+        try {
+            if (sealed) {
+                return false;
+            }
+            int slot = reserved.getAndIncrement();
+            segment(slot >>> SEGMENT_SHIFT).items.set(slot & (SEGMENT_SIZE - 1), item);
+            return true;
+        } finally {
+            writers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Refuses the appends from now on and waits for the ones in progress to
+     * fill their slot, after which {@link #drainTo(Collection)} may run
+     * whatever the other threads do. A sealed buffer stays sealed: the
+     * threads appending to it must move on to another one.
+     */
+    public void seal() {
+        sealed = true;
+        while (writers.get() != 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * The segment of the given index, created if needed.
+     */
+    private Segment<T> segment(int index) {
+        Segment<T> s = tail;
+        if (s.index > index) {
+            s = head;
+        }
+        while (s.index < index) {
+            Segment<T> next = s.next.get();
+            if (next == null) {
+                Segment<T> created = new Segment<T>(s.index + 1);
+                // another thread may have chained its own segment first
+                next = s.next.compareAndSet(null, created) ? created : s.next.get();
+            }
+            s = next;
+        }
+        if (s.index > tail.index) {
+            tail = s;
+        }
+        return s;
+    }
+
+    /**
+     * Number of items appended since the last drain.
+     */
+    public int size() {
+        return reserved.get();
+    }
+
+    public boolean isEmpty() {
+        return reserved.get() == 0;
+    }
+
+    /**
+     * Moves the items to {@code target} in the order their slots were
+     * reserved and empties the buffer.
+     *
+     * @return the number of items moved
+     */
+    public int drainTo(Collection<? super T> target) {
+        int n = reserved.get();
+        Segment<T> s = head;
+        for (int slot = 0; slot < n; slot++) {
+            int k = slot & (SEGMENT_SIZE - 1);
+            if (k == 0 && slot > 0) {
+                s = s.next.get();
+            }
+            target.add(s.items.get(k));
+            s.items.lazySet(k, null);
+        }
+
+        // keep the first segment only
+        head.next.set(null);
+        tail = head;
+        reserved.set(0);
+        return n;
+    }
+}
@@ -0,0 +1,231 @@
+package simulator.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+import creatures.AbstractCreature;
+import creatures.ICreature;
+import creatures.IEnvironment;
+import creatures.Topology;
+import simulator.World;
+import simulator.spatial.StripedGrid;
+
+/**
+ * Environment whose creatures act in parallel, without locks.
+ *
+ * A tick updates the {@link StripedGrid} then runs each of its stripes as a
+ * task: a creature only writes its own state, which the other ones read
+ * through the volatile fields of {@link AbstractCreature} and the snapshot
+ * taken by the grid. The population does not change during a tick: the
+ * creatures spawned are appended to an {@link AppendBuffer} and the ones
+ * despawned to a buffer of the thread that despawned them, all of which are
+ * merged at the end of the tick, once every task is done. Spawning is also
+ * open to threads outside of the ticks: at the end of a tick the spawn
+ * buffer is swapped for a fresh one and sealed before it is drained, so a
+ * spawn racing with the merge lands in one buffer or the other.
+ *
+ * Compared to {@link World}, the creatures see their neighbours as they
+ * were at the beginning of the tick or as they already are, depending on
+ * which task runs first.
+ */
+public class ConcurrentWorld implements IEnvironment {
+
+    private final Topology topology;
+
+    private final ForkJoinPool pool;
+
+    /** Only changed at the end of a tick, by the thread running it. */
+    private final List<AbstractCreature> creatures = new ArrayList<AbstractCreature>();
+
+    private final List<AbstractCreature> readOnly = Collections.unmodifiableList(creatures);
+
+    private final StripedGrid index;
+
+    /** Replaced by a fresh buffer at every merge that has something to drain. */
+    private final AtomicReference<AppendBuffer<AbstractCreature>> spawned =
+            new AtomicReference<AppendBuffer<AbstractCreature>>(new AppendBuffer<AbstractCreature>());
+
+    /** The buffer of every thread that ever despawned a creature. */
+    private final Collection<MutationBuffer> buffers = new ConcurrentLinkedQueue<MutationBuffer>();
+
+    private final ThreadLocal<MutationBuffer> buffer = new ThreadLocal<MutationBuffer>() {
+        @Override
+        protected MutationBuffer initialValue() {
+            MutationBuffer b = new MutationBuffer();
+            buffers.add(b);
+            return b;
+        }
+    };
+
+    public ConcurrentWorld(Topology topology, ForkJoinPool pool) {
+        this.topology = topology;
+        this.pool = pool;
+        this.index = new StripedGrid(topology, pool);
+    }
+
+    public ConcurrentWorld(Topology topology) {
+        this(topology, ForkJoinPool.commonPool());
+    }
+
+    public ConcurrentWorld(int width, int height) {
+        this(Topology.toroidal(width, height));
+    }
+
+    /**
+     * Adds a creature at the end of the current tick, or of the next one if
+     * no tick is running or if the current one is already merging. Can be
+     * called from any thread, while a tick runs or not.
+     */
+    public void spawn(AbstractCreature creature) {
+        // a sealed buffer has already been replaced
+        while (!spawned.get().append(creature)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    public void spawn(Collection<? extends AbstractCreature> list) {
+        for (AbstractCreature c : list) {
+            spawn(c);
+        }
+    }
+
+    /**
+     * Removes a creature at the end of the current tick, or of the next one
+     * if no tick is running. Can be called by the creatures while they act,
+     * or by the thread running the ticks in between.
+     */
+    public void despawn(AbstractCreature creature) {
+        buffer.get().despawn(creature);
+    }
+
+    /**
+     * The creatures, as of the end of the last tick.
+     */
+    public List<AbstractCreature> getCreatureList() {
+        return readOnly;
+    }
+
+    public StripedGrid getSpatialIndex() {
+        return index;
+    }
+
+    /**
+     * One simulation step: every creature acts once, then the spawned and
+     * despawned creatures are merged into the population.
+     */
+    public void tick() {
+        index.rebuild(creatures);
+
+        int stripes = index.getStripeCount();
+        Stripe[] tasks = new Stripe[stripes];
+        for (int s = 0; s < stripes; s++) {
+            tasks[s] = new Stripe(s);
+        }
+        pool.invoke(new Stripes(tasks));
+
+        merge();
+    }
+
+    /**
+     * The barrier: applies the buffered changes once no creature acts.
+     */
+    private void merge() {
+        // a spawn reserving its slot after this check is kept for the next tick
+        if (!spawned.get().isEmpty()) {
+            AppendBuffer<AbstractCreature> full = spawned.getAndSet(new AppendBuffer<AbstractCreature>());
+            full.seal();
+            full.drainTo(creatures);
+        }
+
+        List<AbstractCreature> despawned = new ArrayList<AbstractCreature>();
+        for (MutationBuffer b : buffers) {
+            if (!b.isEmpty()) {
+                b.drainTo(despawned);
+            }
+        }
+        if (despawned.isEmpty()) {
+            return;
+        }
+
+        // a single pass whatever the number of despawned creatures
+        Set<AbstractCreature> removed = Collections.newSetFromMap(
+                new IdentityHashMap<AbstractCreature, Boolean>(despawned.size() * 2));
+        removed.addAll(despawned);
+        int kept = 0;
+        for (int i = 0; i < creatures.size(); i++) {
+            AbstractCreature c = creatures.get(i);
+            if (!removed.contains(c)) {
+                creatures.set(kept++, c);
+            }
+        }
+        creatures.subList(kept, creatures.size()).clear();
+    }
+
+    /**
+     * Runs the creatures standing in a stripe of the grid.
+     */
+    @SuppressWarnings("serial")
+    private class Stripe extends RecursiveAction {
+        private final int stripe;
+
+        Stripe(int stripe) {
+            this.stripe = stripe;
+        }
+
+        @Override
+        protected void compute() {
+            List<AbstractCreature> list = new ArrayList<AbstractCreature>(index.stripeSize(stripe));
+            index.stripe(stripe, list);
+            for (AbstractCreature c : list) {
+                c.act();
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class Stripes extends RecursiveAction {
+        private final Stripe[] tasks;
+
+        Stripes(Stripe[] tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(tasks);
+        }
+    }
+
+    @Override
+    public Iterable<ICreature> getCreatures() {
+        return new ArrayList<ICreature>(creatures);
+    }
+
+    @Override
+    public double getWidth() {
+        return topology.getWidth();
+    }
+
+    @Override
+    public double getHeight() {
+        return topology.getHeight();
+    }
+
+    @Override
+    public Topology getTopology() {
+        return topology;
+    }
+
+    @Override
+    public Collection<AbstractCreature> creaturesAround(AbstractCreature creature) {
+        return index.creaturesAround(creature);
+    }
+}
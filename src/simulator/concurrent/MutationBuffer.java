@@ -0,0 +1,33 @@
+package simulator.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import creatures.AbstractCreature;
+
+/**
+ * Changes to the population requested by one thread during a tick. Only
+ * its thread writes to it, {@link ConcurrentWorld} merges all the buffers
+ * at the end of the tick once the threads are done.
+ */
+class MutationBuffer {
+
+    private final List<AbstractCreature> despawned = new ArrayList<AbstractCreature>();
+
+    void despawn(AbstractCreature creature) {
+        despawned.add(creature);
+    }
+
+    boolean isEmpty() {
+        return despawned.isEmpty();
+    }
+
+    /**
+     * Moves the despawned creatures to {@code target}.
+     */
+    void drainTo(Collection<? super AbstractCreature> target) {
+        target.addAll(despawned);
+        despawned.clear();
+    }
+}
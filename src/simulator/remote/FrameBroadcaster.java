@@ -0,0 +1,272 @@
+package simulator.remote;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import creatures.AbstractCreature;
+import creatures.Topology;
+
+/**
+ * Encodes the frames of the live view once for all the viewers.
+ *
+ * Frames are published in layers: layer {@code l} holds one frame every
+ * {@code 2^l}, as a delta from the previous frame of the same layer. A
+ * viewer that cannot keep up moves to a coarser layer and one that waits
+ * for the frames moves back to a finer one, each viewer having its own frame
+ * rate while the encoding cost only depends on the number of layers. Key
+ * frames are published periodically and on demand so that new viewers, and
+ * viewers that lost track, can start over.
+ */
+public class FrameBroadcaster {
+
+    /** Number of layers, the coarsest one having 1/2^(LAYERS-1) of the frames. */
+    public static final int LAYERS = 4;
+
+    /** Frames between two periodic key frames. */
+    public static final int KEY_INTERVAL = 64;
+
+    /** Frames kept for the viewers that are behind. */
+    private static final int HISTORY = 128;
+
+    /** Frames a viewer must wait for in a row before going to a finer layer. */
+    private static final int PATIENCE = 8;
+
+    /**
+     * One published frame: its key form if any, and its delta form in each
+     * layer it belongs to.
+     */
+    static class Frame {
+        final long seq;
+        final byte[] key;
+        final byte[][] deltas;
+
+        Frame(long seq, byte[] key, byte[][] deltas) {
+            this.seq = seq;
+            this.key = key;
+            this.deltas = deltas;
+        }
+    }
+
+    private final FrameEncoder encoder;
+
+    /** Snapshots of the last frames, enough for the base of every layer. */
+    private final FrameEncoder.Snapshot[] snapshots = new FrameEncoder.Snapshot[(1 << (LAYERS - 1)) + 1];
+
+    private final Frame[] frames = new Frame[HISTORY];
+
+    private final double maxFrameRate;
+    private final long minInterval;
+
+    private long last = -1;
+    private long lastPublished;
+
+    private int viewers;
+    private boolean keyRequested;
+    private boolean closed;
+
+    /**
+     * @param maxFrameRate frames per second above which the calls to
+     *                     {@link #publish(List)} are ignored
+     */
+    public FrameBroadcaster(Topology topology, double maxFrameRate) {
+        this.encoder = new FrameEncoder(topology);
+        this.maxFrameRate = maxFrameRate;
+        this.minInterval = (long) (1e9 / maxFrameRate);
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = new FrameEncoder.Snapshot();
+            snapshots[i].seq = -1;
+        }
+    }
+
+    /**
+     * Publishes the current state of the creatures, unless nobody watches or
+     * the last frame is too recent. To be called from the simulation thread,
+     * between two ticks.
+     *
+     * @return true if a frame was published
+     */
+    public boolean publish(List<? extends AbstractCreature> creatures) {
+        long now = System.nanoTime();
+        boolean key;
+        synchronized (this) {
+            if (viewers == 0 || closed || (last >= 0 && now - lastPublished < minInterval)) {
+                return false;
+            }
+            key = keyRequested;
+            keyRequested = false;
+        }
+        lastPublished = now;
+
+        long seq = last + 1;
+        FrameEncoder.Snapshot s = snapshots[(int) (seq % snapshots.length)];
+        encoder.snapshot(seq, creatures, s);
+
+        byte[][] deltas = new byte[LAYERS][];
+        for (int l = 0; l < LAYERS; l++) {
+            long base = seq - (1 << l);
+            if (seq % (1 << l) != 0 || base < 0) {
+                break;
+            }
+            FrameEncoder.Snapshot b = snapshots[(int) (base % snapshots.length)];
+            deltas[l] = encoder.delta(b, s);
+        }
+        byte[] keyFrame = key || seq % KEY_INTERVAL == 0 ? encoder.key(s) : null;
+
+        synchronized (this) {
+            frames[(int) (seq % HISTORY)] = new Frame(seq, keyFrame, deltas);
+            last = seq;
+            notifyAll();
+        }
+        return true;
+    }
+
+    public double getMaxFrameRate() {
+        return maxFrameRate;
+    }
+
+    /**
+     * @return the finest layer whose frame rate does not exceed the given one
+     */
+    public int layerFor(double frameRate) {
+        int layer = 0;
+        while (layer < LAYERS - 1 && maxFrameRate / (1 << layer) > frameRate) {
+            layer++;
+        }
+        return layer;
+    }
+
+    public synchronized int getViewers() {
+        return viewers;
+    }
+
+    /**
+     * Wakes up and ends all the streams.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * Waits for the frame {@code seq}.
+     *
+     * @return the frame, or null if it is not kept anymore or the
+     *         broadcaster is closed
+     */
+    synchronized Frame await(long seq) throws InterruptedException {
+        while (last < seq && !closed) {
+            wait();
+        }
+        if (closed || seq <= last - HISTORY) {
+            return null;
+        }
+        return frames[(int) (seq % HISTORY)];
+    }
+
+    /**
+     * Waits for the next key frame.
+     *
+     * @return the frame, or null if the broadcaster is closed
+     */
+    synchronized Frame awaitKey() throws InterruptedException {
+        keyRequested = true;
+        long seq = last + 1;
+        while (!closed) {
+            while (last < seq && !closed) {
+                wait();
+            }
+            if (closed) {
+                break;
+            }
+            Frame f = frames[(int) (seq % HISTORY)];
+            if (f.key != null) {
+                return f;
+            }
+            seq++;
+        }
+        return null;
+    }
+
+    synchronized long latest() {
+        return last;
+    }
+
+    /**
+     * Writes the frames to a viewer until it disconnects or the broadcaster
+     * is closed. Each frame is flushed as soon as it is written, a slow
+     * viewer thus blocks in {@link OutputStream#flush()} and falls behind,
+     * which makes it move to a coarser layer. A key frame that is not on the
+     * grid of the layer of the viewer is followed by the deltas of the finer
+     * layers up to the next frame that is, at most one per layer.
+     *
+     * @param minLayer finest layer sent to this viewer, to cap its frame rate
+     */
+    public void stream(OutputStream out, int minLayer) throws IOException, InterruptedException {
+        minLayer = Math.max(0, Math.min(LAYERS - 1, minLayer));
+        synchronized (this) {
+            viewers++;
+        }
+        try {
+            int layer = minLayer;
+            int waited = 0;
+            long position = -1;
+
+            while (true) {
+                Frame f;
+                byte[] data;
+                if (position < 0) {
+                    f = awaitKey();
+                    data = f != null ? f.key : null;
+                } else {
+                    // after a key frame off the grid of the layer, the
+                    // finer layers lead back to it in a few frames
+                    int l = layer;
+                    while (position % (1 << l) != 0) {
+                        l--;
+                    }
+                    f = await(position + (1 << l));
+                    data = f != null ? f.deltas[l] : null;
+                    if (f != null && data == null) {
+                        // no base for this layer yet, start over
+                        position = -1;
+                        continue;
+                    }
+                }
+                if (f == null) {
+                    if (isClosed()) {
+                        return;
+                    }
+                    position = -1;
+                    continue;
+                }
+
+                out.write(data);
+                out.flush();
+                position = f.seq;
+
+                long lag = latest() - position;
+                int step = 1 << layer;
+                if (lag >= HISTORY / 2) {
+                    position = -1;
+                } else if (lag >= 2 * step && layer < LAYERS - 1 && position % (2 * step) == 0) {
+                    layer++;
+                    waited = 0;
+                } else if (lag > 0) {
+                    waited = 0;
+                } else if (layer > minLayer && ++waited >= PATIENCE) {
+                    layer--;
+                    waited = 0;
+                }
+            }
+        } finally {
+            synchronized (this) {
+                viewers--;
+            }
+        }
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+}
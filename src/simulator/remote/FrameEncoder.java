@@ -0,0 +1,222 @@
+package simulator.remote;
+
+import static java.lang.Math.PI;
+
+import java.util.Arrays;
+import java.util.List;
+
+import creatures.AbstractCreature;
+import creatures.Topology;
+
+/**
+ * Binary encoding of the creatures for the live view.
+ *
+ * Positions are quantized to 16 bits per axis over the extent of the world
+ * and directions to 8 bits, so that a creature which barely moved between
+ * two frames does not need to be sent again. A frame is either a key frame
+ * holding every creature or a delta frame holding only the creatures whose
+ * quantized state differs from a base frame. All the numbers are big-endian:
+ *
+ * <pre>
+ * frame    := length:u32 body
+ * body     := KEY seq:u32 width:u16 height:u16 count:u32 creature*
+ *           | DELTA seq:u32 base:u32 count:u32 changed:u32 change*
+ * creature := x:u16 y:u16 direction:u8 rgb:u24
+ * change   := gap:varint mask:u8 [x:u16] [y:u16] [direction:u8] [rgb:u24]
+ * </pre>
+ *
+ * The {@code gap} is the difference between the index of the creature and
+ * the index of the previous change plus one, the bits of {@code mask} tell
+ * which fields follow ({@link #X}, {@link #Y}, {@link #DIRECTION},
+ * {@link #COLOR}).
+ */
+public class FrameEncoder {
+
+    public static final int KEY = 0;
+    public static final int DELTA = 1;
+
+    public static final int X = 1;
+    public static final int Y = 2;
+    public static final int DIRECTION = 4;
+    public static final int COLOR = 8;
+
+    /**
+     * Quantized state of the creatures at one frame.
+     */
+    public static class Snapshot {
+        long seq;
+        int count;
+        int[] x = new int[0];
+        int[] y = new int[0];
+        int[] direction = new int[0];
+        int[] color = new int[0];
+
+        void ensure(int n) {
+            if (x.length < n) {
+                x = Arrays.copyOf(x, n);
+                y = Arrays.copyOf(y, n);
+                direction = Arrays.copyOf(direction, n);
+                color = Arrays.copyOf(color, n);
+            }
+        }
+    }
+
+    private final Topology topology;
+
+    private byte[] buffer = new byte[1024];
+    private int length;
+
+    public FrameEncoder(Topology topology) {
+        this.topology = topology;
+    }
+
+    /**
+     * Quantizes the state of the creatures into {@code into}.
+     */
+    public void snapshot(long seq, List<? extends AbstractCreature> creatures, Snapshot into) {
+        int n = creatures.size();
+        double hw = topology.getHalfWidth();
+        double hh = topology.getHalfHeight();
+        double sx = 0xFFFF / topology.getWidth();
+        double sy = 0xFFFF / topology.getHeight();
+        double sd = 256 / (2 * PI);
+
+        into.ensure(n);
+        into.seq = seq;
+        into.count = n;
+        for (int i = 0; i < n; i++) {
+            AbstractCreature c = creatures.get(i);
+            double px = c.getPosition().getX();
+            double py = c.getPosition().getY();
+            into.x[i] = clamp((int) Math.round((px + hw) * sx));
+            into.y[i] = clamp((int) Math.round((py + hh) * sy));
+            into.direction[i] = (int) Math.round(c.getDirection() * sd) & 0xFF;
+            into.color[i] = c.getColor() & 0xFFFFFF;
+        }
+    }
+
+    private static int clamp(int q) {
+        return Math.max(0, Math.min(0xFFFF, q));
+    }
+
+    public byte[] key(Snapshot s) {
+        length = 4;
+        u8(KEY);
+        u32(s.seq);
+        u16((int) topology.getWidth());
+        u16((int) topology.getHeight());
+        u32(s.count);
+        for (int i = 0; i < s.count; i++) {
+            u16(s.x[i]);
+            u16(s.y[i]);
+            u8(s.direction[i]);
+            u24(s.color[i]);
+        }
+        return finish();
+    }
+
+    /**
+     * @return the changes from {@code base} to {@code s}, or a key frame if
+     *         the number of creatures changed
+     */
+    public byte[] delta(Snapshot base, Snapshot s) {
+        if (base.count != s.count) {
+            return key(s);
+        }
+        length = 4;
+        u8(DELTA);
+        u32(s.seq);
+        u32(base.seq);
+        u32(s.count);
+        int changedAt = length;
+        u32(0);
+
+        int changed = 0;
+        int previous = -1;
+        for (int i = 0; i < s.count; i++) {
+            int mask = (s.x[i] != base.x[i] ? X : 0)
+                    | (s.y[i] != base.y[i] ? Y : 0)
+                    | (s.direction[i] != base.direction[i] ? DIRECTION : 0)
+                    | (s.color[i] != base.color[i] ? COLOR : 0);
+            if (mask == 0) {
+                continue;
+            }
+            varint(i - previous - 1);
+            u8(mask);
+            if ((mask & X) != 0) {
+                u16(s.x[i]);
+            }
+            if ((mask & Y) != 0) {
+                u16(s.y[i]);
+            }
+            if ((mask & DIRECTION) != 0) {
+                u8(s.direction[i]);
+            }
+            if ((mask & COLOR) != 0) {
+                u24(s.color[i]);
+            }
+            previous = i;
+            changed++;
+        }
+
+        int end = length;
+        length = changedAt;
+        u32(changed);
+        length = end;
+        return finish();
+    }
+
+    // ----------------------------------------------------------------------------
+    // Output
+    // ----------------------------------------------------------------------------
+
+    private byte[] finish() {
+        int body = length - 4;
+        buffer[0] = (byte) (body >>> 24);
+        buffer[1] = (byte) (body >>> 16);
+        buffer[2] = (byte) (body >>> 8);
+        buffer[3] = (byte) body;
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private void reserve(int n) {
+        if (length + n > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + n));
+        }
+    }
+
+    private void u8(int v) {
+        reserve(1);
+        buffer[length++] = (byte) v;
+    }
+
+    private void u16(int v) {
+        reserve(2);
+        buffer[length++] = (byte) (v >>> 8);
+        buffer[length++] = (byte) v;
+    }
+
+    private void u24(int v) {
+        reserve(3);
+        buffer[length++] = (byte) (v >>> 16);
+        buffer[length++] = (byte) (v >>> 8);
+        buffer[length++] = (byte) v;
+    }
+
+    private void u32(long v) {
+        reserve(4);
+        buffer[length++] = (byte) (v >>> 24);
+        buffer[length++] = (byte) (v >>> 16);
+        buffer[length++] = (byte) (v >>> 8);
+        buffer[length++] = (byte) v;
+    }
+
+    private void varint(int v) {
+        reserve(5);
+        while ((v & ~0x7F) != 0) {
+            buffer[length++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buffer[length++] = (byte) v;
+    }
+}
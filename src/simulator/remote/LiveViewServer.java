@@ -0,0 +1,143 @@
+package simulator.remote;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP server of the live view:
+ * <ul>
+ * <li>{@code /} serves the browser client, a canvas fed by the stream.
+ * <li>{@code /stream[?fps=N]} streams the frames of a
+ * {@link FrameBroadcaster} in the format of {@link FrameEncoder}, at most
+ * {@code N} frames per second.
+ * </ul>
+ * Each viewer holds one thread of the server while it is connected.
+ */
+public class LiveViewServer {
+
+    private static final String CLIENT = "viewer.html";
+
+    private final FrameBroadcaster broadcaster;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    public LiveViewServer(int port, FrameBroadcaster broadcaster) throws IOException {
+        this.broadcaster = broadcaster;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "live-view");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                serveClient(exchange);
+            }
+        });
+        server.createContext("/stream", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                serveStream(exchange);
+            }
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Ends the streams and stops the server.
+     */
+    public void stop() {
+        broadcaster.close();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void serveClient(HttpExchange exchange) throws IOException {
+        try {
+            if (!"/".equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] page = readClient();
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, page.length);
+            exchange.getResponseBody().write(page);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private byte[] readClient() throws IOException {
+        InputStream in = LiveViewServer.class.getResourceAsStream(CLIENT);
+        if (in == null) {
+            throw new IOException("missing resource " + CLIENT);
+        }
+        try {
+            ByteArrayOutputStream page = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                page.write(buffer, 0, n);
+            }
+            return page.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private void serveStream(HttpExchange exchange) throws IOException {
+        try {
+            int minLayer = broadcaster.layerFor(frameRate(exchange.getRequestURI().getQuery()));
+            exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            // chunked: the length of the stream is not known
+            exchange.sendResponseHeaders(200, 0);
+
+            OutputStream out = exchange.getResponseBody();
+            broadcaster.stream(out, minLayer);
+        } catch (IOException e) {
+            // the viewer went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private double frameRate(String query) {
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith("fps=")) {
+                    try {
+                        return Double.parseDouble(param.substring(4));
+                    } catch (NumberFormatException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        return broadcaster.getMaxFrameRate();
+    }
+}
@@ -0,0 +1,48 @@
+package simulator.remote;
+
+import java.io.IOException;
+
+import creatures.CreatureBuilder;
+import creatures.behavior.BehaviorEngine;
+import simulator.World;
+
+/**
+ * Runs a simulation in real time and serves its live view.
+ *
+ * Usage: {@code RemoteLauncher [port [creatures [width height]]]}, then
+ * open {@code http://host:port/} in a browser; {@code http://host:port/?fps=10}
+ * limits the frame rate of a viewer.
+ */
+public class RemoteLauncher {
+
+    /** Delay between two ticks, the same as the Swing launcher. */
+    private static final long TICK_DELAY = 10;
+
+    private static final double MAX_FRAME_RATE = 30;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int number = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int width = args.length > 3 ? Integer.parseInt(args[2]) : 640;
+        int height = args.length > 3 ? Integer.parseInt(args[3]) : 480;
+
+        World world = new World(width, height);
+        world.addCreatures(new CreatureBuilder().createCreatures(world, number));
+        BehaviorEngine engine = BehaviorEngine.of(world);
+
+        FrameBroadcaster broadcaster = new FrameBroadcaster(world.getTopology(), MAX_FRAME_RATE);
+        LiveViewServer server = new LiveViewServer(port, broadcaster);
+        server.start();
+        System.out.println("live view on http://localhost:" + server.getPort() + "/");
+
+        while (true) {
+            long start = System.currentTimeMillis();
+            engine.tick();
+            broadcaster.publish(world.getCreatureList());
+            long left = TICK_DELAY - (System.currentTimeMillis() - start);
+            if (left > 0) {
+                Thread.sleep(left);
+            }
+        }
+    }
+}
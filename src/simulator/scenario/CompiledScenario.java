@@ -0,0 +1,267 @@
+package simulator.scenario;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import creatures.AbstractCreature;
+import creatures.Position;
+import creatures.Topology;
+import simulator.World;
+
+/**
+ * A scenario whose creatures are placed, held as one array per attribute.
+ *
+ * The binary form is the header followed by the arrays, little-endian and
+ * aligned so that reading it is a bulk copy of the mapped file into the
+ * arrays:
+ *
+ * <pre>
+ * magic:"SCNB" version:i32 width:f64 height:f64 topology:i32 seed:i64
+ * ticks:i32 count:i32 reserved:i32
+ * x:f64[count] y:f64[count] direction:f64[count] speed:f64[count]
+ * color:i32[count] type:u8[count]
+ * </pre>
+ */
+public class CompiledScenario {
+
+    private static final int MAGIC = 0x53434E42;
+    private static final int VERSION = 1;
+    private static final int HEADER = 48;
+
+    /** Below that many creatures they are created sequentially. */
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private static final String[] TOPOLOGIES = { "toroidal", "reflective", "bounded" };
+
+    final double width;
+    final double height;
+    final int topology;
+    final long seed;
+    final int ticks;
+    final int count;
+
+    final double[] x;
+    final double[] y;
+    final double[] direction;
+    final double[] speed;
+    final int[] color;
+    final byte[] types;
+
+    CompiledScenario(double width, double height, int topology, long seed, int ticks, int count) {
+        this.width = width;
+        this.height = height;
+        this.topology = topology;
+        this.seed = seed;
+        this.ticks = ticks;
+        this.count = count;
+        this.x = new double[count];
+        this.y = new double[count];
+        this.direction = new double[count];
+        this.speed = new double[count];
+        this.color = new int[count];
+        this.types = new byte[count];
+    }
+
+    static int topologyCode(String name) {
+        for (int i = 0; i < TOPOLOGIES.length; i++) {
+            if (TOPOLOGIES[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("unknown topology " + name);
+    }
+
+    static Topology topology(int code, double width, double height) {
+        switch (code) {
+        case 0:
+            return Topology.toroidal(width, height);
+        case 1:
+            return Topology.reflective(width, height);
+        case 2:
+            return Topology.bounded(width, height);
+        default:
+            throw new IllegalArgumentException("unknown topology code " + code);
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public Topology getTopology() {
+        return topology(topology, width, height);
+    }
+
+    /**
+     * Creates the world and its creatures, in parallel for the large
+     * scenarios.
+     */
+    public World createWorld() {
+        World world = new World(getTopology());
+        AbstractCreature[] creatures = new AbstractCreature[count];
+        if (count > PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new Create(world, creatures, 0, count));
+        } else {
+            create(world, creatures, 0, count);
+        }
+        world.addCreatures(Arrays.asList(creatures));
+        return world;
+    }
+
+    private void create(World world, AbstractCreature[] creatures, int from, int to) {
+        CreatureType[] all = CreatureType.values();
+        for (int i = from; i < to; i++) {
+            creatures[i] = all[types[i]].create(world, new Position(x[i], y[i]),
+                    direction[i], speed[i], color[i]);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class Create extends RecursiveAction {
+        private final World world;
+        private final AbstractCreature[] creatures;
+        private final int from;
+        private final int to;
+
+        Create(World world, AbstractCreature[] creatures, int from, int to) {
+            this.world = world;
+            this.creatures = creatures;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                create(world, creatures, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Create(world, creatures, from, mid), new Create(world, creatures, mid, to));
+        }
+    }
+
+    // ----------------------------------------------------------------------------
+    // Binary form
+    // ----------------------------------------------------------------------------
+
+    /**
+     * @return true if the file starts like a compiled scenario
+     */
+    public static boolean isCompiled(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            return file.length() >= HEADER && in.readInt() == MAGIC;
+        } finally {
+            in.close();
+        }
+    }
+
+    public void write(File file) throws IOException {
+        long size = HEADER + 37L * count;
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.setLength(size);
+            MappedByteBuffer buffer = out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            // the magic number is read big-endian, as the text "SCNB"
+            buffer.putInt(MAGIC);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(VERSION);
+            buffer.putDouble(width);
+            buffer.putDouble(height);
+            buffer.putInt(topology);
+            buffer.putLong(seed);
+            buffer.putInt(ticks);
+            buffer.putInt(count);
+            buffer.putInt(0);
+
+            put(buffer, x);
+            put(buffer, y);
+            put(buffer, direction);
+            put(buffer, speed);
+            buffer.asIntBuffer().put(color);
+            buffer.position(buffer.position() + 4 * count);
+            buffer.put(types);
+            buffer.force();
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void put(ByteBuffer buffer, double[] values) {
+        buffer.asDoubleBuffer().put(values);
+        buffer.position(buffer.position() + 8 * values.length);
+    }
+
+    public static CompiledScenario read(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            MappedByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+            if (in.length() < HEADER || buffer.getInt() != MAGIC) {
+                throw new IOException(file + ": not a compiled scenario");
+            }
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException(file + ": unsupported version " + version);
+            }
+            double width = buffer.getDouble();
+            double height = buffer.getDouble();
+            int at = buffer.position();
+            int topology = buffer.getInt();
+            if (topology < 0 || topology >= TOPOLOGIES.length) {
+                throw new IOException(file + ": offset " + at + ": unknown topology code " + topology);
+            }
+            long seed = buffer.getLong();
+            int ticks = buffer.getInt();
+            int count = buffer.getInt();
+            buffer.getInt();
+            if (in.length() != HEADER + 37L * count) {
+                throw new IOException(file + ": truncated");
+            }
+
+            CompiledScenario c = new CompiledScenario(width, height, topology, seed, ticks, count);
+            get(buffer, c.x);
+            get(buffer, c.y);
+            get(buffer, c.direction);
+            get(buffer, c.speed);
+            buffer.asIntBuffer().get(c.color);
+            buffer.position(buffer.position() + 4 * count);
+            at = buffer.position();
+            buffer.get(c.types);
+            int known = CreatureType.values().length;
+            for (int i = 0; i < count; i++) {
+                if (c.types[i] < 0 || c.types[i] >= known) {
+                    throw new IOException(file + ": offset " + (at + i) + ": unknown creature type "
+                            + (c.types[i] & 0xFF));
+                }
+            }
+            return c;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void get(ByteBuffer buffer, double[] values) {
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + 8 * values.length);
+    }
+}
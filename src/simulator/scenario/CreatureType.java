@@ -0,0 +1,61 @@
+package simulator.scenario;
+
+import creatures.AbstractCreature;
+import creatures.BouncingCreature;
+import creatures.IEnvironment;
+import creatures.Position;
+import creatures.SmartCreature;
+import creatures.StupidCreature;
+
+/**
+ * The creatures a scenario can create, with their name in the text format
+ * and their code in the binary one.
+ */
+public enum CreatureType {
+
+    STUPID("stupid") {
+        AbstractCreature create(IEnvironment environment, Position position,
+                                double direction, double speed, int color) {
+            return new StupidCreature(environment, position, direction, speed, color);
+        }
+    },
+
+    BOUNCING("bouncing") {
+        AbstractCreature create(IEnvironment environment, Position position,
+                                double direction, double speed, int color) {
+            return new BouncingCreature(environment, position, direction, speed, color);
+        }
+    },
+
+    SMART("smart") {
+        AbstractCreature create(IEnvironment environment, Position position,
+                                double direction, double speed, int color) {
+            return new SmartCreature(environment, position, direction, speed, color);
+        }
+    };
+
+    private final String name;
+
+    CreatureType(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    abstract AbstractCreature create(IEnvironment environment, Position position,
+                                     double direction, double speed, int color);
+
+    /**
+     * @return the type of the given name, null if there is none
+     */
+    public static CreatureType named(String name) {
+        for (CreatureType t : values()) {
+            if (t.name.equals(name)) {
+                return t;
+            }
+        }
+        return null;
+    }
+}
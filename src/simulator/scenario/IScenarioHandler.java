@@ -0,0 +1,19 @@
+package simulator.scenario;
+
+/**
+ * Receives the statements of a scenario file as {@link ScenarioParser}
+ * reads them.
+ */
+public interface IScenarioHandler {
+
+    /**
+     * @param topology {@code toroidal}, {@code reflective} or {@code bounded}
+     */
+    public void world(double width, double height, String topology);
+
+    public void seed(long seed);
+
+    public void ticks(int ticks);
+
+    public void population(Population population);
+}
@@ -0,0 +1,126 @@
+package simulator.scenario;
+
+/**
+ * A group of creatures of a scenario: their type, how many they are, where
+ * they start and the range of their initial speed and direction.
+ */
+public class Population {
+
+    /** How the creatures of a population are placed. */
+    public enum Distribution {
+        /** Uniformly over the whole world. */
+        UNIFORM,
+        /** Uniformly in a disk of the given center and radius. */
+        CLUSTER,
+        /** On a regular grid covering the whole world. */
+        GRID
+    }
+
+    /** Color of a population taking its colors from the color cube. */
+    public static final int GRADIENT = 0;
+
+    final CreatureType type;
+    final int count;
+
+    Distribution distribution = Distribution.UNIFORM;
+    double centerX;
+    double centerY;
+    double radius;
+
+    double minSpeed = 0;
+    double maxSpeed = 10;
+
+    double minDirection = 0;
+    double maxDirection = 2 * Math.PI;
+
+    /** 0xAARRGGBB, or {@link #GRADIENT}. */
+    int color = GRADIENT;
+
+    public Population(CreatureType type, int count) {
+        this.type = type;
+        this.count = count;
+    }
+
+    public CreatureType getType() {
+        return type;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public Distribution getDistribution() {
+        return distribution;
+    }
+
+    public double getCenterX() {
+        return centerX;
+    }
+
+    public double getCenterY() {
+        return centerY;
+    }
+
+    public double getRadius() {
+        return radius;
+    }
+
+    public double getMinSpeed() {
+        return minSpeed;
+    }
+
+    public double getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    public double getMinDirection() {
+        return minDirection;
+    }
+
+    public double getMaxDirection() {
+        return maxDirection;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public Population uniform() {
+        distribution = Distribution.UNIFORM;
+        return this;
+    }
+
+    public Population cluster(double x, double y, double radius) {
+        this.distribution = Distribution.CLUSTER;
+        this.centerX = x;
+        this.centerY = y;
+        this.radius = radius;
+        return this;
+    }
+
+    public Population grid() {
+        distribution = Distribution.GRID;
+        return this;
+    }
+
+    public Population speed(double min, double max) {
+        this.minSpeed = min;
+        this.maxSpeed = max;
+        return this;
+    }
+
+    public Population direction(double min, double max) {
+        this.minDirection = min;
+        this.maxDirection = max;
+        return this;
+    }
+
+    public Population color(int color) {
+        this.color = color;
+        return this;
+    }
+
+    public String toString() {
+        return count + " " + type.getName() + " " + distribution.name().toLowerCase();
+    }
+}
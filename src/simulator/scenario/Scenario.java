@@ -0,0 +1,186 @@
+package simulator.scenario;
+
+import static java.lang.Math.PI;
+import static java.lang.Math.cos;
+import static java.lang.Math.pow;
+import static java.lang.Math.sin;
+import static java.lang.Math.sqrt;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import creatures.CreatureBuilder;
+import creatures.Position;
+import creatures.Topology;
+
+/**
+ * A reproducible initial state: the world, the populations of creatures and
+ * the seed used to place them. See {@link ScenarioParser} for the text form
+ * and {@link CompiledScenario} for the binary one.
+ */
+public class Scenario implements IScenarioHandler {
+
+    private double width = 640;
+    private double height = 480;
+    private String topology = "toroidal";
+    private long seed;
+    private int ticks = 100;
+    private final List<Population> populations = new ArrayList<Population>();
+
+    public static Scenario read(Reader input) throws IOException {
+        Scenario scenario = new Scenario();
+        new ScenarioParser(scenario).parse(input);
+        return scenario;
+    }
+
+    public static Scenario read(File file) throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+        try {
+            return read(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    // ----------------------------------------------------------------------------
+    // IScenarioHandler
+    // ----------------------------------------------------------------------------
+
+    public void world(double width, double height, String topology) {
+        this.width = width;
+        this.height = height;
+        this.topology = topology;
+    }
+
+    public void seed(long seed) {
+        this.seed = seed;
+    }
+
+    public void ticks(int ticks) {
+        this.ticks = ticks;
+    }
+
+    public void population(Population population) {
+        populations.add(population);
+    }
+
+    // ----------------------------------------------------------------------------
+    // Getters
+    // ----------------------------------------------------------------------------
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    public String getTopology() {
+        return topology;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public List<Population> getPopulations() {
+        return Collections.unmodifiableList(populations);
+    }
+
+    public int getCount() {
+        int n = 0;
+        for (Population p : populations) {
+            n += p.count;
+        }
+        return n;
+    }
+
+    // ----------------------------------------------------------------------------
+    // Compilation
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Places the creatures. The same scenario always gives the same
+     * creatures.
+     */
+    public CompiledScenario compile() {
+        int code = CompiledScenario.topologyCode(topology);
+        Topology t = CompiledScenario.topology(code, width, height);
+        CompiledScenario c = new CompiledScenario(width, height, code, seed, ticks, getCount());
+        Random rand = new Random(seed);
+
+        int gradient = 0;
+        for (Population p : populations) {
+            if (p.color == Population.GRADIENT) {
+                gradient += p.count;
+            }
+        }
+        // the color cube walked like CreatureBuilder does
+        float phase = (float) (1.0 / pow(gradient, 1.0 / 3.0));
+        float r = 0.0f;
+        float g = 0.0f;
+        float b = 0.0f;
+
+        Position position = new Position();
+        int i = 0;
+        for (Population p : populations) {
+            int cols = (int) Math.ceil(sqrt(p.count * width / height));
+            int rows = cols == 0 ? 0 : (p.count + cols - 1) / cols;
+            for (int k = 0; k < p.count; k++, i++) {
+                switch (p.distribution) {
+                case CLUSTER:
+                    double angle = rand.nextDouble() * 2 * PI;
+                    double distance = p.radius * sqrt(rand.nextDouble());
+                    position.x = p.centerX + distance * cos(angle);
+                    position.y = p.centerY + distance * sin(angle);
+                    break;
+                case GRID:
+                    position.x = -width / 2 + (k % cols + 0.5) * width / cols;
+                    position.y = -height / 2 + (k / cols + 0.5) * height / rows;
+                    break;
+                default:
+                    position.x = rand.nextDouble() * width - width / 2;
+                    position.y = rand.nextDouble() * height - height / 2;
+                }
+                t.constrain(position);
+
+                c.types[i] = (byte) p.type.ordinal();
+                c.x[i] = position.x;
+                c.y[i] = position.y;
+                c.direction[i] = p.minDirection + rand.nextDouble() * (p.maxDirection - p.minDirection);
+                c.speed[i] = p.minSpeed + rand.nextDouble() * (p.maxSpeed - p.minSpeed);
+
+                if (p.color != Population.GRADIENT) {
+                    c.color[i] = p.color;
+                    continue;
+                }
+                r += phase;
+                if (r > 1.0) {
+                    r -= 1.0f;
+                    g += phase;
+                    if (g > 1.0) {
+                        g -= 1.0f;
+                        b += phase;
+                        if (b > 1.0)
+                            b -= 1.0f;
+                    }
+                }
+                c.color[i] = CreatureBuilder.rgb(r, g, b);
+            }
+        }
+        return c;
+    }
+}
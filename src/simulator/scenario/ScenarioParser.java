@@ -0,0 +1,214 @@
+package simulator.scenario;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming parser of the text form of the scenarios, one statement per
+ * line, each statement being handed to an {@link IScenarioHandler} as soon as
+ * it is read:
+ *
+ * <pre>
+ * # comment
+ * world &lt;width&gt; &lt;height&gt; [toroidal|reflective|bounded]
+ * seed &lt;seed&gt;
+ * ticks &lt;ticks&gt;
+ * population &lt;stupid|bouncing|smart&gt; &lt;count&gt; [key=value...]
+ * </pre>
+ *
+ * The keys of a population are:
+ * <ul>
+ * <li>{@code distribution=uniform|grid|cluster}, a cluster also needs
+ * {@code x=}, {@code y=} and {@code radius=};
+ * <li>{@code speed=<min>..<max>} or {@code speed=<value>}, in pixels per tick;
+ * <li>{@code direction=<min>..<max>} or {@code direction=<value>}, in radians;
+ * <li>{@code color=#RRGGBB} or {@code color=gradient}.
+ * </ul>
+ */
+public class ScenarioParser {
+
+    private final IScenarioHandler handler;
+
+    private int line;
+
+    public ScenarioParser(IScenarioHandler handler) {
+        this.handler = handler;
+    }
+
+    public void parse(Reader input) throws IOException {
+        BufferedReader reader = new BufferedReader(input);
+        line = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            text = stripComment(text).trim();
+            if (!text.isEmpty()) {
+                statement(text.split("\\s+"));
+            }
+        }
+    }
+
+    /**
+     * A comment starts with a {@code #} at the beginning of a word, the
+     * {@code #} of the colors is not one.
+     */
+    private static String stripComment(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '#' && (i == 0 || Character.isWhitespace(text.charAt(i - 1)))) {
+                return text.substring(0, i);
+            }
+        }
+        return text;
+    }
+
+    private void statement(String[] words) throws IOException {
+        String keyword = words[0];
+        if ("world".equals(keyword)) {
+            arguments(words, 3, 4);
+            String topology = words.length > 3 ? words[3] : "toroidal";
+            if (!topology.matches("toroidal|reflective|bounded")) {
+                throw error("unknown topology " + topology);
+            }
+            handler.world(positive(words[1]), positive(words[2]), topology);
+        } else if ("seed".equals(keyword)) {
+            arguments(words, 2, 2);
+            try {
+                handler.seed(Long.parseLong(words[1]));
+            } catch (NumberFormatException e) {
+                throw error("invalid seed " + words[1]);
+            }
+        } else if ("ticks".equals(keyword)) {
+            arguments(words, 2, 2);
+            handler.ticks(count(words[1]));
+        } else if ("population".equals(keyword)) {
+            handler.population(population(words));
+        } else {
+            throw error("unknown statement " + keyword);
+        }
+    }
+
+    private Population population(String[] words) throws IOException {
+        if (words.length < 3) {
+            throw error("population needs a type and a count");
+        }
+        CreatureType type = CreatureType.named(words[1]);
+        if (type == null) {
+            throw error("unknown creature type " + words[1]);
+        }
+        Population p = new Population(type, count(words[2]));
+
+        String distribution = "uniform";
+        double x = Double.NaN;
+        double y = Double.NaN;
+        double radius = Double.NaN;
+        for (int i = 3; i < words.length; i++) {
+            int eq = words[i].indexOf('=');
+            if (eq <= 0) {
+                throw error("expected key=value instead of " + words[i]);
+            }
+            String key = words[i].substring(0, eq);
+            String value = words[i].substring(eq + 1);
+
+            if ("distribution".equals(key)) {
+                distribution = value;
+            } else if ("x".equals(key)) {
+                x = number(value);
+            } else if ("y".equals(key)) {
+                y = number(value);
+            } else if ("radius".equals(key)) {
+                radius = positive(value);
+            } else if ("speed".equals(key)) {
+                double[] range = range(value);
+                p.speed(range[0], range[1]);
+            } else if ("direction".equals(key)) {
+                double[] range = range(value);
+                p.direction(range[0], range[1]);
+            } else if ("color".equals(key)) {
+                p.color(color(value));
+            } else {
+                throw error("unknown key " + key);
+            }
+        }
+
+        if ("uniform".equals(distribution)) {
+            p.uniform();
+        } else if ("grid".equals(distribution)) {
+            p.grid();
+        } else if ("cluster".equals(distribution)) {
+            if (Double.isNaN(x) || Double.isNaN(y) || Double.isNaN(radius)) {
+                throw error("a cluster needs x, y and radius");
+            }
+            p.cluster(x, y, radius);
+        } else {
+            throw error("unknown distribution " + distribution);
+        }
+        return p;
+    }
+
+    // ----------------------------------------------------------------------------
+    // Values
+    // ----------------------------------------------------------------------------
+
+    private void arguments(String[] words, int min, int max) throws IOException {
+        if (words.length < min || words.length > max) {
+            throw error("wrong number of arguments for " + words[0]);
+        }
+    }
+
+    private double number(String s) throws IOException {
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw error("invalid number " + s);
+        }
+    }
+
+    private double positive(String s) throws IOException {
+        double d = number(s);
+        if (!(d > 0)) {
+            throw error("expected a positive number instead of " + s);
+        }
+        return d;
+    }
+
+    private int count(String s) throws IOException {
+        try {
+            int n = Integer.parseInt(s);
+            if (n >= 0) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw error("invalid count " + s);
+    }
+
+    private double[] range(String s) throws IOException {
+        int dots = s.indexOf("..");
+        if (dots < 0) {
+            double d = number(s);
+            return new double[] { d, d };
+        }
+        double min = number(s.substring(0, dots));
+        double max = number(s.substring(dots + 2));
+        if (min > max) {
+            throw error("empty range " + s);
+        }
+        return new double[] { min, max };
+    }
+
+    private int color(String s) throws IOException {
+        if ("gradient".equals(s)) {
+            return Population.GRADIENT;
+        }
+        if (s.matches("#[0-9a-fA-F]{6}")) {
+            return 0xFF000000 | Integer.parseInt(s.substring(1), 16);
+        }
+        throw error("invalid color " + s);
+    }
+
+    private IOException error(String message) {
+        return new IOException("line " + line + ": " + message);
+    }
+}
@@ -0,0 +1,63 @@
+package simulator.scenario;
+
+import java.io.File;
+import java.io.IOException;
+
+import creatures.behavior.BehaviorEngine;
+import simulator.World;
+
+/**
+ * Command line tool for the scenarios:
+ * <ul>
+ * <li>{@code ScenarioRunner compile <scenario> <compiled>} compiles a text
+ * scenario into the binary form;
+ * <li>{@code ScenarioRunner run <scenario or compiled> [ticks]} runs it
+ * without any user interface.
+ * </ul>
+ */
+public class ScenarioRunner {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && "compile".equals(args[0])) {
+            compile(new File(args[1]), new File(args[2]));
+        } else if ((args.length == 2 || args.length == 3) && "run".equals(args[0])) {
+            run(new File(args[1]), args.length > 2 ? Integer.parseInt(args[2]) : -1);
+        } else {
+            System.err.println("usage: ScenarioRunner compile <scenario> <compiled>");
+            System.err.println("       ScenarioRunner run <scenario or compiled> [ticks]");
+            System.exit(2);
+        }
+    }
+
+    private static void compile(File in, File out) throws IOException {
+        CompiledScenario c = Scenario.read(in).compile();
+        c.write(out);
+        System.out.println(out + ": " + c.getCount() + " creatures");
+    }
+
+    private static CompiledScenario load(File file) throws IOException {
+        if (CompiledScenario.isCompiled(file)) {
+            return CompiledScenario.read(file);
+        }
+        return Scenario.read(file).compile();
+    }
+
+    private static void run(File file, int ticks) throws IOException {
+        long start = System.nanoTime();
+        CompiledScenario c = load(file);
+        World world = c.createWorld();
+        BehaviorEngine engine = BehaviorEngine.of(world);
+        long loaded = System.nanoTime();
+
+        if (ticks < 0) {
+            ticks = c.getTicks();
+        }
+        for (int i = 0; i < ticks; i++) {
+            engine.tick();
+        }
+        long end = System.nanoTime();
+
+        System.out.println(c.getCount() + " creatures loaded in " + (loaded - start) / 1000000
+                + " ms, " + ticks + " ticks in " + (end - loaded) / 1000000 + " ms");
+    }
+}
@@ -0,0 +1,162 @@
+package simulator.spatial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import creatures.AbstractCreature;
+import creatures.CreaturesAroundCreature;
+import creatures.Topology;
+
+/**
+ * Common part of the spatial indexes: snapshot of the positions taken at
+ * rebuild time, distances according to the topology of the world and the
+ * field of view filtering.
+ */
+public abstract class AbstractSpatialIndex implements ISpatialIndex {
+
+    protected final Topology topology;
+    protected final double width;
+    protected final double height;
+    protected final double halfWidth;
+    protected final double halfHeight;
+
+    /** Indexed creatures, the first {@link #count} ones are valid. */
+    protected AbstractCreature[] creatures = new AbstractCreature[0];
+
+    /** Positions of the creatures at rebuild time. */
+    protected double[] xs = new double[0];
+    protected double[] ys = new double[0];
+
+    protected int count;
+
+    public AbstractSpatialIndex(Topology topology) {
+        this.topology = topology;
+        this.width = topology.getWidth();
+        this.height = topology.getHeight();
+        this.halfWidth = topology.getHalfWidth();
+        this.halfHeight = topology.getHalfHeight();
+    }
+
+    public void rebuild(List<? extends AbstractCreature> list) {
+        count = list.size();
+        if (creatures.length < count) {
+            creatures = new AbstractCreature[count];
+            xs = new double[count];
+            ys = new double[count];
+        } else {
+            // let the removed creatures be collected
+            Arrays.fill(creatures, count, creatures.length, null);
+        }
+
+        for (int i = 0; i < count; i++) {
+            AbstractCreature c = list.get(i);
+            c.setIndex(i);
+            creatures[i] = c;
+            xs[i] = c.getPosition().getX();
+            ys[i] = c.getPosition().getY();
+        }
+
+        build();
+    }
+
+    /**
+     * Builds the structure once {@link #creatures}, {@link #xs} and
+     * {@link #ys} are filled.
+     */
+    protected abstract void build();
+
+    public int size() {
+        return count;
+    }
+
+    public List<AbstractCreature> creaturesAround(AbstractCreature observer) {
+        List<AbstractCreature> result = new ArrayList<AbstractCreature>();
+        within(observer.getPosition().getX(), observer.getPosition().getY(),
+                observer.getVisionDistance(), new CreaturesAroundCreature(observer), result);
+        return result;
+    }
+
+    /** Scratch buffers of the queries, one per thread since they run concurrently. */
+    private static final ThreadLocal<int[]> SCRATCH = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[64];
+        }
+    };
+
+    /**
+     * A buffer of at least {@code size} ints private to the calling thread,
+     * to be used only until the query returns.
+     */
+    protected static int[] scratch(int size) {
+        int[] buffer = SCRATCH.get();
+        if (buffer.length < size) {
+            buffer = new int[Math.max(size, buffer.length * 2)];
+            SCRATCH.set(buffer);
+        }
+        return buffer;
+    }
+
+    protected double distanceSq(double x, double y, int i) {
+        return topology.distanceSq(x, y, xs[i], ys[i]);
+    }
+
+    // ----------------------------------------------------------------------------
+    // k nearest
+    // ----------------------------------------------------------------------------
+
+    /**
+     * The k best candidates found so far, sorted by increasing distance.
+     */
+    protected static class NearestQueue {
+        private final int[] ids;
+        private final double[] distances;
+        private int size;
+
+        public NearestQueue(int k) {
+            ids = new int[k];
+            distances = new double[k];
+        }
+
+        /**
+         * @return the squared distance a candidate must beat to get in
+         */
+        public double worst() {
+            return size < ids.length ? Double.POSITIVE_INFINITY : distances[size - 1];
+        }
+
+        public void offer(int id, double distanceSq) {
+            if (distanceSq >= worst()) {
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    // already found through another image of the world
+                    return;
+                }
+            }
+
+            int i = size < ids.length ? size++ : size - 1;
+            while (i > 0 && distances[i - 1] > distanceSq) {
+                ids[i] = ids[i - 1];
+                distances[i] = distances[i - 1];
+                i--;
+            }
+            ids[i] = id;
+            distances[i] = distanceSq;
+        }
+
+        public boolean isFull() {
+            return size == ids.length;
+        }
+
+        public List<AbstractCreature> toList(AbstractCreature[] creatures) {
+            List<AbstractCreature> result = new ArrayList<AbstractCreature>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(creatures[ids[i]]);
+            }
+            return result;
+        }
+    }
+}
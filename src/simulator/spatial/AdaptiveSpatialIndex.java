@@ -0,0 +1,88 @@
+package simulator.spatial;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import commons.Utils.Predicate;
+import creatures.AbstractCreature;
+import creatures.Topology;
+
+/**
+ * Picks a {@link UniformGrid} or a {@link KdTree} at each rebuild depending
+ * on how clustered the creatures are (see {@link UniformGrid#crowding}).
+ */
+public class AdaptiveSpatialIndex implements ISpatialIndex {
+
+    /**
+     * Above that crowding the flocks are tight enough for the tree to beat
+     * the grid.
+     */
+    public static final double DEFAULT_CROWDING_THRESHOLD = 8;
+
+    private final Topology topology;
+    private final double cellSize;
+    private final double threshold;
+
+    private final UniformGrid grid;
+    private final KdTree tree;
+
+    private ISpatialIndex current;
+
+    private double crowding = 1;
+
+    public AdaptiveSpatialIndex(Topology topology, double cellSize, double threshold, ForkJoinPool pool) {
+        this.topology = topology;
+        this.cellSize = cellSize;
+        this.threshold = threshold;
+        this.grid = new UniformGrid(topology, cellSize);
+        this.tree = new KdTree(topology, pool);
+        this.current = grid;
+    }
+
+    public AdaptiveSpatialIndex(Topology topology, double cellSize, double threshold) {
+        this(topology, cellSize, threshold, ForkJoinPool.commonPool());
+    }
+
+    public AdaptiveSpatialIndex(Topology topology) {
+        this(topology, AbstractCreature.DEFAULT_VISION_DISTANCE, DEFAULT_CROWDING_THRESHOLD);
+    }
+
+    public void rebuild(List<? extends AbstractCreature> creatures) {
+        crowding = UniformGrid.crowding(creatures, topology, cellSize);
+        current = crowding > threshold ? tree : grid;
+        current.rebuild(creatures);
+    }
+
+    /**
+     * @return the index chosen at the last rebuild
+     */
+    public ISpatialIndex getCurrent() {
+        return current;
+    }
+
+    /**
+     * @return the crowding measured at the last rebuild
+     */
+    public double getCrowding() {
+        return crowding;
+    }
+
+    public void within(double x, double y, double radius,
+                       Predicate<? super AbstractCreature> filter,
+                       Collection<? super AbstractCreature> result) {
+        current.within(x, y, radius, filter, result);
+    }
+
+    public List<AbstractCreature> creaturesAround(AbstractCreature observer) {
+        return current.creaturesAround(observer);
+    }
+
+    public List<AbstractCreature> nearest(AbstractCreature observer, int k) {
+        return current.nearest(observer, k);
+    }
+
+    public int size() {
+        return current.size();
+    }
+}
@@ -0,0 +1,54 @@
+package simulator.spatial;
+
+import java.util.Collection;
+import java.util.List;
+
+import commons.Utils.Predicate;
+import creatures.AbstractCreature;
+
+/**
+ * Spatial index answering the neighbour queries of the environment. The
+ * positions are captured by {@link #rebuild(List)}, usually once per tick,
+ * queries are answered against that snapshot and can be run concurrently.
+ *
+ * Distances follow the {@link creatures.Topology} of the world: in a
+ * toroidal one, a creature standing close to an edge has neighbours just
+ * across the opposite edge.
+ */
+public interface ISpatialIndex {
+
+    /**
+     * Rebuilds the index from the current positions of the creatures, and
+     * sets the {@link AbstractCreature#getIndex() index} of each creature to
+     * its position in the list.
+     */
+    public void rebuild(List<? extends AbstractCreature> creatures);
+
+    /**
+     * Adds to {@code result} the creatures standing within {@code radius} of
+     * the point {@code (x, y)} and accepted by {@code filter}.
+     *
+     * @param filter
+     *            may be null to accept all the creatures in range
+     */
+    public void within(double x, double y, double radius,
+                       Predicate<? super AbstractCreature> filter,
+                       Collection<? super AbstractCreature> result);
+
+    /**
+     * Creatures seen by {@code observer}: within its vision distance and in
+     * its field of view.
+     */
+    public List<AbstractCreature> creaturesAround(AbstractCreature observer);
+
+    /**
+     * The {@code k} creatures closest to {@code observer}, closest first,
+     * observer excluded.
+     */
+    public List<AbstractCreature> nearest(AbstractCreature observer, int k);
+
+    /**
+     * Number of creatures indexed by the last rebuild.
+     */
+    public int size();
+}
@@ -0,0 +1,24 @@
+package simulator.spatial;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of ints, reused from one rebuild to the next.
+ */
+class IntList {
+
+    int[] items = new int[64];
+
+    int size;
+
+    void add(int value) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+        }
+        items[size++] = value;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
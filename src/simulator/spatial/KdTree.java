@@ -0,0 +1,378 @@
+package simulator.spatial;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import commons.Utils.Predicate;
+import creatures.AbstractCreature;
+import creatures.Topology;
+import creatures.Vision;
+
+/**
+ * Implicit 2-d tree: the positions are reordered in place so that the node
+ * covering the range [lo, hi) has its median at (lo + hi) / 2, everything
+ * before it on the lower side along the node axis and everything after on
+ * the upper side. The axis alternates with the depth, X first.
+ *
+ * Unlike a grid it adapts to the density, which makes it the better choice
+ * once the creatures gather in tight flocks. The two halves of a node are
+ * independent, so the tree is built with a fork/join recursion.
+ */
+public class KdTree extends AbstractSpatialIndex {
+
+    /** Ranges up to that size are scanned linearly. */
+    private static final int LEAF_SIZE = 16;
+
+    /** Ranges smaller than that are built sequentially. */
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    private final ForkJoinPool pool;
+
+    /** Positions and creature indexes, in tree order. */
+    private double[] px = new double[0];
+    private double[] py = new double[0];
+    private int[] ids = new int[0];
+
+    public KdTree(Topology topology, ForkJoinPool pool) {
+        super(topology);
+        this.pool = pool;
+    }
+
+    public KdTree(Topology topology) {
+        this(topology, ForkJoinPool.commonPool());
+    }
+
+    @Override
+    protected void build() {
+        if (ids.length < count) {
+            px = new double[count];
+            py = new double[count];
+            ids = new int[count];
+        }
+        System.arraycopy(xs, 0, px, 0, count);
+        System.arraycopy(ys, 0, py, 0, count);
+        for (int i = 0; i < count; i++) {
+            ids[i] = i;
+        }
+
+        if (count > PARALLEL_THRESHOLD) {
+            pool.invoke(new Build(0, count, 0));
+        } else {
+            build(0, count, 0);
+        }
+    }
+
+    private void build(int lo, int hi, int depth) {
+        while (hi - lo > LEAF_SIZE) {
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi, mid, depth & 1);
+            build(lo, mid, depth + 1);
+            lo = mid + 1;
+            depth++;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class Build extends RecursiveAction {
+        private final int lo;
+        private final int hi;
+        private final int depth;
+
+        Build(int lo, int hi, int depth) {
+            this.lo = lo;
+            this.hi = hi;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= PARALLEL_THRESHOLD) {
+                build(lo, hi, depth);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi, mid, depth & 1);
+            invokeAll(new Build(lo, mid, depth + 1), new Build(mid + 1, hi, depth + 1));
+        }
+    }
+
+    /**
+     * Quickselect: puts at k the element that would be there if [lo, hi)
+     * were sorted along the axis, smaller ones before, bigger ones after.
+     */
+    private void select(int lo, int hi, int k, int axis) {
+        double[] v = axis == 0 ? px : py;
+        hi--;
+        while (hi > lo) {
+            double pivot = v[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (v[i] < pivot) {
+                    i++;
+                }
+                while (v[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        double x = px[i];
+        px[i] = px[j];
+        px[j] = x;
+        double y = py[i];
+        py[i] = py[j];
+        py[j] = y;
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+
+    // ----------------------------------------------------------------------------
+    // Range query
+    // ----------------------------------------------------------------------------
+
+    /**
+     * In a toroidal world the query disc is searched once for each image of
+     * the world it overlaps. A disc reaching half of the world size would
+     * overlap an image on both sides and find the same creature twice, so
+     * it is answered by a single pass over all the creatures instead.
+     */
+    public void within(double x, double y, double radius,
+                       Predicate<? super AbstractCreature> filter,
+                       Collection<? super AbstractCreature> result) {
+        double r2 = radius * radius;
+        if (coversWorld(radius)) {
+            for (int i = 0; i < count; i++) {
+                if (distanceSq(x, y, i) <= r2 && (filter == null || filter.apply(creatures[i]))) {
+                    result.add(creatures[i]);
+                }
+            }
+            return;
+        }
+        double ox = imageOffset(x, radius, halfWidth, width);
+        double oy = imageOffset(y, radius, halfHeight, height);
+
+        within(0, count, 0, x, y, radius, r2, filter, result);
+        if (ox != 0) {
+            within(0, count, 0, x + ox, y, radius, r2, filter, result);
+        }
+        if (oy != 0) {
+            within(0, count, 0, x, y + oy, radius, r2, filter, result);
+        }
+        if (ox != 0 && oy != 0) {
+            within(0, count, 0, x + ox, y + oy, radius, r2, filter, result);
+        }
+    }
+
+    /**
+     * Whether a disc of that radius would overlap the images of the world on
+     * both sides along an axis.
+     */
+    private boolean coversWorld(double radius) {
+        return topology.wraps() && (radius >= halfWidth || radius >= halfHeight);
+    }
+
+    /**
+     * Offset of the image of the world overlapped by [p - radius, p + radius]
+     * along one axis, 0 if none or if the world does not wrap.
+     */
+    private double imageOffset(double p, double radius, double half, double extent) {
+        if (!topology.wraps()) {
+            return 0;
+        }
+        return p - radius < -half ? extent : (p + radius > half ? -extent : 0);
+    }
+
+    private void within(int lo, int hi, int depth, double x, double y, double radius, double r2,
+                        Predicate<? super AbstractCreature> filter,
+                        Collection<? super AbstractCreature> result) {
+        while (hi - lo > LEAF_SIZE) {
+            int mid = (lo + hi) >>> 1;
+            accept(mid, x, y, r2, filter, result);
+
+            double d = (depth & 1) == 0 ? x - px[mid] : y - py[mid];
+            if (d <= radius && d >= -radius) {
+                within(lo, mid, depth + 1, x, y, radius, r2, filter, result);
+                lo = mid + 1;
+            } else if (d < 0) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+            depth++;
+        }
+        for (int i = lo; i < hi; i++) {
+            accept(i, x, y, r2, filter, result);
+        }
+    }
+
+    private void accept(int i, double x, double y, double r2,
+                        Predicate<? super AbstractCreature> filter,
+                        Collection<? super AbstractCreature> result) {
+        double dx = px[i] - x;
+        double dy = py[i] - y;
+        if (dx * dx + dy * dy <= r2) {
+            AbstractCreature c = creatures[ids[i]];
+            if (filter == null || filter.apply(c)) {
+                result.add(c);
+            }
+        }
+    }
+
+    // ----------------------------------------------------------------------------
+    // Field of view query
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Same traversal as {@link #within}, the leaves being tested at once with
+     * {@link Vision#filter}.
+     */
+    @Override
+    public List<AbstractCreature> creaturesAround(AbstractCreature observer) {
+        double radius = observer.getVisionDistance();
+        if (coversWorld(radius)) {
+            return super.creaturesAround(observer);
+        }
+        List<AbstractCreature> result = new ArrayList<AbstractCreature>();
+        double x = observer.getPosition().getX();
+        double y = observer.getPosition().getY();
+        double ox = imageOffset(x, radius, halfWidth, width);
+        double oy = imageOffset(y, radius, halfHeight, height);
+        int[] hits = scratch(LEAF_SIZE);
+
+        around(0, count, 0, x, y, radius, observer, hits, result);
+        if (ox != 0) {
+            around(0, count, 0, x + ox, y, radius, observer, hits, result);
+        }
+        if (oy != 0) {
+            around(0, count, 0, x, y + oy, radius, observer, hits, result);
+        }
+        if (ox != 0 && oy != 0) {
+            around(0, count, 0, x + ox, y + oy, radius, observer, hits, result);
+        }
+
+        return result;
+    }
+
+    private void around(int lo, int hi, int depth, double x, double y, double radius,
+                        AbstractCreature observer, int[] hits, List<AbstractCreature> result) {
+        Vision vision = observer.getVision();
+
+        while (hi - lo > LEAF_SIZE) {
+            int mid = (lo + hi) >>> 1;
+            if (vision.sees(px[mid] - x, py[mid] - y)) {
+                add(ids[mid], observer, result);
+            }
+
+            double d = (depth & 1) == 0 ? x - px[mid] : y - py[mid];
+            if (d <= radius && d >= -radius) {
+                around(lo, mid, depth + 1, x, y, radius, observer, hits, result);
+                lo = mid + 1;
+            } else if (d < 0) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+            depth++;
+        }
+
+        int n = vision.filter(x, y, px, py, lo, hi, hits);
+        for (int k = 0; k < n; k++) {
+            add(ids[hits[k]], observer, result);
+        }
+    }
+
+    private void add(int id, AbstractCreature observer, List<AbstractCreature> result) {
+        if (creatures[id] != observer) {
+            result.add(creatures[id]);
+        }
+    }
+
+    // ----------------------------------------------------------------------------
+    // k nearest
+    // ----------------------------------------------------------------------------
+
+    public List<AbstractCreature> nearest(AbstractCreature observer, int k) {
+        NearestQueue queue = new NearestQueue(k);
+        double x = observer.getPosition().getX();
+        double y = observer.getPosition().getY();
+
+        nearest(0, count, 0, x, y, x, y, observer, queue);
+        if (!topology.wraps()) {
+            return queue.toList(creatures);
+        }
+
+        // the images of the world, only if the k-th candidate is farther
+        // than the closest edges
+        double ox = x < 0 ? width : -width;
+        double oy = y < 0 ? height : -height;
+        if (isCloser(halfWidth - Math.abs(x), queue)) {
+            nearest(0, count, 0, x + ox, y, x, y, observer, queue);
+        }
+        if (isCloser(halfHeight - Math.abs(y), queue)) {
+            nearest(0, count, 0, x, y + oy, x, y, observer, queue);
+        }
+        if (isCloser(Math.hypot(halfWidth - Math.abs(x), halfHeight - Math.abs(y)), queue)) {
+            nearest(0, count, 0, x + ox, y + oy, x, y, observer, queue);
+        }
+
+        return queue.toList(creatures);
+    }
+
+    private static boolean isCloser(double d, NearestQueue queue) {
+        return d * d < queue.worst();
+    }
+
+    /**
+     * Searches around (x, y), an image of the observer position (qx, qy);
+     * the candidates are ranked by their shortest distance to the observer.
+     */
+    private void nearest(int lo, int hi, int depth, double x, double y, double qx, double qy,
+                         AbstractCreature observer, NearestQueue queue) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int i = lo; i < hi; i++) {
+                offer(i, qx, qy, observer, queue);
+            }
+            return;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        offer(mid, qx, qy, observer, queue);
+
+        double d = (depth & 1) == 0 ? x - px[mid] : y - py[mid];
+        if (d < 0) {
+            nearest(lo, mid, depth + 1, x, y, qx, qy, observer, queue);
+            if (d * d < queue.worst()) {
+                nearest(mid + 1, hi, depth + 1, x, y, qx, qy, observer, queue);
+            }
+        } else {
+            nearest(mid + 1, hi, depth + 1, x, y, qx, qy, observer, queue);
+            if (d * d < queue.worst()) {
+                nearest(lo, mid, depth + 1, x, y, qx, qy, observer, queue);
+            }
+        }
+    }
+
+    private void offer(int i, double qx, double qy, AbstractCreature observer, NearestQueue queue) {
+        int id = ids[i];
+        if (creatures[id] != observer) {
+            queue.offer(id, distanceSq(qx, qy, id));
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package simulator.spatial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import commons.Utils.Predicate;
+import creatures.AbstractCreature;
+import creatures.Position;
+import creatures.Topology;
+import creatures.Vision;
+
+/**
+ * Uniform grid updated in place and in parallel, without locks.
+ *
+ * The rows of cells are split into horizontal stripes, each one owned by a
+ * single task during a rebuild: only the owner of a stripe writes to its
+ * cells. A rebuild first snapshots the positions by ranges of creatures,
+ * each range posting the creatures that changed cell to the stripe of their
+ * new cell; then each stripe drops the creatures that left its cells and
+ * inserts the ones posted to it. When the population is the one of the
+ * previous rebuild only the creatures that changed cell move, otherwise the
+ * cells are emptied and filled again the same way.
+ *
+ * The stripes are also the unit of work of {@link simulator.concurrent.ConcurrentWorld}:
+ * the creatures of a stripe are run by the same task.
+ */
+public class StripedGrid extends AbstractSpatialIndex {
+
+    /** Below that many creatures a rebuild is sequential. */
+    private static final int PARALLEL_THRESHOLD = 1 << 12;
+
+    /** Number of stripes per worker thread of the pool. */
+    private static final int STRIPES_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+
+    private final int cols;
+    private final int rows;
+    private final double cellWidth;
+    private final double cellHeight;
+
+    /** Number of stripes, stripe s owning rows stripeRow[s] .. stripeRow[s + 1]. */
+    private final int stripes;
+    private final int[] stripeRow;
+
+    /** Creatures of each cell, the first cellSize[c] entries are valid. */
+    private final int[][] cellItems;
+    private final int[] cellSize;
+
+    /** Positions in cellItems order, so that a cell is contiguous. */
+    private final double[][] cellX;
+    private final double[][] cellY;
+
+    /** Cell of each creature, -1 if not in the grid yet. */
+    private int[] cellOf = new int[0];
+
+    /** Largest cell of each stripe, for the buffers of the queries. */
+    private final int[] stripeMax;
+    private int maxCellCount;
+
+    /**
+     * @param cellSize
+     *            approximate size of a cell, the usual query radius is a good
+     *            value. It is adjusted so that the cells tile the world.
+     */
+    public StripedGrid(Topology topology, double cellSize, ForkJoinPool pool) {
+        super(topology);
+        this.pool = pool;
+        this.cols = Math.max(1, (int) (width / cellSize));
+        this.rows = Math.max(1, (int) (height / cellSize));
+        this.cellWidth = width / cols;
+        this.cellHeight = height / rows;
+
+        this.stripes = Math.min(rows, pool.getParallelism() * STRIPES_PER_THREAD);
+        this.stripeRow = new int[stripes + 1];
+        for (int s = 0; s <= stripes; s++) {
+            stripeRow[s] = rows * s / stripes;
+        }
+        this.stripeMax = new int[stripes];
+
+        this.cellItems = new int[cols * rows][];
+        this.cellSize = new int[cols * rows];
+        this.cellX = new double[cols * rows][];
+        this.cellY = new double[cols * rows][];
+        for (int c = 0; c < cols * rows; c++) {
+            cellItems[c] = new int[4];
+            cellX[c] = new double[4];
+            cellY[c] = new double[4];
+        }
+    }
+
+    public StripedGrid(Topology topology, ForkJoinPool pool) {
+        this(topology, AbstractCreature.DEFAULT_VISION_DISTANCE, pool);
+    }
+
+    public StripedGrid(Topology topology) {
+        this(topology, ForkJoinPool.commonPool());
+    }
+
+    @Override
+    public void rebuild(List<? extends AbstractCreature> list) {
+        int n = list.size();
+        boolean same = n == count;
+        if (creatures.length < n) {
+            creatures = Arrays.copyOf(creatures, n);
+            xs = Arrays.copyOf(xs, n);
+            ys = Arrays.copyOf(ys, n);
+            cellOf = Arrays.copyOf(cellOf, n);
+        } else {
+            // let the removed creatures be collected
+            Arrays.fill(creatures, n, creatures.length, null);
+        }
+        for (int i = 0; same && i < n; i++) {
+            same = creatures[i] == list.get(i);
+        }
+        count = n;
+        if (!same) {
+            // the indexes have changed, start from an empty grid
+            Arrays.fill(cellSize, 0);
+            Arrays.fill(cellOf, 0, n, -1);
+        }
+
+        int ranges = n < PARALLEL_THRESHOLD ? 1 : Math.min(stripes * 2, n / (PARALLEL_THRESHOLD / 4));
+        Snapshot[] snapshots = new Snapshot[ranges];
+        for (int t = 0; t < ranges; t++) {
+            snapshots[t] = new Snapshot(list, (int) ((long) n * t / ranges), (int) ((long) n * (t + 1) / ranges));
+        }
+        Update[] updates = new Update[stripes];
+        for (int s = 0; s < stripes; s++) {
+            updates[s] = new Update(s, snapshots);
+        }
+
+        if (ranges == 1) {
+            snapshots[0].compute();
+            for (Update u : updates) {
+                u.compute();
+            }
+        } else {
+            pool.invoke(new Phases(snapshots, updates));
+        }
+
+        maxCellCount = 0;
+        for (int s = 0; s < stripes; s++) {
+            maxCellCount = Math.max(maxCellCount, stripeMax[s]);
+        }
+    }
+
+    /**
+     * Not used, {@link #rebuild(List)} updates the cells itself.
+     */
+    @Override
+    protected void build() {
+    }
+
+    /**
+     * First phase of a rebuild: copies the positions of a range of creatures
+     * and posts the ones that changed cell to the stripe of their new cell.
+     */
+    @SuppressWarnings("serial")
+    private class Snapshot extends RecursiveAction {
+        private final List<? extends AbstractCreature> list;
+        private final int from;
+        private final int to;
+
+        /** Creatures posted to each stripe. */
+        final int[][] posted = new int[stripes][];
+        final int[] postedCount = new int[stripes];
+
+        Snapshot(List<? extends AbstractCreature> list, int from, int to) {
+            this.list = list;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = from; i < to; i++) {
+                AbstractCreature c = list.get(i);
+                Position p = c.getPosition();
+                double x = p.getX();
+                double y = p.getY();
+                c.setIndex(i);
+                creatures[i] = c;
+                xs[i] = x;
+                ys[i] = y;
+
+                int r = Math.floorMod(row(y), rows);
+                int cell = r * cols + Math.floorMod(column(x), cols);
+                if (cell != cellOf[i]) {
+                    // the old cell sees the new value and drops the creature
+                    cellOf[i] = cell;
+                    post(stripeOf(r), i);
+                }
+            }
+        }
+
+        private void post(int stripe, int i) {
+            int[] items = posted[stripe];
+            if (items == null) {
+                items = posted[stripe] = new int[16];
+            } else if (postedCount[stripe] == items.length) {
+                items = posted[stripe] = Arrays.copyOf(items, items.length * 2);
+            }
+            items[postedCount[stripe]++] = i;
+        }
+    }
+
+    /**
+     * Second phase of a rebuild, run by the owner of a stripe: drops the
+     * creatures that left its cells, refreshes the positions of the others
+     * and inserts the creatures posted to it.
+     */
+    @SuppressWarnings("serial")
+    private class Update extends RecursiveAction {
+        private final int stripe;
+        private final Snapshot[] snapshots;
+
+        Update(int stripe, Snapshot[] snapshots) {
+            this.stripe = stripe;
+            this.snapshots = snapshots;
+        }
+
+        @Override
+        protected void compute() {
+            int first = stripeRow[stripe] * cols;
+            int end = stripeRow[stripe + 1] * cols;
+
+            for (int cell = first; cell < end; cell++) {
+                int[] items = cellItems[cell];
+                double[] cx = cellX[cell];
+                double[] cy = cellY[cell];
+                int kept = 0;
+                for (int k = 0; k < cellSize[cell]; k++) {
+                    int i = items[k];
+                    if (i < count && cellOf[i] == cell) {
+                        items[kept] = i;
+                        cx[kept] = xs[i];
+                        cy[kept] = ys[i];
+                        kept++;
+                    }
+                }
+                cellSize[cell] = kept;
+            }
+
+            for (Snapshot s : snapshots) {
+                int[] items = s.posted[stripe];
+                for (int k = 0; k < s.postedCount[stripe]; k++) {
+                    insert(items[k]);
+                }
+            }
+
+            int max = 0;
+            for (int cell = first; cell < end; cell++) {
+                max = Math.max(max, cellSize[cell]);
+            }
+            stripeMax[stripe] = max;
+        }
+
+        private void insert(int i) {
+            int cell = cellOf[i];
+            int k = cellSize[cell]++;
+            if (k == cellItems[cell].length) {
+                cellItems[cell] = Arrays.copyOf(cellItems[cell], k * 2);
+                cellX[cell] = Arrays.copyOf(cellX[cell], k * 2);
+                cellY[cell] = Arrays.copyOf(cellY[cell], k * 2);
+            }
+            cellItems[cell][k] = i;
+            cellX[cell][k] = xs[i];
+            cellY[cell][k] = ys[i];
+        }
+    }
+
+    /**
+     * Runs the two phases of a rebuild, the join between them being the only
+     * synchronization.
+     */
+    @SuppressWarnings("serial")
+    private static class Phases extends RecursiveAction {
+        private final Snapshot[] snapshots;
+        private final Update[] updates;
+
+        Phases(Snapshot[] snapshots, Update[] updates) {
+            this.snapshots = snapshots;
+            this.updates = updates;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(snapshots);
+            invokeAll(updates);
+        }
+    }
+
+    // ----------------------------------------------------------------------------
+    // Stripes
+    // ----------------------------------------------------------------------------
+
+    public int getStripeCount() {
+        return stripes;
+    }
+
+    /**
+     * Number of creatures standing in a stripe at the last rebuild.
+     */
+    public int stripeSize(int stripe) {
+        int n = 0;
+        for (int cell = stripeRow[stripe] * cols; cell < stripeRow[stripe + 1] * cols; cell++) {
+            n += cellSize[cell];
+        }
+        return n;
+    }
+
+    /**
+     * Adds to {@code result} the creatures standing in a stripe at the last
+     * rebuild.
+     */
+    public void stripe(int stripe, Collection<? super AbstractCreature> result) {
+        for (int cell = stripeRow[stripe] * cols; cell < stripeRow[stripe + 1] * cols; cell++) {
+            for (int k = 0; k < cellSize[cell]; k++) {
+                result.add(creatures[cellItems[cell][k]]);
+            }
+        }
+    }
+
+    private int stripeOf(int row) {
+        // rows * s / stripes <= row, the division may round either way
+        int s = (int) ((long) row * stripes / rows);
+        while (stripeRow[s + 1] <= row) {
+            s++;
+        }
+        while (stripeRow[s] > row) {
+            s--;
+        }
+        return s;
+    }
+
+    // ----------------------------------------------------------------------------
+    // Queries
+    // ----------------------------------------------------------------------------
+
+    public void within(double x, double y, double radius,
+                       Predicate<? super AbstractCreature> filter,
+                       Collection<? super AbstractCreature> result) {
+        double r2 = radius * radius;
+
+        int c0 = column(x - radius);
+        int c1 = column(x + radius);
+        int r0 = row(y - radius);
+        int r1 = row(y + radius);
+        if (c1 - c0 + 1 >= cols) {
+            c0 = 0;
+            c1 = cols - 1;
+        }
+        if (r1 - r0 + 1 >= rows) {
+            r0 = 0;
+            r1 = rows - 1;
+        }
+
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = cell(c, r);
+                for (int k = 0; k < cellSize[cell]; k++) {
+                    int i = cellItems[cell][k];
+                    if (distanceSq(x, y, i) <= r2
+                            && (filter == null || filter.apply(creatures[i]))) {
+                        result.add(creatures[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Same as {@link UniformGrid#creaturesAround}: the cells overlapping the
+     * vision disc are tested with {@link Vision#filter}.
+     */
+    @Override
+    public List<AbstractCreature> creaturesAround(AbstractCreature observer) {
+        List<AbstractCreature> result = new ArrayList<AbstractCreature>();
+        Vision vision = observer.getVision();
+        double x = observer.getPosition().getX();
+        double y = observer.getPosition().getY();
+        double radius = observer.getVisionDistance();
+        int[] hits = scratch(maxCellCount);
+
+        int c0 = column(x - radius);
+        int c1 = column(x + radius);
+        int r0 = row(y - radius);
+        int r1 = row(y + radius);
+        if (c1 - c0 + 1 >= cols) {
+            c0 = 0;
+            c1 = cols - 1;
+        }
+        if (r1 - r0 + 1 >= rows) {
+            r0 = 0;
+            r1 = rows - 1;
+        }
+
+        for (int r = r0; r <= r1; r++) {
+            double iy = y - Math.floorDiv(r, rows) * height;
+            for (int c = c0; c <= c1; c++) {
+                double ix = x - Math.floorDiv(c, cols) * width;
+                int cell = cell(c, r);
+                int n = vision.filter(ix, iy, cellX[cell], cellY[cell], 0, cellSize[cell], hits);
+                for (int k = 0; k < n; k++) {
+                    AbstractCreature seen = creatures[cellItems[cell][hits[k]]];
+                    if (seen != observer) {
+                        result.add(seen);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Same ring scan as {@link UniformGrid#nearest}.
+     */
+    public List<AbstractCreature> nearest(AbstractCreature observer, int k) {
+        NearestQueue queue = new NearestQueue(k);
+        double x = observer.getPosition().getX();
+        double y = observer.getPosition().getY();
+        int c = column(x);
+        int r = row(y);
+        int maxRing = Math.max(cols, rows) / 2 + 1;
+        double step = Math.min(cellWidth, cellHeight);
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int dr = -ring; dr <= ring; dr++) {
+                boolean edgeRow = dr == -ring || dr == ring;
+                for (int dc = -ring; dc <= ring; dc += edgeRow ? 1 : 2 * ring) {
+                    int cell = cell(c + dc, r + dr);
+                    for (int n = 0; n < cellSize[cell]; n++) {
+                        int i = cellItems[cell][n];
+                        if (creatures[i] != observer) {
+                            queue.offer(i, distanceSq(x, y, i));
+                        }
+                    }
+                }
+            }
+
+            // anything in the next ring is at least ring * step away
+            if (queue.isFull() && queue.worst() <= (ring * step) * (ring * step)) {
+                break;
+            }
+        }
+
+        return queue.toList(creatures);
+    }
+
+    /**
+     * Column of the X coordinate, possibly outside of the grid when the
+     * world wraps (see {@link #cell}), clamped to the grid otherwise.
+     */
+    private int column(double x) {
+        int c = (int) Math.floor((x + halfWidth) / cellWidth);
+        return topology.wraps() ? c : Math.min(Math.max(c, 0), cols - 1);
+    }
+
+    private int row(double y) {
+        int r = (int) Math.floor((y + halfHeight) / cellHeight);
+        return topology.wraps() ? r : Math.min(Math.max(r, 0), rows - 1);
+    }
+
+    private int cell(int column, int row) {
+        return Math.floorMod(row, rows) * cols + Math.floorMod(column, cols);
+    }
+}
@@ -0,0 +1,288 @@
+package simulator.spatial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import commons.Utils.Predicate;
+import creatures.AbstractCreature;
+import creatures.Topology;
+import creatures.Vision;
+
+/**
+ * Uniform grid over the world, wrapping around the edges when the topology
+ * does. The creatures are bucketed by cell with a counting sort, so a
+ * rebuild is two linear passes.
+ *
+ * Good when the creatures are evenly spread; when they gather in a few tight
+ * flocks most of the cells are empty and the few crowded ones are scanned
+ * entirely by every query, see {@link KdTree}.
+ */
+public class UniformGrid extends AbstractSpatialIndex {
+
+    private final int cols;
+    private final int rows;
+    private final double cellWidth;
+    private final double cellHeight;
+
+    /** cellStart[c] .. cellStart[c + 1] is the range of cell c in cellItems. */
+    private final int[] cellStart;
+    private int[] cellItems = new int[0];
+    private int[] cellOf = new int[0];
+
+    /** Positions in cellItems order, so that a cell is contiguous. */
+    private double[] cellX = new double[0];
+    private double[] cellY = new double[0];
+
+    private int maxCellCount;
+
+    /**
+     * @param cellSize
+     *            approximate size of a cell, the usual query radius is a good
+     *            value. It is adjusted so that the cells tile the world.
+     */
+    public UniformGrid(Topology topology, double cellSize) {
+        super(topology);
+        this.cols = Math.max(1, (int) (width / cellSize));
+        this.rows = Math.max(1, (int) (height / cellSize));
+        this.cellWidth = width / cols;
+        this.cellHeight = height / rows;
+        this.cellStart = new int[cols * rows + 1];
+    }
+
+    public UniformGrid(Topology topology) {
+        this(topology, AbstractCreature.DEFAULT_VISION_DISTANCE);
+    }
+
+    @Override
+    protected void build() {
+        if (cellItems.length < count) {
+            cellItems = new int[count];
+            cellOf = new int[count];
+            cellX = new double[count];
+            cellY = new double[count];
+        }
+
+        // count
+        Arrays.fill(cellStart, 0);
+        for (int i = 0; i < count; i++) {
+            int c = cell(column(xs[i]), row(ys[i]));
+            cellOf[i] = c;
+            cellStart[c]++;
+        }
+        // prefix sum: cellStart[c] is now the end of cell c
+        for (int c = 1; c < cols * rows; c++) {
+            cellStart[c] += cellStart[c - 1];
+        }
+        cellStart[cols * rows] = count;
+        // place, walking backwards so that cellStart[c] ends up at the
+        // beginning of cell c
+        for (int i = count - 1; i >= 0; i--) {
+            cellItems[--cellStart[cellOf[i]]] = i;
+        }
+
+        maxCellCount = 0;
+        for (int c = 0; c < cols * rows; c++) {
+            maxCellCount = Math.max(maxCellCount, cellStart[c + 1] - cellStart[c]);
+        }
+        for (int k = 0; k < count; k++) {
+            cellX[k] = xs[cellItems[k]];
+            cellY[k] = ys[cellItems[k]];
+        }
+    }
+
+    public void within(double x, double y, double radius,
+                       Predicate<? super AbstractCreature> filter,
+                       Collection<? super AbstractCreature> result) {
+        double r2 = radius * radius;
+
+        int c0 = column(x - radius);
+        int c1 = column(x + radius);
+        int r0 = row(y - radius);
+        int r1 = row(y + radius);
+        if (c1 - c0 + 1 >= cols) {
+            c0 = 0;
+            c1 = cols - 1;
+        }
+        if (r1 - r0 + 1 >= rows) {
+            r0 = 0;
+            r1 = rows - 1;
+        }
+
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = cell(c, r);
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int i = cellItems[k];
+                    if (distanceSq(x, y, i) <= r2
+                            && (filter == null || filter.apply(creatures[i]))) {
+                        result.add(creatures[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds to {@code ids} the indexes in the list of the last rebuild of the
+     * creatures within {@code radius} of the point {@code (x, y)}, for the
+     * indexes built on top of this one.
+     */
+    void within(double x, double y, double radius, IntList ids) {
+        double r2 = radius * radius;
+
+        int c0 = column(x - radius);
+        int c1 = column(x + radius);
+        int r0 = row(y - radius);
+        int r1 = row(y + radius);
+        if (c1 - c0 + 1 >= cols) {
+            c0 = 0;
+            c1 = cols - 1;
+        }
+        if (r1 - r0 + 1 >= rows) {
+            r0 = 0;
+            r1 = rows - 1;
+        }
+
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = cell(c, r);
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    if (topology.distanceSq(x, y, cellX[k], cellY[k]) <= r2) {
+                        ids.add(cellItems[k]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests the cells overlapping the vision disc with
+     * {@link Vision#filter}, the viewer being moved to the image of the world
+     * the cell belongs to.
+     */
+    @Override
+    public List<AbstractCreature> creaturesAround(AbstractCreature observer) {
+        List<AbstractCreature> result = new ArrayList<AbstractCreature>();
+        Vision vision = observer.getVision();
+        double x = observer.getPosition().getX();
+        double y = observer.getPosition().getY();
+        double radius = observer.getVisionDistance();
+        int[] hits = scratch(maxCellCount);
+
+        int c0 = column(x - radius);
+        int c1 = column(x + radius);
+        int r0 = row(y - radius);
+        int r1 = row(y + radius);
+        if (c1 - c0 + 1 >= cols) {
+            c0 = 0;
+            c1 = cols - 1;
+        }
+        if (r1 - r0 + 1 >= rows) {
+            r0 = 0;
+            r1 = rows - 1;
+        }
+
+        for (int r = r0; r <= r1; r++) {
+            double iy = y - Math.floorDiv(r, rows) * height;
+            for (int c = c0; c <= c1; c++) {
+                double ix = x - Math.floorDiv(c, cols) * width;
+                int cell = cell(c, r);
+                int n = vision.filter(ix, iy, cellX, cellY, cellStart[cell], cellStart[cell + 1], hits);
+                for (int k = 0; k < n; k++) {
+                    AbstractCreature seen = creatures[cellItems[hits[k]]];
+                    if (seen != observer) {
+                        result.add(seen);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Scans rings of cells of growing size around the observer until the
+     * next ring cannot contain anything closer than the k-th best candidate.
+     */
+    public List<AbstractCreature> nearest(AbstractCreature observer, int k) {
+        NearestQueue queue = new NearestQueue(k);
+        double x = observer.getPosition().getX();
+        double y = observer.getPosition().getY();
+        int c = column(x);
+        int r = row(y);
+        int maxRing = Math.max(cols, rows) / 2 + 1;
+        double step = Math.min(cellWidth, cellHeight);
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int dr = -ring; dr <= ring; dr++) {
+                boolean edgeRow = dr == -ring || dr == ring;
+                for (int dc = -ring; dc <= ring; dc += edgeRow ? 1 : 2 * ring) {
+                    int cell = cell(c + dc, r + dr);
+                    for (int n = cellStart[cell]; n < cellStart[cell + 1]; n++) {
+                        int i = cellItems[n];
+                        if (creatures[i] != observer) {
+                            queue.offer(i, distanceSq(x, y, i));
+                        }
+                    }
+                }
+            }
+
+            // anything in the next ring is at least ring * step away
+            if (queue.isFull() && queue.worst() <= (ring * step) * (ring * step)) {
+                break;
+            }
+        }
+
+        return queue.toList(creatures);
+    }
+
+    /**
+     * Average number of creatures sharing the cell of a creature, divided by
+     * what it would be if they were evenly spread. Close to 1 for a uniform
+     * distribution, large when the creatures are clustered.
+     */
+    public static double crowding(List<? extends AbstractCreature> creatures, Topology topology,
+                                  double cellSize) {
+        int cols = Math.max(1, (int) (topology.getWidth() / cellSize));
+        int rows = Math.max(1, (int) (topology.getHeight() / cellSize));
+        int[] counts = new int[cols * rows];
+        double sx = cols / topology.getWidth();
+        double sy = rows / topology.getHeight();
+
+        for (AbstractCreature c : creatures) {
+            int col = (int) ((c.getPosition().getX() + topology.getHalfWidth()) * sx);
+            int row = (int) ((c.getPosition().getY() + topology.getHalfHeight()) * sy);
+            counts[Math.min(Math.max(row, 0), rows - 1) * cols + Math.min(Math.max(col, 0), cols - 1)]++;
+        }
+
+        double sumSq = 0;
+        for (int n : counts) {
+            sumSq += (double) n * n;
+        }
+        int total = creatures.size();
+        if (total == 0) {
+            return 1;
+        }
+        return (sumSq / total) / Math.max(1d, (double) total / counts.length);
+    }
+
+    /**
+     * Column of the X coordinate, possibly outside of the grid when the
+     * world wraps (see {@link #cell}), clamped to the grid otherwise.
+     */
+    private int column(double x) {
+        int c = (int) Math.floor((x + halfWidth) / cellWidth);
+        return topology.wraps() ? c : Math.min(Math.max(c, 0), cols - 1);
+    }
+
+    private int row(double y) {
+        int r = (int) Math.floor((y + halfHeight) / cellHeight);
+        return topology.wraps() ? r : Math.min(Math.max(r, 0), rows - 1);
+    }
+
+    private int cell(int column, int row) {
+        return Math.floorMod(row, rows) * cols + Math.floorMod(column, cols);
+    }
+}
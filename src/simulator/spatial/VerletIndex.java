@@ -0,0 +1,286 @@
+package simulator.spatial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import commons.Utils.Predicate;
+import creatures.AbstractCreature;
+import creatures.Position;
+import creatures.Topology;
+import creatures.Vision;
+
+/**
+ * Verlet neighbour lists: each creature keeps the list of the creatures
+ * that stood within its vision distance plus a {@code skin} when the lists
+ * were built, from a {@link UniformGrid} of the positions of that time.
+ *
+ * As long as no creature has moved by more than half the skin since then,
+ * whatever is within the vision distance of a creature now was within the
+ * vision distance plus the skin then: the lists stay valid and a query only
+ * filters a list against the current positions. When a creature moves
+ * further, or when the population changes, the grid and the lists are
+ * built again.
+ *
+ * The lists last {@code skin / (2 * speed)} ticks, so the skin should be a
+ * few times the speed of the fastest creature; a wider skin makes longer
+ * lists to filter. The hit rate of the lists is measured, see
+ * {@link #getHitRate()}.
+ *
+ * A query from a list costs about as much as a query of the grid, so the
+ * lists only pay when they last long: on the smart-flocks benchmark, where
+ * they are built every two to four ticks, a tick is slower than with a
+ * plain {@link UniformGrid}. The index is therefore not used by default,
+ * see the {@code --skin} option of the benchmark suite.
+ */
+public class VerletIndex extends AbstractSpatialIndex {
+
+    /** Skin of {@link #VerletIndex(Topology)}, in pixels. */
+    public static final double DEFAULT_SKIN = 20;
+
+    private final double skin;
+
+    /** Grid of the positions at its last rebuild, with their indexes. */
+    private final UniformGrid grid;
+
+    /** All the lists, the one of creature i from listStart[i] to listStart[i + 1]. */
+    private final IntList neighbours = new IntList();
+    private int[] listStart = new int[1];
+
+    /** Vision distance each list was built for. */
+    private double[] listRadius = new double[0];
+
+    private boolean valid;
+
+    /** Whether the lists were built by the last rebuild. */
+    private boolean fresh;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long rebuilds;
+    private long ticks;
+
+    /**
+     * @param skin margin added to the vision distance, in pixels
+     */
+    public VerletIndex(Topology topology, double skin) {
+        super(topology);
+        if (skin <= 0) {
+            throw new IllegalArgumentException("skin must be positive: " + skin);
+        }
+        this.skin = skin;
+        this.grid = new UniformGrid(topology, AbstractCreature.DEFAULT_VISION_DISTANCE + skin);
+    }
+
+    public VerletIndex(Topology topology) {
+        this(topology, DEFAULT_SKIN);
+    }
+
+    public double getSkin() {
+        return skin;
+    }
+
+    @Override
+    public void rebuild(List<? extends AbstractCreature> list) {
+        int n = list.size();
+        boolean keep = valid && n == count;
+        double limit = (skin / 2) * (skin / 2);
+        if (creatures.length < n) {
+            creatures = Arrays.copyOf(creatures, n);
+            xs = Arrays.copyOf(xs, n);
+            ys = Arrays.copyOf(ys, n);
+        } else {
+            // let the removed creatures be collected
+            Arrays.fill(creatures, n, creatures.length, null);
+        }
+
+        // the positions of the grid are the ones of its last rebuild
+        for (int i = 0; i < n; i++) {
+            AbstractCreature c = list.get(i);
+            Position p = c.getPosition();
+            keep = keep && creatures[i] == c
+                    && topology.distanceSq(p.getX(), p.getY(), grid.xs[i], grid.ys[i]) <= limit;
+            c.setIndex(i);
+            creatures[i] = c;
+            xs[i] = p.getX();
+            ys[i] = p.getY();
+        }
+        count = n;
+        ticks++;
+
+        fresh = !keep;
+        if (fresh) {
+            build(list);
+        }
+    }
+
+    /**
+     * Rebuilds the grid and the lists.
+     */
+    private void build(List<? extends AbstractCreature> list) {
+        grid.rebuild(list);
+        if (listRadius.length < count) {
+            listStart = new int[creatures.length + 1];
+            listRadius = new double[creatures.length];
+        }
+
+        neighbours.clear();
+        for (int i = 0; i < count; i++) {
+            double radius = creatures[i].getVisionDistance();
+            listStart[i] = neighbours.size;
+            listRadius[i] = radius;
+            grid.within(grid.xs[i], grid.ys[i], radius + skin, neighbours);
+            // walk the positions in memory order when filtering
+            Arrays.sort(neighbours.items, listStart[i], neighbours.size);
+        }
+        listStart[count] = neighbours.size;
+
+        valid = true;
+        rebuilds++;
+    }
+
+    /**
+     * Not used, {@link #rebuild(List)} decides when to build.
+     */
+    @Override
+    protected void build() {
+    }
+
+    /**
+     * Filters the list of the observer with its {@link Vision}.
+     */
+    @Override
+    public List<AbstractCreature> creaturesAround(AbstractCreature observer) {
+        int id = observer.getIndex();
+        if (id < 0 || id >= count || creatures[id] != observer
+                || listRadius[id] != observer.getVisionDistance()) {
+            // no list for this creature or for its current vision
+            misses.increment();
+            return super.creaturesAround(observer);
+        }
+        if (fresh) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+
+        List<AbstractCreature> result = new ArrayList<AbstractCreature>();
+        Vision vision = observer.getVision();
+        Position p = observer.getPosition();
+        double x = p.getX();
+        double y = p.getY();
+        boolean wraps = topology.wraps();
+        int[] list = neighbours.items;
+        for (int k = listStart[id]; k < listStart[id + 1]; k++) {
+            int j = list[k];
+            double dx = xs[j] - x;
+            double dy = ys[j] - y;
+            if (wraps) {
+                // Topology.deltaX and deltaY without the rounding, the
+                // positions being within the world
+                dx = dx > halfWidth ? dx - width : dx < -halfWidth ? dx + width : dx;
+                dy = dy > halfHeight ? dy - height : dy < -halfHeight ? dy + height : dy;
+            }
+            if (j != id && vision.sees(dx, dy)) {
+                result.add(creatures[j]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Asks the grid for a radius wide enough to cover the moves since its
+     * rebuild, then checks the current positions.
+     */
+    public void within(double x, double y, double radius,
+                       Predicate<? super AbstractCreature> filter,
+                       Collection<? super AbstractCreature> result) {
+        double r2 = radius * radius;
+        IntList around = new IntList();
+        grid.within(x, y, radius + skin / 2, around);
+        for (int k = 0; k < around.size; k++) {
+            int j = around.items[k];
+            if (distanceSq(x, y, j) <= r2 && (filter == null || filter.apply(creatures[j]))) {
+                result.add(creatures[j]);
+            }
+        }
+    }
+
+    /**
+     * The k nearest creatures of the grid are at most at a distance d now,
+     * so the actual k nearest ones were within d plus half the skin at its
+     * rebuild.
+     */
+    public List<AbstractCreature> nearest(AbstractCreature observer, int k) {
+        Position p = observer.getPosition();
+        double x = p.getX();
+        double y = p.getY();
+        double d2 = 0;
+        for (AbstractCreature c : grid.nearest(observer, k)) {
+            // the grid was built from the same list, same indexes
+            d2 = Math.max(d2, distanceSq(x, y, c.getIndex()));
+        }
+
+        NearestQueue queue = new NearestQueue(k);
+        IntList around = new IntList();
+        grid.within(x, y, Math.sqrt(d2) + skin / 2, around);
+        for (int n = 0; n < around.size; n++) {
+            int j = around.items[n];
+            if (creatures[j] != observer) {
+                queue.offer(j, distanceSq(x, y, j));
+            }
+        }
+        return queue.toList(creatures);
+    }
+
+    // ----------------------------------------------------------------------------
+    // Metrics
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Queries answered from lists built at an earlier tick.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Queries answered from lists built at this tick, or without a list.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Share of the queries answered from lists built at an earlier tick, 0
+     * if there was none.
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Number of times the lists were built, out of {@link #getTicks()}.
+     */
+    public long getRebuilds() {
+        return rebuilds;
+    }
+
+    /**
+     * Number of calls to {@link #rebuild(List)}.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    public void resetMetrics() {
+        hits.reset();
+        misses.reset();
+        rebuilds = 0;
+        ticks = 0;
+    }
+}
@@ -0,0 +1,109 @@
+package simulator.stats;
+
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+
+import java.util.Arrays;
+
+/**
+ * Partial sums of the statistics over a part of the population. Each task
+ * of a parallel tick fills its own accumulator, they are merged by the
+ * {@link StatisticsCollector} at the end of the tick.
+ */
+public class Accumulator {
+
+    int population;
+    double sumSpeed;
+    double sumCos;
+    double sumSin;
+
+    /** Creatures whose neighbourhood was looked at, as creature ids. */
+    int[] observed = new int[64];
+    int observedCount;
+
+    /** Observed creatures that see at least one other creature. */
+    int seeing;
+    double sumNearest;
+    final int[] histogram;
+    private final double binWidth;
+
+    /** Neighbour graph, as pairs of creature ids. */
+    int[] edges = new int[64];
+    int edgeCount;
+
+    Accumulator(int bins, double binWidth) {
+        this.histogram = new int[bins];
+        this.binWidth = binWidth;
+    }
+
+    /**
+     * Accounts for a creature moving at {@code speed} in {@code direction}.
+     */
+    public void creature(double speed, double direction) {
+        population++;
+        sumSpeed += speed;
+        sumCos += cos(direction);
+        sumSin += sin(direction);
+    }
+
+    /**
+     * Records that the neighbourhood of creature {@code id} was looked at:
+     * only the observed creatures take part in the clusters.
+     */
+    public void observe(int id) {
+        if (observedCount == observed.length) {
+            observed = Arrays.copyOf(observed, observed.length * 2);
+        }
+        observed[observedCount++] = id;
+    }
+
+    /**
+     * Accounts for the distance to the nearest creature seen by a creature.
+     */
+    public void nearest(double distance) {
+        seeing++;
+        sumNearest += distance;
+        int bin = (int) (distance / binWidth);
+        histogram[Math.min(bin, histogram.length - 1)]++;
+    }
+
+    /**
+     * Records that creature {@code a} sees creature {@code b}.
+     */
+    public void edge(int a, int b) {
+        if (edgeCount + 2 > edges.length) {
+            edges = Arrays.copyOf(edges, edges.length * 2);
+        }
+        edges[edgeCount++] = a;
+        edges[edgeCount++] = b;
+    }
+
+    /**
+     * Adds the sums of another accumulator to this one, the edges and the
+     * observed ids excepted: they are consumed by the collector directly.
+     */
+    public void merge(Accumulator other) {
+        population += other.population;
+        observedCount += other.observedCount;
+        sumSpeed += other.sumSpeed;
+        sumCos += other.sumCos;
+        sumSin += other.sumSin;
+        seeing += other.seeing;
+        sumNearest += other.sumNearest;
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += other.histogram[i];
+        }
+    }
+
+    void clear() {
+        population = 0;
+        observedCount = 0;
+        sumSpeed = 0;
+        sumCos = 0;
+        sumSin = 0;
+        seeing = 0;
+        sumNearest = 0;
+        Arrays.fill(histogram, 0);
+        edgeCount = 0;
+    }
+}
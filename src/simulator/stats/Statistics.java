@@ -0,0 +1,115 @@
+package simulator.stats;
+
+import java.util.Arrays;
+
+/**
+ * Population-level metrics of one tick.
+ */
+public class Statistics {
+
+    private final long tick;
+    private final int population;
+    private final int observed;
+    private final double meanSpeed;
+    private final double polarization;
+    private final int clusters;
+    private final int largestCluster;
+    private final int isolated;
+    private final double meanNearest;
+    private final int[] nearestHistogram;
+    private final double binWidth;
+
+    Statistics(long tick, Accumulator total, int clusters, int largestCluster, double binWidth) {
+        int n = total.population;
+        this.tick = tick;
+        this.population = n;
+        this.observed = total.observedCount;
+        this.meanSpeed = n == 0 ? 0 : total.sumSpeed / n;
+        this.polarization = n == 0 ? 0 : Math.hypot(total.sumCos, total.sumSin) / n;
+        this.clusters = clusters;
+        this.largestCluster = largestCluster;
+        this.isolated = observed - total.seeing;
+        this.meanNearest = total.seeing == 0 ? Double.NaN : total.sumNearest / total.seeing;
+        this.nearestHistogram = total.histogram.clone();
+        this.binWidth = binWidth;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int getPopulation() {
+        return population;
+    }
+
+    /**
+     * Number of creatures whose neighbourhood was looked at during the tick,
+     * see {@link StatisticsCollector}. The clusters, the isolated creatures
+     * and the nearest neighbour distribution only cover those.
+     */
+    public int getObserved() {
+        return observed;
+    }
+
+    public double getMeanSpeed() {
+        return meanSpeed;
+    }
+
+    /**
+     * Order parameter of the directions: 1 when all the creatures go the same
+     * way, close to 0 when the directions are random.
+     */
+    public double getPolarization() {
+        return polarization;
+    }
+
+    /**
+     * Number of groups of observed creatures connected by the "sees"
+     * relation, the creatures that see no one and are seen by no one
+     * counting as groups of their own.
+     */
+    public int getClusters() {
+        return clusters;
+    }
+
+    public int getLargestCluster() {
+        return largestCluster;
+    }
+
+    /**
+     * Number of observed creatures that see no other creature, left out of
+     * the nearest neighbour distribution.
+     */
+    public int getIsolated() {
+        return isolated;
+    }
+
+    /**
+     * Mean distance to the nearest creature seen, {@code NaN} if no creature
+     * sees another one.
+     */
+    public double getMeanNearest() {
+        return meanNearest;
+    }
+
+    /**
+     * Distribution of the distance to the nearest creature seen: bin
+     * {@code i} counts the distances in
+     * {@code [i * getBinWidth(), (i + 1) * getBinWidth())}, the last bin
+     * also counts the longer ones.
+     */
+    public int[] getNearestHistogram() {
+        return nearestHistogram.clone();
+    }
+
+    public double getBinWidth() {
+        return binWidth;
+    }
+
+    public String toString() {
+        return String.format("tick %d: %d creatures (%d observed), speed %.2f, polarization %.3f, "
+                        + "%d clusters (largest %d), nearest %.2f, isolated %d %s",
+                tick, population, observed, meanSpeed, polarization, clusters, largestCluster,
+                meanNearest, isolated, Arrays.toString(nearestHistogram));
+    }
+}
@@ -0,0 +1,161 @@
+package simulator.stats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import creatures.AbstractCreature;
+
+/**
+ * Computes the {@link Statistics} of each tick from what the tick pass
+ * already looks at: the speed and direction of every creature and the
+ * creatures it sees. The pass fills one {@link Accumulator} per task; at the
+ * end of the tick they are merged and their edges are fed to a union-find to
+ * count the clusters, without any further pass over the population.
+ *
+ * The creatures whose behavior does not look around are not queried for
+ * their neighbourhood by default, they only account for the speed and the
+ * direction. A sampling period makes the pass query one in every
+ * {@code samplePeriod} of them at each tick, in turn. The neighbourhood
+ * metrics are those of the observed creatures, the clusters counting only
+ * the edges between them.
+ */
+public class StatisticsCollector {
+
+    public static final int DEFAULT_BINS = 10;
+
+    private final int bins;
+    private final double binWidth;
+    private final int samplePeriod;
+
+    /** Population of the current tick, the ids being indexes in it. */
+    private List<? extends AbstractCreature> population = Collections.emptyList();
+
+    private final List<Accumulator> partials = new ArrayList<Accumulator>();
+    private final List<Accumulator> free = new ArrayList<Accumulator>();
+
+    private final UnionFind clusters = new UnionFind();
+
+    /** Observed creatures of the current tick, by id. */
+    private boolean[] observed = new boolean[0];
+
+    private long tick;
+
+    private Statistics last;
+
+    /**
+     * @param maxDistance distance covered by the nearest neighbour
+     *                    histogram, typically the vision distance
+     * @param samplePeriod one in how many of the creatures that do not look
+     *                     around are queried for their neighbourhood at
+     *                     each tick, 0 for none of them
+     */
+    public StatisticsCollector(double maxDistance, int bins, int samplePeriod) {
+        if (samplePeriod < 0) {
+            throw new IllegalArgumentException("negative sample period: " + samplePeriod);
+        }
+        this.bins = bins;
+        this.binWidth = maxDistance / bins;
+        this.samplePeriod = samplePeriod;
+    }
+
+    public StatisticsCollector(double maxDistance, int bins) {
+        this(maxDistance, bins, 0);
+    }
+
+    public StatisticsCollector() {
+        this(AbstractCreature.DEFAULT_VISION_DISTANCE, DEFAULT_BINS);
+    }
+
+    public int getSamplePeriod() {
+        return samplePeriod;
+    }
+
+    /**
+     * @return true if the creature at {@code i} in its batch, whose behavior
+     *         does not look around, is queried for its neighbourhood during
+     *         this tick
+     */
+    public boolean samples(int i) {
+        return samplePeriod > 0 && (i + tick) % samplePeriod == 0;
+    }
+
+    /**
+     * Starts a tick over the given population, the list the spatial index
+     * was last rebuilt from: the id of a creature is its
+     * {@link AbstractCreature#getIndex() index}.
+     */
+    public void begin(List<? extends AbstractCreature> creatures) {
+        population = creatures;
+        clusters.reset(creatures.size());
+        if (observed.length < creatures.size()) {
+            observed = new boolean[creatures.size()];
+        } else {
+            Arrays.fill(observed, 0, creatures.size(), false);
+        }
+        free.addAll(partials);
+        partials.clear();
+    }
+
+    /**
+     * @return the id of a creature in the current tick, -1 if it is not part
+     *         of the population given to {@link #begin(List)}
+     */
+    public int id(AbstractCreature creature) {
+        int id = creature.getIndex();
+        return id >= 0 && id < population.size() && population.get(id) == creature ? id : -1;
+    }
+
+    /**
+     * An empty accumulator for one task of the tick pass. This method is not
+     * thread-safe, the accumulators must be handed out before forking.
+     */
+    public Accumulator newAccumulator() {
+        Accumulator a = free.isEmpty() ? new Accumulator(bins, binWidth) : free.remove(free.size() - 1);
+        a.clear();
+        return a;
+    }
+
+    /**
+     * Hands back a filled accumulator. Its edges are merged into the clusters
+     * at the end of the tick, once all the observed creatures are known.
+     */
+    public void collect(Accumulator partial) {
+        for (int i = 0; i < partial.observedCount; i++) {
+            observed[partial.observed[i]] = true;
+        }
+        partials.add(partial);
+    }
+
+    /**
+     * Ends the tick.
+     *
+     * @return the statistics of the tick
+     */
+    public Statistics end() {
+        Accumulator total = new Accumulator(bins, binWidth);
+        for (Accumulator a : partials) {
+            total.merge(a);
+            int[] edges = a.edges;
+            for (int i = 0; i < a.edgeCount; i += 2) {
+                if (observed[edges[i + 1]]) {
+                    clusters.union(edges[i], edges[i + 1]);
+                }
+            }
+        }
+        // the creatures left out are still sets of their own
+        int count = clusters.count() - (population.size() - total.observedCount);
+        int largest = total.observedCount > 0 ? clusters.largest() : 0;
+        last = new Statistics(tick++, total, count, largest, binWidth);
+        return last;
+    }
+
+    /**
+     * @return the statistics of the last completed tick, null before the
+     *         first one
+     */
+    public Statistics getLast() {
+        return last;
+    }
+}
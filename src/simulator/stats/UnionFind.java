@@ -0,0 +1,76 @@
+package simulator.stats;
+
+/**
+ * Disjoint sets over {@code 0..n-1}, with union by size and path halving.
+ * The number of sets and the size of the largest one are kept up to date by
+ * {@link #union(int, int)} so that reading them is free.
+ */
+public class UnionFind {
+
+    private int[] parent = new int[0];
+    private int[] size = new int[0];
+
+    private int count;
+    private int largest;
+
+    /**
+     * Puts each of the {@code n} elements in its own set.
+     */
+    public void reset(int n) {
+        if (parent.length < n) {
+            parent = new int[n];
+            size = new int[n];
+        }
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+        count = n;
+        largest = n > 0 ? 1 : 0;
+    }
+
+    public int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Merges the sets of {@code a} and {@code b}.
+     *
+     * @return false if they already were in the same set
+     */
+    public boolean union(int a, int b) {
+        int ra = find(a);
+        int rb = find(b);
+        if (ra == rb) {
+            return false;
+        }
+        if (size[ra] < size[rb]) {
+            int t = ra;
+            ra = rb;
+            rb = t;
+        }
+        parent[rb] = ra;
+        size[ra] += size[rb];
+        largest = Math.max(largest, size[ra]);
+        count--;
+        return true;
+    }
+
+    /**
+     * @return the number of sets
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return the number of elements of the largest set
+     */
+    public int largest() {
+        return largest;
+    }
+}
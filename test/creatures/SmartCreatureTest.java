@@ -5,8 +5,6 @@ import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 import java.awt.Color;
-import java.awt.Dimension;
-import java.awt.geom.Point2D;
 import java.util.ArrayList;
 
 import org.junit.Before;
@@ -14,25 +12,25 @@ import org.junit.Test;
 
 public class SmartCreatureTest {
 
-    Environment environment = mock(Environment.class);
+    IEnvironment environment = mock(IEnvironment.class);
     final double w = 200;
     final double h = 100;
 
     @Before
     public void setup() {
-        when(environment.getSize()).thenReturn(new Dimension((int)w, (int)h));
-        when(environment.getWidth()).thenReturn((int)w);
-        when(environment.getHeight()).thenReturn((int)h);
+        when(environment.getWidth()).thenReturn(w);
+        when(environment.getHeight()).thenReturn(h);
+        when(environment.getTopology()).thenReturn(Topology.toroidal(w, h));
     }
 
     @Test
     public void testEmerginBehavior() throws Exception {
-        SmartCreature main = new SmartCreature(environment, 0.0, 0.0, toRadians(0), 5, Color.RED);
+        SmartCreature main = new SmartCreature(environment, new Position(0.0, 0.0), toRadians(0), 5, Color.RED.getRGB());
 
         AbstractCreature other = mock(AbstractCreature.class);
         when(other.getDirection()).thenReturn(toRadians(270));
         when(other.getSpeed()).thenReturn(10.0);
-        when(other.getPosition()).thenReturn(new Point2D.Double(1, 0));
+        when(other.getPosition()).thenReturn(new Position(1, 0));
         when(other.directionFromAPoint(eq(main.getPosition()), eq(main.direction))).thenReturn(0.0);
 
         ArrayList<AbstractCreature> creaturesAround = new ArrayList<AbstractCreature>();
@@ -0,0 +1,70 @@
+package creatures;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TopologyTest {
+    final double width = 200;
+    final double height = 100;
+
+    @Test
+    public void testToroidalWrap() throws Exception {
+        Topology topology = Topology.toroidal(width, height);
+        Position p = new Position(101, -51);
+
+        assertEquals(Topology.CROSSED_X | Topology.CROSSED_Y, topology.constrain(p));
+        assertEquals(-99, p.getX(), 1e-9);
+        assertEquals(49, p.getY(), 1e-9);
+    }
+
+    @Test
+    public void testToroidalEdgeStays() throws Exception {
+        Topology topology = Topology.toroidal(width, height);
+        Position p = new Position(100, -50);
+
+        assertEquals(0, topology.constrain(p));
+        assertEquals(100, p.getX(), 1e-9);
+        assertEquals(-50, p.getY(), 1e-9);
+    }
+
+    @Test
+    public void testToroidalDistanceAcrossTheEdge() throws Exception {
+        Topology topology = Topology.toroidal(width, height);
+
+        assertEquals(10, topology.deltaX(95, -95), 1e-9);
+        assertEquals(-10, topology.deltaY(-45, 45), 1e-9);
+        assertEquals(10, topology.distance(new Position(95, 0), new Position(-95, 0)), 1e-9);
+    }
+
+    @Test
+    public void testReflective() throws Exception {
+        Topology topology = Topology.reflective(width, height);
+        Position p = new Position(105, -52);
+
+        assertEquals(Topology.CROSSED_X | Topology.CROSSED_Y, topology.constrain(p));
+        assertEquals(95, p.getX(), 1e-9);
+        assertEquals(-48, p.getY(), 1e-9);
+        assertEquals(190, topology.deltaX(-95, 95), 1e-9);
+    }
+
+    @Test
+    public void testReflectiveTwice() throws Exception {
+        Topology topology = Topology.reflective(width, height);
+        Position p = new Position(305, 0);
+
+        // bounced on both walls, same direction as before
+        assertEquals(0, topology.constrain(p));
+        assertEquals(-95, p.getX(), 1e-9);
+    }
+
+    @Test
+    public void testBounded() throws Exception {
+        Topology topology = Topology.bounded(width, height);
+        Position p = new Position(105, -20);
+
+        assertEquals(Topology.CROSSED_X, topology.constrain(p));
+        assertEquals(100, p.getX(), 1e-9);
+        assertEquals(-20, p.getY(), 1e-9);
+    }
+}
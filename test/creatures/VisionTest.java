@@ -0,0 +1,70 @@
+package creatures;
+
+import static java.lang.Math.PI;
+import static java.lang.Math.toRadians;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class VisionTest {
+
+    @Test
+    public void testInFront() throws Exception {
+        Vision vision = new Vision();
+        vision.update(0, PI / 4, 50);
+
+        assertTrue(vision.sees(10, 0));
+        assertTrue(vision.sees(49, 0));
+        assertFalse(vision.sees(51, 0));
+        assertFalse(vision.sees(-10, 0));
+    }
+
+    @Test
+    public void testBorderOfTheCone() throws Exception {
+        Vision vision = new Vision();
+        vision.update(0, PI / 4, 50);
+
+        // 20 degrees above and below, Y rising downwards
+        assertTrue(vision.sees(10 * Math.cos(toRadians(20)), -10 * Math.sin(toRadians(20))));
+        assertTrue(vision.sees(10 * Math.cos(toRadians(20)), 10 * Math.sin(toRadians(20))));
+        assertFalse(vision.sees(10 * Math.cos(toRadians(25)), -10 * Math.sin(toRadians(25))));
+    }
+
+    @Test
+    public void testDirectionUp() throws Exception {
+        Vision vision = new Vision();
+        vision.update(PI / 2, PI / 4, 50);
+
+        assertTrue(vision.sees(0, -10));
+        assertFalse(vision.sees(0, 10));
+        assertFalse(vision.sees(10, 0));
+    }
+
+    @Test
+    public void testWideFieldOfView() throws Exception {
+        Vision vision = new Vision();
+        vision.update(0, toRadians(270), 50);
+
+        assertTrue(vision.sees(0, 10));
+        assertTrue(vision.sees(-10, -10.5));
+        assertFalse(vision.sees(-10, 0));
+    }
+
+    @Test
+    public void testFilter() throws Exception {
+        Vision vision = new Vision();
+        vision.update(0, PI / 4, 50);
+
+        double[] xs = { 10, -10, 30, 100, 20 };
+        double[] ys = { 0, 0, 1, 0, 20 };
+        int[] hits = new int[xs.length];
+
+        int n = vision.filter(0, 0, xs, ys, 0, xs.length, hits);
+
+        assertEquals(2, n);
+        assertArrayEquals(new int[] { 0, 2 }, java.util.Arrays.copyOf(hits, n));
+    }
+}
@@ -0,0 +1,210 @@
+package creatures.behavior;
+
+import static java.lang.Math.PI;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import creatures.AbstractCreature;
+import creatures.BouncingCreature;
+import creatures.IEnvironment;
+import creatures.Position;
+import creatures.SmartCreature;
+import creatures.StupidCreature;
+import creatures.Topology;
+import simulator.World;
+
+/**
+ * Runs the same population through the steering steps of {@link Behaviors}
+ * and through the {@code act()} of the predefined creatures.
+ */
+public class BehaviorsTest {
+
+    private static final int SIZE = 600;
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @After
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Answers the neighbour queries with copies of the creatures taken at the
+     * start of the tick: the batches gather the neighbourhood of all their
+     * creatures before any of them moves, the creatures acting one after the
+     * other would see the ones that already moved.
+     */
+    static class SnapshotWorld extends World {
+        private final World copies;
+        private final Map<AbstractCreature, AbstractCreature> frozen =
+                new IdentityHashMap<AbstractCreature, AbstractCreature>();
+
+        SnapshotWorld(Topology topology) {
+            super(topology);
+            this.copies = new World(topology);
+        }
+
+        @Override
+        public void tick() {
+            frozen.clear();
+            for (AbstractCreature c : getCreatureList()) {
+                frozen.put(c, new StupidCreature(copies, c.getPosition(), c.getDirection(), c.getSpeed(), 0));
+            }
+            super.tick();
+        }
+
+        @Override
+        public Collection<AbstractCreature> creaturesAround(AbstractCreature creature) {
+            List<AbstractCreature> result = new ArrayList<AbstractCreature>();
+            for (AbstractCreature c : super.creaturesAround(creature)) {
+                result.add(frozen.get(c));
+            }
+            return result;
+        }
+    }
+
+    interface Factory {
+        AbstractCreature create(IEnvironment environment, int i, Position position, double direction,
+                                double speed);
+    }
+
+    private static List<AbstractCreature> population(World world, int n, long seed, Factory factory) {
+        Random random = new Random(seed);
+        List<AbstractCreature> list = new ArrayList<AbstractCreature>();
+        for (int i = 0; i < n; i++) {
+            list.add(factory.create(world, i,
+                    new Position((random.nextDouble() - 0.5) * SIZE, (random.nextDouble() - 0.5) * SIZE),
+                    random.nextDouble() * 2 * PI, 3 + random.nextDouble() * 5));
+        }
+        return list;
+    }
+
+    private void checkEquivalence(Topology topology, int n, int ticks, Factory factory, Behavior behavior) {
+        World batched = new World(topology);
+        BehaviorEngine engine = new BehaviorEngine(batched, pool);
+        for (AbstractCreature c : population(batched, n, 1, factory)) {
+            engine.add(c, behavior);
+        }
+        SnapshotWorld acting = new SnapshotWorld(topology);
+        acting.addCreatures(population(acting, n, 1, factory));
+
+        for (int t = 1; t <= ticks; t++) {
+            engine.tick();
+            acting.tick();
+            for (int i = 0; i < n; i++) {
+                AbstractCreature e = acting.getCreatureList().get(i);
+                AbstractCreature a = batched.getCreatureList().get(i);
+                String what = behavior.getName() + ", tick " + t + ", creature " + i;
+                assertEquals(what, e.getPosition().getX(), a.getPosition().getX(), 1e-6);
+                assertEquals(what, e.getPosition().getY(), a.getPosition().getY(), 1e-6);
+                assertEquals(what, e.getDirection(), a.getDirection(), 1e-9);
+                assertEquals(what, e.getSpeed(), a.getSpeed(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testStupidMatchesStupidCreature() throws Exception {
+        checkEquivalence(Topology.toroidal(SIZE, SIZE), 200, 100, new Factory() {
+            public AbstractCreature create(IEnvironment environment, int i, Position position,
+                                           double direction, double speed) {
+                return new StupidCreature(environment, position, direction, speed, 0);
+            }
+        }, Behaviors.STUPID);
+    }
+
+    @Test
+    public void testStupidMatchesStupidCreatureInAReflectiveWorld() throws Exception {
+        checkEquivalence(Topology.reflective(SIZE, SIZE), 200, 100, new Factory() {
+            public AbstractCreature create(IEnvironment environment, int i, Position position,
+                                           double direction, double speed) {
+                return new StupidCreature(environment, position, direction, speed, 0);
+            }
+        }, Behaviors.STUPID);
+    }
+
+    @Test
+    public void testSmartMatchesSmartCreature() throws Exception {
+        checkEquivalence(Topology.toroidal(SIZE, SIZE), 400, 60, new Factory() {
+            public AbstractCreature create(IEnvironment environment, int i, Position position,
+                                           double direction, double speed) {
+                return new SmartCreature(environment, position, direction, speed, 0);
+            }
+        }, Behaviors.SMART);
+    }
+
+    /**
+     * The noise of {@link Behaviors#BOUNCING} with the random draws of the
+     * creatures, in the same order: the noise of the creatures that share it
+     * is applied in the order of the population at the same cycle.
+     */
+    @Test
+    public void testBouncingMatchesBouncingCreature() throws Exception {
+        final Random forCreatures = new Random(5);
+        final Random forNoise = new Random(5);
+        Factory factory = new Factory() {
+            public AbstractCreature create(IEnvironment environment, int i, Position position,
+                                           double direction, double speed) {
+                // the noise of each creature due at a different cycle
+                int cycle = (i * 37) % BouncingCreature.NUMBER_OF_CYCLES_PER_CHANGE;
+                return new Seeded(environment, position, direction, speed, cycle, forCreatures);
+            }
+        };
+        Behavior bouncing = new Behavior("bouncing",
+                new Noise(BouncingCreature.NUMBER_OF_CYCLES_PER_CHANGE,
+                        BouncingCreature.MIN_SPEED, BouncingCreature.MAX_SPEED, PI / 4, forNoise),
+                new Bounce());
+
+        checkEquivalence(Topology.toroidal(SIZE, SIZE), 100, 1000, factory, bouncing);
+    }
+
+    static class Seeded extends BouncingCreature {
+        private final Random random;
+
+        Seeded(IEnvironment environment, Position position, double direction, double speed, int cycle,
+               Random random) {
+            super(environment, position, direction, speed, 0);
+            this.currCycle = cycle;
+            this.random = random;
+        }
+
+        @Override
+        public void perturb() {
+            speed = Math.max(MIN_SPEED, Math.min(MAX_SPEED, speed + random.nextDouble() * 2 - 1));
+            setDirection(direction + (random.nextDouble() * 2 - 1) * PI / 4);
+        }
+    }
+
+    /**
+     * The batch takes over the noise cycle of the creature instead of
+     * starting a new one.
+     */
+    @Test
+    public void testBouncingKeepsTheNoiseCycle() throws Exception {
+        World world = new World(Topology.toroidal(SIZE, SIZE));
+        Seeded creature = new Seeded(world, new Position(0, 0), 0, 1,
+                BouncingCreature.NUMBER_OF_CYCLES_PER_CHANGE - 10, new Random(6));
+        BehaviorEngine engine = new BehaviorEngine(world, pool);
+        engine.add(creature, Behaviors.BOUNCING);
+
+        for (int t = 0; t < 9; t++) {
+            engine.tick();
+        }
+        assertEquals(0, creature.getDirection(), 0);
+        assertEquals(1, creature.getSpeed(), 0);
+        // act() would apply the noise at its tenth call
+        engine.tick();
+        assertNotEquals(0, creature.getDirection(), 0);
+    }
+}
@@ -0,0 +1,72 @@
+package creatures.visual;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import creatures.AbstractCreature;
+import creatures.Position;
+import creatures.StupidCreature;
+import creatures.Topology;
+import simulator.World;
+
+public class HeatmapRendererTest {
+
+    private static final int WHITE = 0xFFFFFFFF;
+
+    /**
+     * A few creatures in the top left cell going east at the given speed,
+     * painted with the default cell size.
+     */
+    private static BufferedImage paint(double speed) {
+        World world = new World(Topology.toroidal(64, 64));
+        List<AbstractCreature> creatures = new ArrayList<AbstractCreature>();
+        for (int i = 0; i < 5; i++) {
+            creatures.add(new StupidCreature(world, new Position(-30 + i, -30), 0, speed, 0));
+        }
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = image.createGraphics();
+        new HeatmapRenderer().paint(g2, new Viewport(64, 64), creatures);
+        g2.dispose();
+        return image;
+    }
+
+    /**
+     * White pixels outside of the only occupied cell, which is the densest
+     * one and painted white itself.
+     */
+    private static int arrowPixels(BufferedImage image) {
+        int cell = HeatmapRenderer.DEFAULT_CELL_PIXELS;
+        int count = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if ((x >= cell || y >= cell) && image.getRGB(x, y) == WHITE) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testArrowsAreDrawnWithTheDefaultCells() throws Exception {
+        BufferedImage image = paint(10);
+
+        assertEquals(WHITE, image.getRGB(0, 0));
+        assertTrue(arrowPixels(image) > 0);
+        // along the block of two cells by two, pointing east
+        int block = 2 * HeatmapRenderer.DEFAULT_CELL_PIXELS;
+        assertEquals(WHITE, image.getRGB(block - 3, block / 2));
+    }
+
+    @Test
+    public void testStillCreaturesHaveNoArrow() throws Exception {
+        assertEquals(0, arrowPixels(paint(0)));
+    }
+}
@@ -0,0 +1,142 @@
+package creatures.visual;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.Test;
+
+import creatures.Position;
+import creatures.StupidCreature;
+import creatures.Topology;
+import simulator.World;
+import simulator.spatial.KdTree;
+
+public class ViewportTest {
+
+    @Test
+    public void testTransformMatchesToScreen() throws Exception {
+        Viewport viewport = new Viewport(200, 100);
+        viewport.setCenter(10, -5);
+        viewport.setZoom(2);
+
+        Point2D p = viewport.getTransform().transform(new Point2D.Double(20, 0), null);
+        assertEquals(viewport.toScreenX(20), p.getX(), 1e-9);
+        assertEquals(viewport.toScreenY(0), p.getY(), 1e-9);
+        assertEquals(120, p.getX(), 1e-9);
+        assertEquals(60, p.getY(), 1e-9);
+    }
+
+    @Test
+    public void testZoomKeepsThePointUnderTheMouse() throws Exception {
+        Viewport viewport = new Viewport(200, 100);
+        Point2D before = viewport.toWorld(30, 70);
+        viewport.zoomAt(3, 30, 70);
+        Point2D after = viewport.toWorld(30, 70);
+
+        assertEquals(before.getX(), after.getX(), 1e-9);
+        assertEquals(before.getY(), after.getY(), 1e-9);
+        assertEquals(3, viewport.getZoom(), 1e-9);
+    }
+
+    @Test
+    public void testPan() throws Exception {
+        Viewport viewport = new Viewport(200, 100);
+        viewport.setZoom(2);
+        viewport.pan(20, -10);
+
+        assertEquals(-10, viewport.getCenterX(), 1e-9);
+        assertEquals(5, viewport.getCenterY(), 1e-9);
+        assertEquals(-60, viewport.getMinX(), 1e-9);
+        assertEquals(30, viewport.getMaxY(), 1e-9);
+    }
+
+    @Test
+    public void testOnlyTheVisibleCreaturesArePainted() throws Exception {
+        World world = new World(2000, 2000);
+        world.addCreature(new StupidCreature(world, new Position(0, 0), 0, 0, 0xFFFF0000));
+        world.addCreature(new StupidCreature(world, new Position(30, 20), 0, 0, 0xFF00FF00));
+        world.addCreature(new StupidCreature(world, new Position(500, 0), 0, 0, 0xFF0000FF));
+        world.getSpatialIndex().rebuild(world.getCreatureList());
+
+        BufferedImage image = new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = image.createGraphics();
+        ViewportRenderer renderer = new ViewportRenderer();
+
+        Viewport viewport = new Viewport(200, 100);
+        renderer.paint(g2, viewport, world);
+        assertEquals(2, renderer.getPainted());
+
+        // zoomed out: everything, as pixels
+        viewport.setZoom(0.05);
+        renderer.paint(g2, viewport, world);
+        assertEquals(3, renderer.getPainted());
+        assertEquals(0xFF0000FF, image.getRGB(100 + 25, 50));
+
+        g2.dispose();
+    }
+
+    /**
+     * Zoomed out beyond the size of a toroidal world, with the k-d tree as
+     * the index: each creature is painted once.
+     */
+    @Test
+    public void testZoomedOutOnAKdTree() throws Exception {
+        Topology topology = Topology.toroidal(400, 400);
+        World world = new World(topology);
+        Random random = new Random(1);
+        for (int i = 0; i < 500; i++) {
+            world.addCreature(new StupidCreature(world,
+                    new Position((random.nextDouble() - 0.5) * 400, (random.nextDouble() - 0.5) * 400), 0, 0, 0));
+        }
+        world.setSpatialIndex(new KdTree(topology));
+
+        BufferedImage image = new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = image.createGraphics();
+        ViewportRenderer renderer = new ViewportRenderer();
+        renderer.setMode(ViewportRenderer.Mode.PIXELS);
+        Viewport viewport = new Viewport(200, 100);
+        for (double zoom : new double[] {0.25, 0.1, 0.05}) {
+            viewport.setZoom(zoom);
+            renderer.paint(g2, viewport, world);
+            assertEquals("zoom " + zoom, 500, renderer.getPainted());
+        }
+        g2.dispose();
+    }
+
+    @Test
+    public void testHeatmapBinsTheVisibleCreatures() throws Exception {
+        World world = new World(2000, 2000);
+        for (int i = 0; i < 10; i++) {
+            world.addCreature(new StupidCreature(world, new Position(1, 1), 0, 5, 0));
+        }
+        world.addCreature(new StupidCreature(world, new Position(-30, 1), Math.PI, 5, 0));
+        world.addCreature(new StupidCreature(world, new Position(900, 0), 0, 5, 0));
+
+        Viewport viewport = new Viewport(200, 100);
+        DensityGrid grid = new DensityGrid();
+        grid.bin(world.getCreatureList(), viewport, 10);
+
+        assertEquals(20, grid.getColumns());
+        assertEquals(10, grid.getRows());
+        assertEquals(11, grid.getTotal());
+        assertEquals(10, grid.getCount(10, 5));
+        assertEquals(1, grid.getCount(7, 5));
+        assertEquals(5, grid.getMeanVelocityX(10, 5), 1e-9);
+        assertEquals(-5, grid.getMeanVelocityX(7, 5), 1e-9);
+
+        BufferedImage image = new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = image.createGraphics();
+        ViewportRenderer renderer = new ViewportRenderer();
+        renderer.setMode(ViewportRenderer.Mode.HEATMAP);
+        renderer.paint(g2, viewport, world);
+        g2.dispose();
+
+        // the densest cell is white, the empty ones black
+        assertEquals(0xFFFFFFFF, image.getRGB(101, 51));
+        assertEquals(0xFF000000, image.getRGB(5, 5));
+    }
+}
@@ -0,0 +1,230 @@
+package simulator;
+
+import static java.lang.Math.PI;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import creatures.AbstractCreature;
+import creatures.BouncingCreature;
+import creatures.IEnvironment;
+import creatures.Position;
+import creatures.Topology;
+
+public class EventDrivenSimulatorTest {
+
+    private static final double WIDTH = 400;
+    private static final double HEIGHT = 300;
+
+    /**
+     * A bouncing creature with its own random noise, so that two copies
+     * perturb the same way, counting its bounces.
+     */
+    static class Recorded extends BouncingCreature {
+        private final Random random;
+        int bounces;
+
+        Recorded(IEnvironment environment, double x, double y, double direction, double speed,
+                 int cycle, long seed) {
+            super(environment, new Position(x, y), direction, speed, 0);
+            this.random = new Random(seed);
+            this.currCycle = cycle;
+        }
+
+        @Override
+        public void perturb() {
+            speed = MIN_SPEED + random.nextDouble() * (MAX_SPEED - MIN_SPEED);
+            setDirection(direction + (random.nextDouble() - 0.5) * PI / 2);
+        }
+
+        @Override
+        public void move() {
+            double before = getDirection();
+            super.move();
+            if (getDirection() != before) {
+                bounces++;
+            }
+        }
+
+        @Override
+        public boolean bounce() {
+            boolean bounced = super.bounce();
+            if (bounced) {
+                bounces++;
+            }
+            return bounced;
+        }
+    }
+
+    /**
+     * The same population every time for a given seed, the noise of each
+     * creature due at a different cycle.
+     */
+    private static List<BouncingCreature> population(int n, long seed) {
+        World world = new World(Topology.bounded(WIDTH, HEIGHT));
+        Random random = new Random(seed);
+        List<BouncingCreature> list = new ArrayList<BouncingCreature>();
+        for (int i = 0; i < n; i++) {
+            list.add(new Recorded(world,
+                    (random.nextDouble() - 0.5) * WIDTH, (random.nextDouble() - 0.5) * HEIGHT,
+                    random.nextDouble() * 2 * PI,
+                    BouncingCreature.MIN_SPEED + random.nextDouble() * 7,
+                    random.nextInt(BouncingCreature.NUMBER_OF_CYCLES_PER_CHANGE), random.nextLong()));
+        }
+        return list;
+    }
+
+    private static void assertSameState(List<BouncingCreature> expected, List<BouncingCreature> actual,
+                                        String when) {
+        for (int i = 0; i < expected.size(); i++) {
+            BouncingCreature e = expected.get(i);
+            BouncingCreature a = actual.get(i);
+            String what = when + ", creature " + i;
+            assertEquals(what, e.getPosition().getX(), a.getPosition().getX(), 1e-6);
+            assertEquals(what, e.getPosition().getY(), a.getPosition().getY(), 1e-6);
+            assertEquals(what, e.getDirection(), a.getDirection(), 1e-9);
+            assertEquals(what, e.getSpeed(), a.getSpeed(), 1e-12);
+        }
+    }
+
+    @Test
+    public void testAdvanceToMatchesAct() throws Exception {
+        List<BouncingCreature> acting = population(60, 1);
+        List<BouncingCreature> simulated = population(60, 1);
+        EventDrivenSimulator simulator = new EventDrivenSimulator(simulated);
+
+        // every creature goes through its noise at least twice
+        int cycles = 2 * BouncingCreature.NUMBER_OF_CYCLES_PER_CHANGE + 500;
+        for (int t = 0; t < cycles; t++) {
+            for (BouncingCreature c : acting) {
+                c.act();
+            }
+        }
+        simulator.advanceTo(cycles);
+        assertSameState(acting, simulated, "after " + cycles + " cycles");
+
+        // act() carries on with the noise where the simulator left it
+        for (int t = 0; t < BouncingCreature.NUMBER_OF_CYCLES_PER_CHANGE; t++) {
+            for (int i = 0; i < acting.size(); i++) {
+                acting.get(i).act();
+                simulated.get(i).act();
+            }
+        }
+        assertSameState(acting, simulated, "after act()");
+    }
+
+    @Test
+    public void testBouncesHappenAtTheSameCycles() throws Exception {
+        List<BouncingCreature> acting = population(40, 2);
+        List<BouncingCreature> simulated = population(40, 2);
+        EventDrivenSimulator simulator = new EventDrivenSimulator(simulated, 3);
+
+        List<List<Integer>> expected = new ArrayList<List<Integer>>();
+        List<List<Integer>> actual = new ArrayList<List<Integer>>();
+        for (int i = 0; i < acting.size(); i++) {
+            expected.add(new ArrayList<Integer>());
+            actual.add(new ArrayList<Integer>());
+        }
+
+        for (int t = 1; t <= 4000; t++) {
+            for (int i = 0; i < acting.size(); i++) {
+                Recorded c = (Recorded) acting.get(i);
+                int before = c.bounces;
+                c.act();
+                if (c.bounces != before) {
+                    expected.get(i).add(t);
+                }
+            }
+
+            int[] before = new int[simulated.size()];
+            for (int i = 0; i < simulated.size(); i++) {
+                before[i] = ((Recorded) simulated.get(i)).bounces;
+            }
+            simulator.tick();
+            for (int i = 0; i < simulated.size(); i++) {
+                if (((Recorded) simulated.get(i)).bounces != before[i]) {
+                    actual.get(i).add(t);
+                }
+            }
+
+            if (t % 100 == 0) {
+                assertSameState(acting, simulated, "cycle " + t);
+            }
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testCreaturesMeetingInTheSecondWindow() throws Exception {
+        World world = new World(Topology.bounded(WIDTH, HEIGHT));
+        List<BouncingCreature> list = new ArrayList<BouncingCreature>();
+        list.add(new BouncingCreature(world, new Position(-100, 0), 0, 5, 0));
+        list.add(new BouncingCreature(world, new Position(100, 0), PI, 5, 0));
+        EventDrivenSimulator simulator = new EventDrivenSimulator(list, 10);
+        List<String> seen = recordVision(simulator, list);
+
+        simulator.advanceTo(20);
+
+        // 200 pixels apart closing at 10 per cycle, in range at 50
+        assertEquals(2, seen.size());
+        Collections.sort(seen);
+        assertEquals("0 sees 1 at 15.000", seen.get(0));
+        assertEquals("1 sees 0 at 15.000", seen.get(1));
+    }
+
+    /**
+     * The candidates of short windows miss no vision event: a window long
+     * enough for every pair to be a candidate finds the same ones.
+     */
+    @Test
+    public void testShortWindowsSeeWhatAllThePairsSee() throws Exception {
+        List<BouncingCreature> windowed = population(80, 3);
+        List<BouncingCreature> everyPair = population(80, 3);
+        EventDrivenSimulator a = new EventDrivenSimulator(windowed, 2);
+        EventDrivenSimulator b = new EventDrivenSimulator(everyPair, 1e6);
+        List<String> expected = recordVision(b, everyPair);
+        List<String> actual = recordVision(a, windowed);
+
+        a.advanceTo(3500);
+        b.advanceTo(3500);
+
+        assertTrue(expected.size() > 100);
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Every bounce makes the vision events of the creature stale, the queue
+     * would grow with the simulated time if they were kept.
+     */
+    @Test
+    public void testStaleEventsAreDropped() throws Exception {
+        List<BouncingCreature> list = population(300, 4);
+        EventDrivenSimulator simulator = new EventDrivenSimulator(list, 5);
+        int[] largest = new int[4];
+        for (int t = 0; t < 2000; t++) {
+            simulator.tick();
+            largest[t / 500] = Math.max(largest[t / 500], simulator.getQueueSize());
+        }
+        assertTrue(simulator.getProcessedEvents() > 100 * largest[3]);
+        assertTrue(largest[3] + " after " + largest[0], largest[3] < 1.5 * largest[0]);
+    }
+
+    private static List<String> recordVision(EventDrivenSimulator simulator,
+                                             final List<BouncingCreature> list) {
+        final List<String> seen = new ArrayList<String>();
+        simulator.setVisionListener(new EventDrivenSimulator.VisionListener() {
+            public void creatureSeen(AbstractCreature observer, AbstractCreature other, double time) {
+                seen.add(String.format("%d sees %d at %.3f", list.indexOf(observer), list.indexOf(other), time));
+            }
+        });
+        return seen;
+    }
+}
@@ -0,0 +1,238 @@
+package simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import creatures.AbstractCreature;
+import creatures.BouncingCreature;
+import creatures.Position;
+import creatures.StupidCreature;
+
+public class TickSchedulerTest {
+
+    /**
+     * Counts the acts of a creature.
+     */
+    static class Counting extends StupidCreature {
+        int acts;
+
+        Counting(World world, double x) {
+            super(world, new Position(x, 0), 0, 0, 0);
+        }
+
+        @Override
+        public void act() {
+            acts++;
+        }
+    }
+
+    /**
+     * A clock that advances by one nanosecond each time it is read.
+     */
+    static class Scheduler extends TickScheduler {
+        long time;
+        int classified;
+
+        Scheduler(World world, long budget) {
+            super(world, budget);
+        }
+
+        @Override
+        protected long now() {
+            return time++;
+        }
+
+        @Override
+        protected boolean isLowPriority(AbstractCreature c) {
+            classified++;
+            return super.isLowPriority(c);
+        }
+    }
+
+    @Test
+    public void testEveryCreatureActsWithinTheBudget() throws Exception {
+        World world = new World(1000, 1000);
+        Counting a = new Counting(world, 0);
+        Counting b = new Counting(world, 10);
+        world.addCreature(a);
+        world.addCreature(b);
+
+        TickScheduler scheduler = new Scheduler(world, 1000);
+        scheduler.tick();
+
+        assertEquals(1, a.acts);
+        assertEquals(1, b.acts);
+        assertEquals(0, scheduler.getDeferred());
+    }
+
+    @Test
+    public void testLowPriorityCreaturesAreDeferredAndCatchUp() throws Exception {
+        World world = new World(1000, 1000);
+        Counting onScreen = new Counting(world, 0);
+        Counting neighbour = new Counting(world, 10);
+        world.addCreature(onScreen);
+        world.addCreature(neighbour);
+        Counting[] offScreen = new Counting[2 * TickScheduler.CHUNK];
+        for (int i = 0; i < offScreen.length; i++) {
+            offScreen[i] = new Counting(world, 200 + i);
+            world.addCreature(offScreen[i]);
+        }
+
+        Scheduler scheduler = new Scheduler(world, 1000);
+        scheduler.setViewport(-100, -100, 100, 100);
+        // the new creatures act first, to be classified
+        scheduler.tick();
+        assertEquals(1, offScreen[0].acts);
+
+        // one chunk fits in the budget
+        scheduler.setBudget(2);
+        scheduler.tick();
+        assertEquals(2, onScreen.acts);
+        assertEquals(TickScheduler.CHUNK, scheduler.getDeferred());
+        assertEquals(2, offScreen[0].acts);
+        assertEquals(1, offScreen[offScreen.length - 1].acts);
+
+        // the deferred ones go first, with their missed tick
+        scheduler.tick();
+        assertEquals(3, onScreen.acts);
+        assertEquals(3, offScreen[offScreen.length - 1].acts);
+        assertEquals(2, offScreen[0].acts);
+
+        // no more pressure: everybody catches up
+        scheduler.setBudget(1000);
+        scheduler.tick();
+        scheduler.tick();
+        for (Counting c : offScreen) {
+            assertEquals(5, c.acts);
+        }
+        assertEquals(0, scheduler.getDebt());
+    }
+
+    @Test
+    public void testHighPriorityCreaturesAreChunkedToo() throws Exception {
+        World world = new World(1000, 1000);
+        // close enough to see each other, all of them high priority
+        Counting[] crowd = new Counting[3 * TickScheduler.CHUNK];
+        for (int i = 0; i < crowd.length; i++) {
+            crowd[i] = new Counting(world, i);
+            world.addCreature(crowd[i]);
+        }
+
+        Scheduler scheduler = new Scheduler(world, 1000);
+        scheduler.tick();
+
+        // spent as soon as it is checked: only the first chunk acts
+        scheduler.setBudget(1);
+        scheduler.tick();
+        assertEquals(2, crowd[0].acts);
+        assertEquals(1, crowd[TickScheduler.CHUNK].acts);
+        assertEquals(2 * TickScheduler.CHUNK, scheduler.getDeferred());
+
+        // the deferred ones go first, with their missed tick
+        scheduler.tick();
+        assertEquals(2, crowd[0].acts);
+        assertEquals(3, crowd[TickScheduler.CHUNK].acts);
+        assertEquals(1, crowd[crowd.length - 1].acts);
+
+        scheduler.setBudget(1000);
+        scheduler.tick();
+        for (Counting c : crowd) {
+            assertEquals(4, c.acts);
+        }
+        assertEquals(0, scheduler.getDebt());
+    }
+
+    @Test
+    public void testReplacedCreaturesAreReclassified() throws Exception {
+        World world = new World(1000, 1000);
+        Counting a = new Counting(world, 0);
+        Counting b = new Counting(world, 10);
+        world.addCreature(a);
+        world.addCreature(b);
+        TickScheduler scheduler = new Scheduler(world, 1000);
+        scheduler.tick();
+
+        // same size, another creature
+        Counting c = new Counting(world, 20);
+        world.getCreatureList().remove(b);
+        world.addCreature(c);
+        scheduler.tick();
+
+        assertEquals(2, a.acts);
+        assertEquals(1, b.acts);
+        assertEquals(1, c.acts);
+    }
+
+    /**
+     * After the first tick, every creature is classified once per period and
+     * as many of them at each tick.
+     */
+    @Test
+    public void testClassificationIsSpreadOverThePeriod() throws Exception {
+        World world = new World(1000, 1000);
+        int n = 20 * TickScheduler.RECLASSIFY_PERIOD;
+        for (int i = 0; i < n; i++) {
+            world.addCreature(new Counting(world, i * 3 % 1000 - 500));
+        }
+        Scheduler scheduler = new Scheduler(world, 1000000);
+        scheduler.tick();
+        assertEquals(n, scheduler.classified);
+
+        for (int t = 0; t < 2 * TickScheduler.RECLASSIFY_PERIOD; t++) {
+            scheduler.classified = 0;
+            scheduler.tick();
+            assertEquals("tick " + t, 20, scheduler.classified);
+        }
+    }
+
+    /**
+     * Creatures spawned in numbers are classified as they come up in the
+     * chunks, not all at once before the budget is checked.
+     */
+    @Test
+    public void testSpawnedCreaturesAreClassifiedWithinTheBudget() throws Exception {
+        World world = new World(1000, 1000);
+        Counting[] crowd = new Counting[3 * TickScheduler.CHUNK];
+        for (int i = 0; i < crowd.length; i++) {
+            crowd[i] = new Counting(world, i);
+            world.addCreature(crowd[i]);
+        }
+        Scheduler scheduler = new Scheduler(world, 1000000);
+        scheduler.tick();
+
+        Counting[] spawned = new Counting[10 * TickScheduler.CHUNK];
+        for (int i = 0; i < spawned.length; i++) {
+            spawned[i] = new Counting(world, i % 1000 - 500);
+            world.addCreature(spawned[i]);
+        }
+        scheduler.setBudget(1);
+        scheduler.classified = 0;
+        scheduler.tick();
+        assertTrue(scheduler.classified <= TickScheduler.CHUNK);
+
+        // with time to spare, everybody acts and catches up
+        scheduler.setBudget(1000000);
+        scheduler.tick();
+        for (Counting c : spawned) {
+            assertTrue(c.acts > 0);
+        }
+        assertEquals(0, scheduler.getDebt());
+    }
+
+    @Test
+    public void testBouncingCreaturesAreLowPriority() throws Exception {
+        World world = new World(1000, 1000);
+        AbstractCreature c = new BouncingCreature(world, new Position(), 0, 0, 0);
+        AbstractCreature other = new StupidCreature(world, new Position(1, 0), 0, 0, 0);
+        world.addCreature(c);
+        world.addCreature(other);
+
+        TickScheduler scheduler = new TickScheduler(world, 0);
+        world.getSpatialIndex().rebuild(world.getCreatureList());
+
+        assertEquals(true, scheduler.isLowPriority(c));
+        assertEquals(false, scheduler.isLowPriority(other));
+    }
+}
@@ -0,0 +1,54 @@
+package simulator.bench;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class BenchmarkResultTest {
+
+    @Test
+    public void testParseToCsv() throws Exception {
+        BenchmarkResult result = new BenchmarkResult("smart-flocks", 10000, 4, 200,
+                45.125, 21.5, 30.25, 512.5, 1234);
+        String line = result.toCsv();
+        assertEquals("smart-flocks,10000,4,200,45.125,21.500,30.250,512.5,1234", line);
+
+        BenchmarkResult parsed = BenchmarkResult.parse(line);
+        assertEquals("smart-flocks", parsed.getScenario());
+        assertEquals(10000, parsed.getCreatures());
+        assertEquals(4, parsed.getThreads());
+        assertEquals(200, parsed.getTicks());
+        assertEquals(45.125, parsed.getTicksPerSecond(), 0);
+        assertEquals(21.5, parsed.getP50(), 0);
+        assertEquals(30.25, parsed.getP99(), 0);
+        assertEquals(512.5, parsed.getHeapPeak(), 0);
+        assertEquals(1234, parsed.getGcTime());
+        assertEquals(result.getKey(), parsed.getKey());
+        assertEquals(line, parsed.toCsv());
+    }
+
+    /**
+     * Only the precision of the CSV survives a round trip.
+     */
+    @Test
+    public void testRounding() throws Exception {
+        BenchmarkResult result = new BenchmarkResult("stupid", 1000, 1, 100,
+                1.0 / 3, 2.0 / 3, 0.0004, 99.96, 0);
+        BenchmarkResult parsed = BenchmarkResult.parse(result.toCsv());
+        assertEquals(0.333, parsed.getTicksPerSecond(), 0);
+        assertEquals(0.667, parsed.getP50(), 0);
+        assertEquals(0, parsed.getP99(), 0);
+        assertEquals(100, parsed.getHeapPeak(), 0);
+        assertEquals(result.toCsv(), parsed.toCsv());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseHeader() throws Exception {
+        BenchmarkResult.parse(BenchmarkResult.HEADER);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseMissingField() throws Exception {
+        BenchmarkResult.parse("stupid,1000,1,100,1.0,1.0,1.0,64.0");
+    }
+}
@@ -0,0 +1,42 @@
+package simulator.bench;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class BenchmarkRunnerTest {
+
+    private static final long[] HUNDRED = new long[100];
+
+    static {
+        for (int i = 0; i < HUNDRED.length; i++) {
+            HUNDRED[i] = i + 1;
+        }
+    }
+
+    /**
+     * The smallest value with at least p of the values at or below it.
+     */
+    @Test
+    public void testPercentile() throws Exception {
+        assertEquals(50, BenchmarkRunner.percentile(HUNDRED, 0.50));
+        assertEquals(99, BenchmarkRunner.percentile(HUNDRED, 0.99));
+        assertEquals(100, BenchmarkRunner.percentile(HUNDRED, 0.995));
+        assertEquals(100, BenchmarkRunner.percentile(HUNDRED, 1));
+        assertEquals(1, BenchmarkRunner.percentile(HUNDRED, 0.01));
+        assertEquals(1, BenchmarkRunner.percentile(HUNDRED, 0));
+    }
+
+    @Test
+    public void testPercentileOfFewValues() throws Exception {
+        long[] three = {10, 20, 30};
+        assertEquals(20, BenchmarkRunner.percentile(three, 0.50));
+        assertEquals(30, BenchmarkRunner.percentile(three, 0.99));
+        assertEquals(10, BenchmarkRunner.percentile(three, 0.33));
+        assertEquals(20, BenchmarkRunner.percentile(three, 0.34));
+
+        long[] one = {7};
+        assertEquals(7, BenchmarkRunner.percentile(one, 0.50));
+        assertEquals(7, BenchmarkRunner.percentile(one, 0.99));
+    }
+}
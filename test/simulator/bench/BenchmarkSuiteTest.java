@@ -0,0 +1,88 @@
+package simulator.bench;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BenchmarkSuiteTest {
+
+    private static BenchmarkResult result(String scenario, int creatures, double ticksPerSecond, double p99) {
+        return new BenchmarkResult(scenario, creatures, 2, 100, ticksPerSecond, 1, p99, 64, 10);
+    }
+
+    private static int compare(BenchmarkResult result, BenchmarkResult baseline) {
+        return BenchmarkSuite.compare(Collections.singletonList(result), Collections.singletonList(baseline), 0.25);
+    }
+
+    @Test
+    public void testSameResultsAreNoRegression() throws Exception {
+        assertEquals(0, compare(result("stupid", 1000, 100, 4), result("stupid", 1000, 100, 4)));
+        // faster and steadier
+        assertEquals(0, compare(result("stupid", 1000, 150, 2), result("stupid", 1000, 100, 4)));
+    }
+
+    @Test
+    public void testThroughputRegression() throws Exception {
+        assertEquals(1, compare(result("stupid", 1000, 70, 4), result("stupid", 1000, 100, 4)));
+    }
+
+    @Test
+    public void testLatencyRegression() throws Exception {
+        assertEquals(1, compare(result("stupid", 1000, 100, 6), result("stupid", 1000, 100, 4)));
+        // one regression even when both got worse
+        assertEquals(1, compare(result("stupid", 1000, 70, 6), result("stupid", 1000, 100, 4)));
+    }
+
+    /**
+     * Exactly the threshold is tolerated, anything beyond it is not.
+     */
+    @Test
+    public void testThreshold() throws Exception {
+        BenchmarkResult baseline = result("stupid", 1000, 100, 4);
+        assertEquals(0, compare(result("stupid", 1000, 75, 4), baseline));
+        assertEquals(0, compare(result("stupid", 1000, 100, 5), baseline));
+        assertEquals(1, compare(result("stupid", 1000, 74.9, 4), baseline));
+        assertEquals(1, compare(result("stupid", 1000, 100, 5.01), baseline));
+    }
+
+    /**
+     * A run with no baseline of the same scenario, creature count and
+     * thread count is not compared with another one.
+     */
+    @Test
+    public void testMissingBaseline() throws Exception {
+        List<BenchmarkResult> baseline = Arrays.asList(
+                result("stupid", 1000, 100, 4),
+                result("bouncing", 2000, 100, 4),
+                new BenchmarkResult("stupid", 2000, 4, 100, 100, 1, 4, 64, 10));
+        List<BenchmarkResult> results = Arrays.asList(
+                result("stupid", 2000, 10, 40),
+                result("smart-flocks", 1000, 10, 40),
+                result("stupid", 1000, 70, 4));
+        assertEquals(1, BenchmarkSuite.compare(results, baseline, 0.25));
+        assertEquals(0, BenchmarkSuite.compare(results, Collections.<BenchmarkResult>emptyList(), 0.25));
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        List<BenchmarkResult> results = Arrays.asList(
+                result("stupid", 1000, 123.5, 4.25),
+                result("smart-flocks", 10000, 12.125, 80.5));
+        File file = File.createTempFile("baseline", ".csv");
+        try {
+            BenchmarkSuite.write(results, file);
+            List<BenchmarkResult> read = BenchmarkSuite.read(file);
+            assertEquals(2, read.size());
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(results.get(i).toCsv(), read.get(i).toCsv());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
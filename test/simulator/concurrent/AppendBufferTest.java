@@ -0,0 +1,124 @@
+package simulator.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Stress tests in the manner of jcstress: many threads released together,
+ * the outcome checked after each round.
+ */
+public class AppendBufferTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 50;
+
+    @Test
+    public void testKeepsTheOrderOfASingleThread() throws Exception {
+        AppendBuffer<Integer> buffer = new AppendBuffer<Integer>();
+        for (int i = 0; i < 5000; i++) {
+            buffer.append(i);
+        }
+        List<Integer> drained = new ArrayList<Integer>();
+        assertEquals(5000, buffer.drainTo(drained));
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i, (int) drained.get(i));
+        }
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentAppendsAreNeverLost() throws Exception {
+        final AppendBuffer<Integer> buffer = new AppendBuffer<Integer>();
+        // spans a few segments per round
+        final int perThread = 700;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            final CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                final int base = t * perThread;
+                threads[t] = new Thread() {
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        for (int i = 0; i < perThread; i++) {
+                            buffer.append(base + i);
+                        }
+                    }
+                };
+                threads[t].start();
+            }
+            start.countDown();
+            for (Thread t : threads) {
+                t.join();
+            }
+
+            List<Integer> drained = new ArrayList<Integer>();
+            buffer.drainTo(drained);
+            assertEquals(THREADS * perThread, drained.size());
+
+            boolean[] seen = new boolean[THREADS * perThread];
+            int[] last = new int[THREADS];
+            Arrays.fill(last, -1);
+            for (int v : drained) {
+                assertTrue("appended twice: " + v, !seen[v]);
+                seen[v] = true;
+                // the appends of a thread keep their order
+                assertTrue(v % perThread > last[v / perThread]);
+                last[v / perThread] = v % perThread;
+            }
+        }
+    }
+
+    /**
+     * Sealing while the threads append: every append that succeeded is
+     * drained, none of them leaves an empty slot behind.
+     */
+    @Test
+    public void testSealWaitsForTheAppendsInProgress() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            final AppendBuffer<Integer> buffer = new AppendBuffer<Integer>();
+            final CountDownLatch start = new CountDownLatch(THREADS);
+            final int[] appended = new int[THREADS];
+            Thread[] threads = new Thread[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                threads[t] = new Thread() {
+                    public void run() {
+                        start.countDown();
+                        while (buffer.append(appended[thread])) {
+                            appended[thread]++;
+                        }
+                    }
+                };
+                threads[t].start();
+            }
+            start.await();
+            buffer.seal();
+            for (Thread t : threads) {
+                t.join();
+            }
+
+            List<Integer> drained = new ArrayList<Integer>();
+            buffer.drainTo(drained);
+            int total = 0;
+            for (int n : appended) {
+                total += n;
+            }
+            assertEquals(total, drained.size());
+            assertFalse(drained.contains(null));
+            assertFalse(buffer.append(0));
+        }
+    }
+}
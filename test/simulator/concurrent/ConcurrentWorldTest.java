@@ -0,0 +1,365 @@
+package simulator.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import creatures.AbstractCreature;
+import creatures.Position;
+import creatures.SmartCreature;
+import creatures.StupidCreature;
+import creatures.Topology;
+import simulator.spatial.StripedGrid;
+import simulator.spatial.UniformGrid;
+
+/**
+ * Stress tests in the manner of jcstress: the creatures act on more threads
+ * than the machine may have cores, and the outcome is checked after each
+ * tick.
+ */
+public class ConcurrentWorldTest {
+
+    private static final int SIZE = 2000;
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Moves, spawns a child at each tick and despawns itself every other
+     * tick, counting its acts.
+     */
+    static class Breeder extends StupidCreature {
+        final ConcurrentWorld world;
+        final List<AbstractCreature> children = new ArrayList<AbstractCreature>();
+        int acts;
+        int seenPopulation = -1;
+
+        Breeder(ConcurrentWorld world, double x, double y, double direction) {
+            super(world, new Position(x, y), direction, 5, 0);
+            this.world = world;
+        }
+
+        @Override
+        public void act() {
+            super.act();
+            acts++;
+            seenPopulation = world.getCreatureList().size();
+            AbstractCreature child = new StupidCreature(world, getPosition(), 0, 0, 0);
+            children.add(child);
+            world.spawn(child);
+            if (acts % 2 == 0) {
+                world.despawn(this);
+            }
+        }
+    }
+
+    private static List<Breeder> breeders(ConcurrentWorld world, int n, long seed) {
+        Random random = new Random(seed);
+        List<Breeder> list = new ArrayList<Breeder>();
+        for (int i = 0; i < n; i++) {
+            list.add(new Breeder(world, (random.nextDouble() - 0.5) * SIZE, (random.nextDouble() - 0.5) * SIZE,
+                    random.nextDouble() * 2 * Math.PI));
+        }
+        return list;
+    }
+
+    @Test
+    public void testSpawnsAndDespawnsAreNeverLost() throws Exception {
+        ConcurrentWorld world = new ConcurrentWorld(Topology.toroidal(SIZE, SIZE), pool);
+        List<Breeder> breeders = breeders(world, 6000, 1);
+        world.spawn(breeders);
+        world.tick();
+        assertEquals(6000, world.getCreatureList().size());
+
+        // first act: every breeder stays and spawns a child
+        world.tick();
+        assertEquals(12000, world.getCreatureList().size());
+        // second act: every breeder leaves and spawns a child
+        world.tick();
+        assertEquals(12000, world.getCreatureList().size());
+
+        Set<AbstractCreature> population = identitySet(world.getCreatureList());
+        for (Breeder b : breeders) {
+            assertFalse(population.contains(b));
+            assertEquals(2, b.acts);
+            // the population of the end of the second tick, unchanged while
+            // the creatures acted
+            assertEquals(12000, b.seenPopulation);
+            for (AbstractCreature child : b.children) {
+                assertTrue(population.contains(child));
+            }
+        }
+    }
+
+    @Test
+    public void testEveryCreatureActsOnceAtEachTick() throws Exception {
+        ConcurrentWorld world = new ConcurrentWorld(Topology.toroidal(SIZE, SIZE), pool);
+        final List<Counting> list = new ArrayList<Counting>();
+        Random random = new Random(2);
+        for (int i = 0; i < 8000; i++) {
+            list.add(new Counting(world, (random.nextDouble() - 0.5) * SIZE, (random.nextDouble() - 0.5) * SIZE,
+                    random.nextDouble() * 2 * Math.PI));
+        }
+        world.spawn(list);
+        world.tick();
+
+        for (int tick = 1; tick <= 20; tick++) {
+            world.tick();
+            for (Counting c : list) {
+                assertEquals(tick, c.acts);
+            }
+        }
+    }
+
+    static class Counting extends StupidCreature {
+        int acts;
+
+        Counting(ConcurrentWorld world, double x, double y, double direction) {
+            super(world, new Position(x, y), direction, 7, 0);
+        }
+
+        @Override
+        public void act() {
+            // fast enough to change cell often
+            super.act();
+            acts++;
+        }
+    }
+
+    @Test
+    public void testStripedGridSeesWhatTheUniformGridSees() throws Exception {
+        Topology topology = Topology.toroidal(SIZE, SIZE);
+        ConcurrentWorld world = new ConcurrentWorld(topology, pool);
+        List<Counting> list = new ArrayList<Counting>();
+        Random random = new Random(3);
+        for (int i = 0; i < 6000; i++) {
+            list.add(new Counting(world, (random.nextDouble() - 0.5) * SIZE, (random.nextDouble() - 0.5) * SIZE,
+                    random.nextDouble() * 2 * Math.PI));
+        }
+        StripedGrid striped = new StripedGrid(topology, pool);
+        UniformGrid uniform = new UniformGrid(topology);
+
+        for (int tick = 0; tick < 10; tick++) {
+            striped.rebuild(list);
+            uniform.rebuild(list);
+            assertEquals(list.size(), striped.size());
+            for (int i = 0; i < list.size(); i += 7) {
+                Counting c = list.get(i);
+                assertEquals(identitySet(uniform.creaturesAround(c)), identitySet(striped.creaturesAround(c)));
+                assertEquals(uniform.nearest(c, 3), striped.nearest(c, 3));
+            }
+            for (Counting c : list) {
+                c.act();
+            }
+            if (tick == 5) {
+                // new indexes, the grid starts over
+                Collections.shuffle(list, random);
+                list.remove(list.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * Threads outside of the ticks spawn creatures one at a time while the
+     * ticks run and merge: each of them joins the population exactly once.
+     */
+    @Test
+    public void testSpawnsFromOtherThreadsDuringTheTicks() throws Exception {
+        final ConcurrentWorld world = new ConcurrentWorld(Topology.toroidal(SIZE, SIZE), pool);
+        List<Counting> initial = new ArrayList<Counting>();
+        for (int i = 0; i < 2000; i++) {
+            initial.add(new Counting(world, i - 1000, 0, 0));
+        }
+        world.spawn(initial);
+        world.tick();
+
+        final List<AbstractCreature> spawned = new ArrayList<AbstractCreature>();
+        for (int i = 0; i < 100000; i++) {
+            spawned.add(new StupidCreature(world, new Position(0, i % 1000), 0, 0, 0));
+        }
+        Thread[] spawners = new Thread[4];
+        for (int t = 0; t < spawners.length; t++) {
+            final List<AbstractCreature> part = spawned.subList(t * 25000, (t + 1) * 25000);
+            spawners[t] = new Thread() {
+                public void run() {
+                    for (AbstractCreature c : part) {
+                        world.spawn(c);
+                    }
+                }
+            };
+            spawners[t].start();
+        }
+        int ticks = 0;
+        for (Thread spawner : spawners) {
+            while (spawner.isAlive()) {
+                world.tick();
+                ticks++;
+            }
+            spawner.join();
+        }
+        world.tick();
+
+        assertTrue("no tick ran during the spawns", ticks > 0);
+        List<AbstractCreature> population = world.getCreatureList();
+        assertEquals(2000 + spawned.size(), population.size());
+        assertFalse(population.contains(null));
+        Set<AbstractCreature> distinct = identitySet(population);
+        assertEquals(population.size(), distinct.size());
+        for (AbstractCreature c : spawned) {
+            assertTrue(distinct.contains(c));
+        }
+    }
+
+    /**
+     * Looks around before moving, checking what the {@link StripedGrid}
+     * answers while the other creatures move: the positions of the start of
+     * the tick, the same as a {@link UniformGrid} built at that time.
+     */
+    static class Checking extends SmartCreature {
+        final Map<AbstractCreature, Set<AbstractCreature>> expected;
+        final List<String> errors;
+        int acts;
+
+        Checking(ConcurrentWorld world, double x, double y, double direction,
+                 Map<AbstractCreature, Set<AbstractCreature>> expected, List<String> errors) {
+            super(world, new Position(x, y), direction, 4, 0);
+            this.expected = expected;
+            this.errors = errors;
+        }
+
+        @Override
+        public void act() {
+            List<AbstractCreature> around = new ArrayList<AbstractCreature>(environment.creaturesAround(this));
+            Set<AbstractCreature> seen = identitySet(around);
+            if (seen.size() != around.size()) {
+                errors.add("the same creature seen twice: " + around.size() + " for " + seen.size());
+            }
+            if (!seen.equals(expected.get(this))) {
+                errors.add("seen " + seen.size() + " instead of " + expected.get(this).size());
+            }
+            super.act();
+            acts++;
+        }
+    }
+
+    @Test
+    public void testSmartCreaturesQueryTheStripedGridDuringATick() throws Exception {
+        Topology topology = Topology.toroidal(SIZE, SIZE);
+        ConcurrentWorld world = new ConcurrentWorld(topology, pool);
+        Map<AbstractCreature, Set<AbstractCreature>> expected =
+                new IdentityHashMap<AbstractCreature, Set<AbstractCreature>>();
+        List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        List<Checking> list = new ArrayList<Checking>();
+        Random random = new Random(5);
+        // flocks of a hundred, so that the creatures see many others
+        for (int f = 0; f < 40; f++) {
+            double cx = (random.nextDouble() - 0.5) * SIZE;
+            double cy = (random.nextDouble() - 0.5) * SIZE;
+            double direction = random.nextDouble() * 2 * Math.PI;
+            for (int i = 0; i < 100; i++) {
+                list.add(new Checking(world, cx + random.nextGaussian() * 30, cy + random.nextGaussian() * 30,
+                        direction + random.nextGaussian() * 0.3, expected, errors));
+            }
+        }
+        world.spawn(list);
+        world.tick();
+
+        UniformGrid uniform = new UniformGrid(topology);
+        long seen = 0;
+        for (int tick = 1; tick <= 20; tick++) {
+            uniform.rebuild(world.getCreatureList());
+            expected.clear();
+            for (Checking c : list) {
+                Set<AbstractCreature> around = identitySet(uniform.creaturesAround(c));
+                expected.put(c, around);
+                seen += around.size();
+            }
+            world.tick();
+            assertEquals("tick " + tick, Collections.emptyList(), errors);
+            for (Checking c : list) {
+                assertEquals(tick, c.acts);
+            }
+        }
+        assertTrue(seen > 20 * list.size());
+    }
+
+    /**
+     * A writer flips the state of a creature between two values while
+     * readers check that they only ever see one or the other, never a mix.
+     */
+    @Test
+    public void testCreatureStateIsNeverTorn() throws Exception {
+        ConcurrentWorld world = new ConcurrentWorld(Topology.toroidal(SIZE, SIZE), pool);
+        final AbstractCreature c = new StupidCreature(world, new Position(0, 0), 0, 0, 0);
+        // the halves of the bit patterns differ
+        final double speedA = Double.longBitsToDouble(0x3FF0000000000000L);
+        final double speedB = Double.longBitsToDouble(0x4008000000000001L);
+        final double directionA = 1;
+        final double directionB = 2;
+        final int writes = 200000;
+
+        Thread writer = new Thread() {
+            public void run() {
+                for (int i = 0; i < writes; i++) {
+                    boolean a = i % 2 == 0;
+                    c.setPosition(a ? 1 : 100, a ? 1 : 100);
+                    c.setSpeed(a ? speedA : speedB);
+                    c.setDirection(a ? directionA : directionB);
+                }
+            }
+        };
+        final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        Thread[] readers = new Thread[3];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < writes; i++) {
+                        Position p = c.getPosition();
+                        double s = c.getSpeed();
+                        double d = c.getDirection();
+                        if (p.getX() != p.getY()) {
+                            errors.add("position " + p);
+                        }
+                        if (s != speedA && s != speedB && s != 0) {
+                            errors.add("speed " + s);
+                        }
+                        if (d != directionA && d != directionB && d != 0) {
+                            errors.add("direction " + d);
+                        }
+                    }
+                }
+            };
+        }
+        writer.start();
+        for (Thread t : readers) {
+            t.start();
+        }
+        writer.join();
+        for (Thread t : readers) {
+            t.join();
+        }
+        assertEquals(Collections.emptyList(), errors);
+    }
+
+    private static Set<AbstractCreature> identitySet(List<? extends AbstractCreature> list) {
+        Set<AbstractCreature> set = Collections.newSetFromMap(new IdentityHashMap<AbstractCreature, Boolean>());
+        set.addAll(list);
+        return set;
+    }
+}
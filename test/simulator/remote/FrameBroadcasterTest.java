@@ -0,0 +1,111 @@
+package simulator.remote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import creatures.AbstractCreature;
+import creatures.Position;
+import creatures.StupidCreature;
+import simulator.World;
+
+public class FrameBroadcasterTest {
+
+    final World world = new World(200, 100);
+
+    /**
+     * Keeps the type and the sequence number of the frames written.
+     */
+    static class Recording extends OutputStream {
+        final List<String> frames = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void write(int b) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ByteBuffer frame = ByteBuffer.wrap(b, off, len);
+            frame.getInt();
+            frames.add((frame.get() == FrameEncoder.KEY ? "key " : "delta ") + frame.getInt());
+        }
+    }
+
+    private Thread viewer(final FrameBroadcaster broadcaster, final OutputStream out, final int minLayer) {
+        Thread t = new Thread() {
+            public void run() {
+                try {
+                    broadcaster.stream(out, minLayer);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        t.start();
+        return t;
+    }
+
+    /**
+     * Waits for the viewer to wait for a frame.
+     */
+    private static void awaitWaiting(Thread viewer) throws InterruptedException {
+        while (viewer.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * A viewer capped to a coarse layer joining at a frame that is not on
+     * the grid of its layer gets back to it with finer deltas, not with
+     * another key frame.
+     */
+    @Test
+    public void testCappedViewerJoiningOffTheGrid() throws Exception {
+        List<AbstractCreature> creatures = new ArrayList<AbstractCreature>();
+        creatures.add(new StupidCreature(world, new Position(0, 0), 0, 1, 0));
+        FrameBroadcaster broadcaster = new FrameBroadcaster(world.getTopology(), Double.POSITIVE_INFINITY);
+
+        Thread first = viewer(broadcaster, new Recording(), 0);
+        while (broadcaster.getViewers() == 0) {
+            Thread.sleep(1);
+        }
+        for (int seq = 0; seq <= 4; seq++) {
+            awaitWaiting(first);
+            assertTrue(broadcaster.publish(creatures));
+        }
+
+        Recording out = new Recording();
+        Thread capped = viewer(broadcaster, out, 2);
+        while (broadcaster.getViewers() == 1) {
+            Thread.sleep(1);
+        }
+        awaitWaiting(capped);
+        // the key frame it asked for: 5
+        for (int seq = 5; seq <= 40; seq++) {
+            awaitWaiting(capped);
+            awaitWaiting(first);
+            assertTrue(broadcaster.publish(creatures));
+        }
+        awaitWaiting(capped);
+        broadcaster.close();
+        first.join();
+        capped.join();
+
+        List<String> expected = new ArrayList<String>();
+        expected.add("key 5");
+        expected.add("delta 6");
+        expected.add("delta 8");
+        for (int seq = 12; seq <= 40; seq += 4) {
+            expected.add("delta " + seq);
+        }
+        assertEquals(expected, out.frames);
+    }
+}
@@ -0,0 +1,95 @@
+package simulator.remote;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import creatures.AbstractCreature;
+import creatures.Position;
+import creatures.StupidCreature;
+import simulator.World;
+
+public class FrameEncoderTest {
+
+    final World world = new World(200, 100);
+
+    private List<AbstractCreature> creatures() {
+        List<AbstractCreature> list = new ArrayList<AbstractCreature>();
+        list.add(new StupidCreature(world, new Position(-100, -50), 0, 1, 0xFF0000));
+        list.add(new StupidCreature(world, new Position(0, 0), Math.PI, 1, 0x00FF00));
+        list.add(new StupidCreature(world, new Position(100, 50), Math.PI / 2, 1, 0x0000FF));
+        return list;
+    }
+
+    @Test
+    public void testKeyFrame() throws Exception {
+        FrameEncoder encoder = new FrameEncoder(world.getTopology());
+        FrameEncoder.Snapshot s = new FrameEncoder.Snapshot();
+        encoder.snapshot(7, creatures(), s);
+
+        ByteBuffer frame = ByteBuffer.wrap(encoder.key(s));
+        assertEquals(frame.capacity() - 4, frame.getInt());
+        assertEquals(FrameEncoder.KEY, frame.get());
+        assertEquals(7, frame.getInt());
+        assertEquals(200, frame.getShort());
+        assertEquals(100, frame.getShort());
+        assertEquals(3, frame.getInt());
+
+        // top-left corner, heading right
+        assertEquals(0, frame.getShort() & 0xFFFF);
+        assertEquals(0, frame.getShort() & 0xFFFF);
+        assertEquals(0, frame.get() & 0xFF);
+        assertEquals(0xFF, frame.get() & 0xFF);
+        frame.position(frame.position() + 2);
+
+        // center, heading left
+        assertEquals(0x8000, frame.getShort() & 0xFFFF);
+        assertEquals(0x8000, frame.getShort() & 0xFFFF);
+        assertEquals(128, frame.get() & 0xFF);
+    }
+
+    @Test
+    public void testDeltaHoldsOnlyTheChanges() throws Exception {
+        FrameEncoder encoder = new FrameEncoder(world.getTopology());
+        List<AbstractCreature> list = creatures();
+        FrameEncoder.Snapshot base = new FrameEncoder.Snapshot();
+        FrameEncoder.Snapshot s = new FrameEncoder.Snapshot();
+        encoder.snapshot(0, list, base);
+
+        list.get(2).setPosition(50, 50);
+        encoder.snapshot(1, list, s);
+
+        ByteBuffer frame = ByteBuffer.wrap(encoder.delta(base, s));
+        frame.getInt();
+        assertEquals(FrameEncoder.DELTA, frame.get());
+        assertEquals(1, frame.getInt());
+        assertEquals(0, frame.getInt());
+        assertEquals(3, frame.getInt());
+        assertEquals(1, frame.getInt());
+
+        // skips the two first creatures
+        assertEquals(2, frame.get());
+        assertEquals(FrameEncoder.X, frame.get());
+        assertEquals(0xBFFF, frame.getShort() & 0xFFFF);
+        assertEquals(0, frame.remaining());
+    }
+
+    @Test
+    public void testDeltaBecomesKeyWhenThePopulationChanges() throws Exception {
+        FrameEncoder encoder = new FrameEncoder(world.getTopology());
+        List<AbstractCreature> list = creatures();
+        FrameEncoder.Snapshot base = new FrameEncoder.Snapshot();
+        FrameEncoder.Snapshot s = new FrameEncoder.Snapshot();
+        encoder.snapshot(0, list, base);
+        list.remove(0);
+        encoder.snapshot(1, list, s);
+
+        ByteBuffer frame = ByteBuffer.wrap(encoder.delta(base, s));
+        frame.getInt();
+        assertEquals(FrameEncoder.KEY, frame.get());
+    }
+}
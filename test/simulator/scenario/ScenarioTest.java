@@ -0,0 +1,144 @@
+package simulator.scenario;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import creatures.AbstractCreature;
+import creatures.SmartCreature;
+import simulator.World;
+
+public class ScenarioTest {
+
+    final String text = "# test\n"
+            + "world 200 100 reflective\n"
+            + "seed 7\n"
+            + "ticks 20\n"
+            + "population stupid 10 distribution=grid speed=2\n"
+            + "population smart 5 distribution=cluster x=50 y=-20 radius=10 color=#ff0000 # red\n";
+
+    @Test
+    public void testParse() throws Exception {
+        Scenario scenario = Scenario.read(new StringReader(text));
+
+        assertEquals(200, scenario.getWidth(), 0);
+        assertEquals(100, scenario.getHeight(), 0);
+        assertEquals("reflective", scenario.getTopology());
+        assertEquals(7, scenario.getSeed());
+        assertEquals(20, scenario.getTicks());
+        assertEquals(2, scenario.getPopulations().size());
+
+        Population smart = scenario.getPopulations().get(1);
+        assertEquals(CreatureType.SMART, smart.getType());
+        assertEquals(Population.Distribution.CLUSTER, smart.getDistribution());
+        assertEquals(0xFFFF0000, smart.getColor());
+    }
+
+    @Test
+    public void testErrorsGiveTheLine() throws Exception {
+        try {
+            Scenario.read(new StringReader("world 10 10\npopulation dumb 3\n"));
+            fail();
+        } catch (IOException e) {
+            assertEquals("line 2: unknown creature type dumb", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCompileIsReproducible() throws Exception {
+        CompiledScenario a = Scenario.read(new StringReader(text)).compile();
+        CompiledScenario b = Scenario.read(new StringReader(text)).compile();
+
+        assertArrayEquals(a.x, b.x, 0);
+        assertArrayEquals(a.y, b.y, 0);
+        assertArrayEquals(a.direction, b.direction, 0);
+    }
+
+    @Test
+    public void testCreateWorld() throws Exception {
+        World world = Scenario.read(new StringReader(text)).compile().createWorld();
+
+        assertEquals(15, world.getCreatureList().size());
+        assertTrue(world.getTopology().reflects());
+        for (AbstractCreature c : world.getCreatureList().subList(10, 15)) {
+            assertTrue(c instanceof SmartCreature);
+            assertTrue(c.getPosition().distance(50, -20) <= 10);
+            assertEquals(0xFFFF0000, c.getColor());
+        }
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        CompiledScenario a = Scenario.read(new StringReader(text)).compile();
+        File file = File.createTempFile("scenario", ".scnb");
+        try {
+            a.write(file);
+            assertTrue(CompiledScenario.isCompiled(file));
+
+            CompiledScenario b = CompiledScenario.read(file);
+            assertEquals(a.getCount(), b.getCount());
+            assertEquals(a.getTicks(), b.getTicks());
+            assertEquals(a.getSeed(), b.getSeed());
+            assertTrue(b.getTopology().reflects());
+            assertArrayEquals(a.x, b.x, 0);
+            assertArrayEquals(a.y, b.y, 0);
+            assertArrayEquals(a.speed, b.speed, 0);
+            assertArrayEquals(a.color, b.color);
+            assertArrayEquals(a.types, b.types);
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Writes the scenario then overwrites the given byte of the file.
+     */
+    private File corrupt(long offset, int value) throws IOException {
+        File file = File.createTempFile("scenario", ".scnb");
+        Scenario.read(new StringReader(text)).compile().write(file);
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.seek(offset);
+            out.write(value);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    @Test
+    public void testUnknownTopologyCode() throws Exception {
+        File file = corrupt(24, 7);
+        try {
+            CompiledScenario.read(file);
+            fail();
+        } catch (IOException e) {
+            assertEquals(file + ": offset 24: unknown topology code 7", e.getMessage());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testUnknownCreatureType() throws Exception {
+        // the types of the 15 creatures come last, the fourth one is wrong
+        long offset = 48 + 36 * 15 + 3;
+        File file = corrupt(offset, 200);
+        try {
+            CompiledScenario.read(file);
+            fail();
+        } catch (IOException e) {
+            assertEquals(file + ": offset " + offset + ": unknown creature type 200", e.getMessage());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package simulator.spatial;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import creatures.AbstractCreature;
+import creatures.Position;
+import creatures.StupidCreature;
+import creatures.Topology;
+import simulator.World;
+
+/**
+ * Checks the indexes against a brute force scan of all the creatures.
+ */
+public class SpatialIndexTest {
+
+    private static final int SIZE = 600;
+
+    private static List<AbstractCreature> scattered(World world, int n, long seed) {
+        Random random = new Random(seed);
+        List<AbstractCreature> list = new ArrayList<AbstractCreature>();
+        for (int i = 0; i < n; i++) {
+            list.add(creature(world, (random.nextDouble() - 0.5) * SIZE, (random.nextDouble() - 0.5) * SIZE,
+                    random));
+        }
+        return list;
+    }
+
+    /**
+     * A few tight flocks, some of them straddling the edges of the world.
+     */
+    private static List<AbstractCreature> clustered(World world, int n, long seed) {
+        Random random = new Random(seed);
+        double[][] centres = {{0, 0}, {SIZE / 2 - 5, 40}, {-100, -SIZE / 2 + 3}, {SIZE / 2 - 2, SIZE / 2 - 2}};
+        List<AbstractCreature> list = new ArrayList<AbstractCreature>();
+        for (int i = 0; i < n; i++) {
+            double[] centre = centres[i % centres.length];
+            double x = wrap(centre[0] + random.nextGaussian() * 10);
+            double y = wrap(centre[1] + random.nextGaussian() * 10);
+            list.add(creature(world, x, y, random));
+        }
+        return list;
+    }
+
+    private static double wrap(double p) {
+        return p - SIZE * Math.floor((p + SIZE / 2) / SIZE);
+    }
+
+    private static AbstractCreature creature(World world, double x, double y, Random random) {
+        return new StupidCreature(world, new Position(x, y), random.nextDouble() * 2 * Math.PI, 0, 0);
+    }
+
+    private static List<ISpatialIndex> indexes(Topology topology) {
+        List<ISpatialIndex> indexes = new ArrayList<ISpatialIndex>();
+        indexes.add(new UniformGrid(topology));
+        indexes.add(new KdTree(topology));
+        indexes.add(new AdaptiveSpatialIndex(topology));
+        return indexes;
+    }
+
+    private static void checkAgainstBruteForce(Topology topology, List<AbstractCreature> list) {
+        for (ISpatialIndex index : indexes(topology)) {
+            index.rebuild(list);
+            assertEquals(list.size(), index.size());
+            for (int i = 0; i < list.size(); i += 3) {
+                AbstractCreature c = list.get(i);
+                String name = index.getClass().getSimpleName();
+                assertEquals(name, around(c, list), identitySet(index.creaturesAround(c)));
+                assertEquals(name, nearest(topology, c, list, 6), index.nearest(c, 6));
+
+                Position p = c.getPosition();
+                List<AbstractCreature> actual = new ArrayList<AbstractCreature>();
+                index.within(p.getX(), p.getY(), 45, null, actual);
+                assertEquals(name, within(topology, p.getX(), p.getY(), 45, list), identitySet(actual));
+            }
+        }
+    }
+
+    private static Set<AbstractCreature> around(AbstractCreature observer, List<AbstractCreature> list) {
+        Set<AbstractCreature> result = identitySet(new ArrayList<AbstractCreature>());
+        for (AbstractCreature c : list) {
+            if (c != observer && observer.sees(c)) {
+                result.add(c);
+            }
+        }
+        return result;
+    }
+
+    private static Set<AbstractCreature> within(Topology topology, double x, double y, double radius,
+                                                List<AbstractCreature> list) {
+        Set<AbstractCreature> result = identitySet(new ArrayList<AbstractCreature>());
+        for (AbstractCreature c : list) {
+            Position p = c.getPosition();
+            if (topology.distanceSq(x, y, p.getX(), p.getY()) <= radius * radius) {
+                result.add(c);
+            }
+        }
+        return result;
+    }
+
+    private static List<AbstractCreature> nearest(final Topology topology, AbstractCreature observer,
+                                                  List<AbstractCreature> list, int k) {
+        final Position o = observer.getPosition();
+        List<AbstractCreature> others = new ArrayList<AbstractCreature>(list);
+        others.remove(observer);
+        Collections.sort(others, new Comparator<AbstractCreature>() {
+            public int compare(AbstractCreature a, AbstractCreature b) {
+                Position pa = a.getPosition();
+                Position pb = b.getPosition();
+                return Double.compare(topology.distanceSq(o.getX(), o.getY(), pa.getX(), pa.getY()),
+                        topology.distanceSq(o.getX(), o.getY(), pb.getX(), pb.getY()));
+            }
+        });
+        return others.subList(0, Math.min(k, others.size()));
+    }
+
+    @Test
+    public void testScatteredCreaturesInATorus() throws Exception {
+        Topology topology = Topology.toroidal(SIZE, SIZE);
+        checkAgainstBruteForce(topology, scattered(new World(topology), 1500, 1));
+    }
+
+    @Test
+    public void testScatteredCreaturesInABoundedWorld() throws Exception {
+        Topology topology = Topology.bounded(SIZE, SIZE);
+        checkAgainstBruteForce(topology, scattered(new World(topology), 1500, 2));
+    }
+
+    @Test
+    public void testFlocksAcrossTheEdgesOfATorus() throws Exception {
+        Topology topology = Topology.toroidal(SIZE, SIZE);
+        checkAgainstBruteForce(topology, clustered(new World(topology), 1200, 3));
+    }
+
+    @Test
+    public void testNeighboursAcrossTheEdgesOfATorus() throws Exception {
+        Topology topology = Topology.toroidal(SIZE, SIZE);
+        World world = new World(topology);
+        Random random = new Random(4);
+        AbstractCreature left = new StupidCreature(world, new Position(-SIZE / 2 + 1, 0), Math.PI, 0, 0);
+        AbstractCreature right = new StupidCreature(world, new Position(SIZE / 2 - 1, 0), 0, 0, 0);
+        AbstractCreature corner = new StupidCreature(world, new Position(SIZE / 2 - 1, SIZE / 2 - 1), 0, 0, 0);
+        List<AbstractCreature> list = scattered(world, 50, 5);
+        list.add(left);
+        list.add(right);
+        list.add(corner);
+        Collections.shuffle(list, random);
+
+        for (ISpatialIndex index : indexes(topology)) {
+            index.rebuild(list);
+            String name = index.getClass().getSimpleName();
+            // two pixels apart through the edge
+            assertSame(name, left, index.nearest(right, 1).get(0));
+            assertSame(name, right, index.nearest(left, 1).get(0));
+
+            List<AbstractCreature> result = new ArrayList<AbstractCreature>();
+            index.within(-SIZE / 2 + 1, -SIZE / 2 + 1, 3, null, result);
+            assertEquals(name, Collections.singletonList(corner), result);
+        }
+    }
+
+    /**
+     * A disc reaching half of a toroidal world overlaps its images on both
+     * sides: each creature must still be found once.
+     */
+    @Test
+    public void testDiscsWiderThanATorus() throws Exception {
+        Topology topology = Topology.toroidal(SIZE, SIZE / 2);
+        List<AbstractCreature> list = scattered(new World(topology), 300, 9);
+        for (ISpatialIndex index : indexes(topology)) {
+            index.rebuild(list);
+            String name = index.getClass().getSimpleName();
+            for (double radius : new double[] {SIZE / 4, SIZE / 2, 2 * SIZE}) {
+                List<AbstractCreature> actual = new ArrayList<AbstractCreature>();
+                index.within(10, -20, radius, null, actual);
+                Set<AbstractCreature> expected = within(topology, 10, -20, radius, list);
+                assertEquals(name + " " + radius, expected.size(), actual.size());
+                assertEquals(name + " " + radius, expected, identitySet(actual));
+            }
+        }
+    }
+
+    @Test
+    public void testAdaptiveIndexSwitchesWithTheCrowding() throws Exception {
+        Topology topology = Topology.toroidal(SIZE, SIZE);
+        World world = new World(topology);
+        AdaptiveSpatialIndex index = new AdaptiveSpatialIndex(topology);
+
+        index.rebuild(scattered(world, 1500, 6));
+        assertEquals(UniformGrid.class, index.getCurrent().getClass());
+
+        List<AbstractCreature> flocks = clustered(world, 1500, 7);
+        index.rebuild(flocks);
+        assertEquals(KdTree.class, index.getCurrent().getClass());
+        // the answers follow the switch
+        AbstractCreature c = flocks.get(0);
+        assertEquals(around(c, flocks), identitySet(index.creaturesAround(c)));
+
+        index.rebuild(scattered(world, 1500, 8));
+        assertEquals(UniformGrid.class, index.getCurrent().getClass());
+    }
+
+    private static Set<AbstractCreature> identitySet(List<? extends AbstractCreature> list) {
+        Set<AbstractCreature> set = Collections.newSetFromMap(new IdentityHashMap<AbstractCreature, Boolean>());
+        set.addAll(list);
+        return set;
+    }
+}
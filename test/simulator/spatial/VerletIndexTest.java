@@ -0,0 +1,126 @@
+package simulator.spatial;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import creatures.AbstractCreature;
+import creatures.Position;
+import creatures.StupidCreature;
+import creatures.Topology;
+import simulator.World;
+
+public class VerletIndexTest {
+
+    private static final int SIZE = 1000;
+
+    /**
+     * A flock: the creatures share their direction and speed, each one
+     * wobbling a little around it.
+     */
+    private static List<AbstractCreature> flock(World world, int n, double speed, long seed) {
+        Random random = new Random(seed);
+        List<AbstractCreature> list = new ArrayList<AbstractCreature>();
+        for (int i = 0; i < n; i++) {
+            list.add(new StupidCreature(world,
+                    new Position((random.nextDouble() - 0.5) * SIZE, (random.nextDouble() - 0.5) * SIZE),
+                    1 + random.nextDouble() * 0.1, speed, 0));
+        }
+        return list;
+    }
+
+    @Test
+    public void testAnswersLikeTheIndexItWraps() throws Exception {
+        Topology topology = Topology.toroidal(SIZE, SIZE);
+        World world = new World(topology);
+        List<AbstractCreature> list = flock(world, 2000, 3, 1);
+        // some creatures go their own way and expire the lists
+        Random random = new Random(2);
+        for (int i = 0; i < 100; i++) {
+            list.get(i).setDirection(random.nextDouble() * 2 * Math.PI);
+        }
+
+        VerletIndex verlet = new VerletIndex(topology, 8);
+        UniformGrid uniform = new UniformGrid(topology);
+        for (int tick = 0; tick < 30; tick++) {
+            verlet.rebuild(list);
+            uniform.rebuild(list);
+            for (int i = 0; i < list.size(); i += 3) {
+                AbstractCreature c = list.get(i);
+                assertEquals(identitySet(uniform.creaturesAround(c)), identitySet(verlet.creaturesAround(c)));
+            }
+            for (int i = 0; i < list.size(); i += 50) {
+                AbstractCreature c = list.get(i);
+                assertEquals(uniform.nearest(c, 5), verlet.nearest(c, 5));
+                Position p = c.getPosition();
+                List<AbstractCreature> expected = new ArrayList<AbstractCreature>();
+                List<AbstractCreature> actual = new ArrayList<AbstractCreature>();
+                uniform.within(p.getX(), p.getY(), 30, null, expected);
+                verlet.within(p.getX(), p.getY(), 30, null, actual);
+                assertEquals(identitySet(expected), identitySet(actual));
+            }
+            for (AbstractCreature c : list) {
+                c.act();
+            }
+        }
+        assertTrue(verlet.getRebuilds() > 1);
+    }
+
+    @Test
+    public void testListsLastWhileTheCreaturesMoveLessThanHalfTheSkin() throws Exception {
+        Topology topology = Topology.toroidal(SIZE, SIZE);
+        World world = new World(topology);
+        List<AbstractCreature> list = flock(world, 500, 1, 3);
+        world.addCreatures(list);
+        VerletIndex verlet = new VerletIndex(topology, 11);
+        world.setSpatialIndex(verlet);
+        verlet.resetMetrics();
+
+        for (int tick = 0; tick < 20; tick++) {
+            world.tick();
+            for (AbstractCreature c : list) {
+                world.creaturesAround(c);
+            }
+        }
+
+        // one pixel per tick, the lists expire once the creatures are six
+        // pixels away, every six ticks
+        assertEquals(20, verlet.getTicks());
+        assertEquals(3, verlet.getRebuilds());
+        // the queries of the ticks that built the lists
+        assertEquals(3 * 500, verlet.getMisses());
+        assertEquals(0.85, verlet.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void testPopulationChangeExpiresTheLists() throws Exception {
+        Topology topology = Topology.toroidal(SIZE, SIZE);
+        World world = new World(topology);
+        List<AbstractCreature> list = flock(world, 100, 0, 4);
+        VerletIndex verlet = new VerletIndex(topology, 10);
+
+        verlet.rebuild(list);
+        verlet.rebuild(list);
+        assertEquals(1, verlet.getRebuilds());
+        list.remove(0);
+        verlet.rebuild(list);
+        assertEquals(2, verlet.getRebuilds());
+        Collections.swap(list, 0, 1);
+        verlet.rebuild(list);
+        assertEquals(3, verlet.getRebuilds());
+    }
+
+    private static Set<AbstractCreature> identitySet(List<? extends AbstractCreature> list) {
+        Set<AbstractCreature> set = Collections.newSetFromMap(new IdentityHashMap<AbstractCreature, Boolean>());
+        set.addAll(list);
+        return set;
+    }
+}
@@ -0,0 +1,198 @@
+package simulator.stats;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import creatures.AbstractCreature;
+import creatures.Position;
+import creatures.StupidCreature;
+import creatures.Topology;
+import creatures.behavior.BehaviorEngine;
+import simulator.World;
+
+public class StatisticsCollectorTest {
+
+    private static final int SIZE = 1000;
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * A collector querying the neighbourhood of all the creatures, the
+     * stupid ones included.
+     */
+    private static StatisticsCollector everyone() {
+        return new StatisticsCollector(AbstractCreature.DEFAULT_VISION_DISTANCE, StatisticsCollector.DEFAULT_BINS, 1);
+    }
+
+    private static AbstractCreature creature(World world, double x, double y, double direction, double speed) {
+        return new StupidCreature(world, new Position(x, y), direction, speed, 0);
+    }
+
+    /**
+     * Four groups of creatures looking east, one of them across the edge of
+     * the torus, and a lone creature looking west:
+     * A sees B at 10 and C, B sees C at 20, D sees E at 5, G sees H at 10.
+     */
+    private List<AbstractCreature> groups(World world) {
+        List<AbstractCreature> list = new ArrayList<AbstractCreature>();
+        list.add(creature(world, 0, 0, 0, 1)); // A
+        list.add(creature(world, 10, 0, 0, 2)); // B
+        list.add(creature(world, 30, 0, 0, 3)); // C
+        list.add(creature(world, 300, 300, 0, 4)); // D
+        list.add(creature(world, 305, 300, 0, 5)); // E
+        list.add(creature(world, -300, -300, Math.PI, 6)); // F
+        list.add(creature(world, 495, -200, 0, 7)); // G
+        list.add(creature(world, -495, -200, 0, 8)); // H
+        return list;
+    }
+
+    @Test
+    public void testStatisticsOfATick() throws Exception {
+        World world = new World(Topology.toroidal(SIZE, SIZE));
+        world.addCreatures(groups(world));
+        BehaviorEngine engine = BehaviorEngine.of(world, pool);
+        engine.setStatistics(everyone());
+
+        Statistics stats = engine.tick();
+
+        assertEquals(8, stats.getPopulation());
+        assertEquals(4.5, stats.getMeanSpeed(), 1e-9);
+        // seven creatures looking east, one west
+        assertEquals(6.0 / 8, stats.getPolarization(), 1e-9);
+        assertEquals(4, stats.getClusters());
+        assertEquals(3, stats.getLargestCluster());
+        // C, E, F and H see no one
+        assertEquals(4, stats.getIsolated());
+        assertEquals((10 + 20 + 5 + 10) / 4.0, stats.getMeanNearest(), 1e-9);
+        assertEquals(5, stats.getBinWidth(), 1e-9);
+        assertArrayEquals(new int[] {0, 1, 2, 0, 1, 0, 0, 0, 0, 0}, stats.getNearestHistogram());
+    }
+
+    @Test
+    public void testIdsFollowThePopulation() throws Exception {
+        World world = new World(Topology.toroidal(SIZE, SIZE));
+        List<AbstractCreature> list = groups(world);
+        world.addCreatures(list);
+        BehaviorEngine engine = BehaviorEngine.of(world, pool);
+        StatisticsCollector collector = everyone();
+        engine.setStatistics(collector);
+        engine.tick();
+
+        // without B, A still sees C: the creatures after B change of id
+        engine.remove(list.get(1));
+        Statistics stats = engine.tick();
+        assertEquals(7, stats.getPopulation());
+        assertEquals(4, stats.getClusters());
+        assertEquals(2, stats.getLargestCluster());
+
+        assertEquals(-1, collector.id(list.get(1)));
+        assertEquals(1, collector.id(list.get(2)));
+        assertEquals(-1, collector.id(creature(world, 0, 0, 0, 0)));
+    }
+
+    /**
+     * Enough creatures for the parallel pass, the clusters checked against a
+     * union-find fed by every pair.
+     */
+    @Test
+    public void testClustersOfALargePopulation() throws Exception {
+        World world = new World(Topology.toroidal(SIZE, SIZE));
+        Random random = new Random(1);
+        List<AbstractCreature> list = new ArrayList<AbstractCreature>();
+        for (int i = 0; i < 3000; i++) {
+            list.add(creature(world, (random.nextDouble() - 0.5) * SIZE, (random.nextDouble() - 0.5) * SIZE,
+                    random.nextDouble() * 2 * Math.PI, 1));
+        }
+        world.addCreatures(list);
+        BehaviorEngine engine = BehaviorEngine.of(world, pool);
+        engine.setStatistics(everyone());
+
+        UnionFind expected = new UnionFind();
+        expected.reset(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            for (int j = 0; j < list.size(); j++) {
+                if (i != j && list.get(i).sees(list.get(j))) {
+                    expected.union(i, j);
+                }
+            }
+        }
+
+        Statistics stats = engine.tick();
+        assertEquals(expected.count(), stats.getClusters());
+        assertEquals(expected.largest(), stats.getLargestCluster());
+    }
+
+    /**
+     * By default the creatures that do not look around only account for the
+     * speed and the direction, their neighbourhood is never queried.
+     */
+    @Test
+    public void testStupidCreaturesAreNotQueriedByDefault() throws Exception {
+        final AtomicInteger queries = new AtomicInteger();
+        World world = new World(Topology.toroidal(SIZE, SIZE)) {
+            @Override
+            public Collection<AbstractCreature> creaturesAround(AbstractCreature creature) {
+                queries.incrementAndGet();
+                return super.creaturesAround(creature);
+            }
+        };
+        world.addCreatures(groups(world));
+        BehaviorEngine engine = BehaviorEngine.of(world, pool);
+        engine.setStatistics(new StatisticsCollector());
+
+        Statistics stats = engine.tick();
+        assertEquals(0, queries.get());
+        assertEquals(8, stats.getPopulation());
+        assertEquals(4.5, stats.getMeanSpeed(), 1e-9);
+        assertEquals(6.0 / 8, stats.getPolarization(), 1e-9);
+        assertEquals(0, stats.getObserved());
+        assertEquals(0, stats.getClusters());
+        assertEquals(0, stats.getLargestCluster());
+        assertEquals(0, stats.getIsolated());
+        assertTrue(Double.isNaN(stats.getMeanNearest()));
+    }
+
+    /**
+     * With a sampling period of 2, half of the creatures are queried at each
+     * tick, the other half at the next one.
+     */
+    @Test
+    public void testSampling() throws Exception {
+        World world = new World(Topology.toroidal(SIZE, SIZE));
+        world.addCreatures(groups(world));
+        BehaviorEngine engine = BehaviorEngine.of(world, pool);
+        engine.setStatistics(new StatisticsCollector(AbstractCreature.DEFAULT_VISION_DISTANCE,
+                StatisticsCollector.DEFAULT_BINS, 2));
+
+        // A, C, E and G: A sees C, the edge from G to H is left out
+        Statistics stats = engine.tick();
+        assertEquals(8, stats.getPopulation());
+        assertEquals(4, stats.getObserved());
+        assertEquals(3, stats.getClusters());
+        assertEquals(2, stats.getLargestCluster());
+        assertEquals(2, stats.getIsolated());
+
+        // B, D, F and H: B sees C and D sees E, neither observed
+        stats = engine.tick();
+        assertEquals(4, stats.getObserved());
+        assertEquals(4, stats.getClusters());
+        assertEquals(1, stats.getLargestCluster());
+        assertEquals(2, stats.getIsolated());
+    }
+}
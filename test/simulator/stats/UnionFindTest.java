@@ -0,0 +1,46 @@
+package simulator.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class UnionFindTest {
+
+    @Test
+    public void testSingletons() throws Exception {
+        UnionFind sets = new UnionFind();
+        sets.reset(5);
+
+        assertEquals(5, sets.count());
+        assertEquals(1, sets.largest());
+    }
+
+    @Test
+    public void testUnion() throws Exception {
+        UnionFind sets = new UnionFind();
+        sets.reset(6);
+
+        assertTrue(sets.union(0, 1));
+        assertTrue(sets.union(2, 3));
+        assertTrue(sets.union(1, 3));
+        assertFalse(sets.union(0, 2));
+
+        assertEquals(3, sets.count());
+        assertEquals(4, sets.largest());
+        assertEquals(sets.find(0), sets.find(3));
+        assertTrue(sets.find(4) != sets.find(5));
+    }
+
+    @Test
+    public void testResetReusesTheArrays() throws Exception {
+        UnionFind sets = new UnionFind();
+        sets.reset(4);
+        sets.union(0, 1);
+        sets.reset(3);
+
+        assertEquals(3, sets.count());
+        assertEquals(1, sets.largest());
+    }
+}